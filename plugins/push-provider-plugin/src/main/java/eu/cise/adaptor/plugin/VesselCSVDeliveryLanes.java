@@ -0,0 +1,150 @@
+package eu.cise.adaptor.plugin;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivery of the messages partitioned in one lane per recipientServiceId (each known consumer service and each unknown_N profile). The
+ * messages of a lane are sent one at a time, in the order they were submitted, while the lanes run in parallel on a shared pool of
+ * threads: a slow or unreachable recipient only holds back its own lane.
+ * <p>
+ * A lane sends one message then goes back to the end of the queue of the pool, so the busy lanes share the threads. The number of
+ * messages waiting in a lane is bounded, the submission of a message to a full lane waits until the lane has room. Each lane keeps the
+ * number and the latency (time from the sending to the acknowledgement) of its deliveries.
+ * <p>
+ * A lane is removed once it has no message waiting or being sent, so the lanes of all the recipients seen since the start do not pile
+ * up. Its counters start again with the next message of its recipient.
+ */
+class VesselCSVDeliveryLanes {
+
+    private final ExecutorService lanesExecutorService;
+    private final int maxLaneDepth;
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>(); // the lanes with messages waiting or being sent
+
+    /**
+     * @param threads      number of threads shared by the lanes, the maximum number of messages sent at the same time
+     * @param maxLaneDepth maximum number of messages waiting in one lane
+     */
+    VesselCSVDeliveryLanes(int threads, int maxLaneDepth) {
+        this.lanesExecutorService = Executors.newFixedThreadPool(Math.max(1, threads));
+        this.maxLaneDepth = Math.max(1, maxLaneDepth);
+    }
+
+    /**
+     * Queues a delivery in the lane of its recipient, waiting while the lane is full
+     *
+     * @param recipientServiceId recipient of the message, the name of the lane
+     * @param delivery           sending of the message, returning once it is acknowledged
+     * @return the result of the delivery, once it has run
+     * @throws InterruptedException Interrupted while waiting for room in the lane
+     */
+    <T> Future<T> submit(String recipientServiceId, Callable<T> delivery) throws InterruptedException {
+        String laneName = recipientServiceId == null ? "" : recipientServiceId;
+        Lane lane = lanes.compute(laneName, (name, existingLane) -> (existingLane != null ? existingLane : new Lane(name)).hold());
+        FutureTask<T> deliveryTask = new FutureTask<>(delivery);
+        try {
+            lane.queue.put(deliveryTask);
+        } catch (InterruptedException ex) {
+            lane.release();
+            throw ex;
+        }
+        lane.schedule();
+        return deliveryTask;
+    }
+
+    /**
+     * @return the average latency of the deliveries of each lane with messages waiting or being sent, in milliseconds, by recipient
+     */
+    Map<String, Long> getAverageLatencies() {
+        Map<String, Long> averageLatencies = new TreeMap<>();
+        lanes.forEach((laneName, lane) -> averageLatencies.put(laneName, lane.getAverageLatencyMillis()));
+        return averageLatencies;
+    }
+
+    /**
+     * @return a description of each lane with messages waiting or being sent (deliveries, average and maximum latency, messages
+     * waiting), by recipient
+     */
+    Map<String, String> describeLanes() {
+        Map<String, String> descriptions = new LinkedHashMap<>();
+        new TreeMap<>(lanes).forEach((laneName, lane) -> descriptions.put(laneName, lane.deliveries.get() + " deliveries, "
+                + lane.getAverageLatencyMillis() + " ms average, " + TimeUnit.NANOSECONDS.toMillis(lane.maxLatencyNanos.get()) + " ms max, "
+                + lane.queue.size() + " waiting"));
+        return descriptions;
+    }
+
+    void stop() {
+        lanesExecutorService.shutdownNow();
+    }
+
+    private class Lane implements Runnable {
+        private final String name;
+        private final BlockingQueue<FutureTask<?>> queue = new ArrayBlockingQueue<>(maxLaneDepth);
+        private final AtomicBoolean scheduled = new AtomicBoolean(); // true while the lane is queued in the pool or sending
+        private final AtomicLong deliveries = new AtomicLong();
+        private final AtomicLong totalLatencyNanos = new AtomicLong();
+        private final AtomicLong maxLatencyNanos = new AtomicLong();
+        private int pendingDeliveries; // messages submitted and not sent yet, only changed while computing the entry of the lane
+
+        Lane(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Counts a message submitted to the lane, while computing its entry
+         */
+        Lane hold() {
+            pendingDeliveries++;
+            return this;
+        }
+
+        /**
+         * Counts a message sent, or not queued, and removes the lane when no message is left
+         */
+        void release() {
+            lanes.computeIfPresent(name, (laneName, lane) -> --lane.pendingDeliveries == 0 ? null : lane);
+        }
+
+        void schedule() {
+            if (!queue.isEmpty() && scheduled.compareAndSet(false, true)) {
+                lanesExecutorService.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                FutureTask<?> deliveryTask = queue.poll();
+                if (deliveryTask != null) {
+                    long start = System.nanoTime();
+                    deliveryTask.run();
+                    long latencyNanos = System.nanoTime() - start;
+                    deliveries.incrementAndGet();
+                    totalLatencyNanos.addAndGet(latencyNanos);
+                    maxLatencyNanos.accumulateAndGet(latencyNanos, Math::max);
+                    release();
+                }
+            } finally {
+                scheduled.set(false);
+            }
+            schedule(); // the next message of the lane goes after the lanes already waiting for a thread
+        }
+
+        long getAverageLatencyMillis() {
+            long laneDeliveries = deliveries.get();
+            return laneDeliveries == 0L ? 0L : TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos.get() / laneDeliveries);
+        }
+    }
+}
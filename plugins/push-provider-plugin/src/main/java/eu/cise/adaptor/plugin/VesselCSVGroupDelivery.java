@@ -0,0 +1,269 @@
+package eu.cise.adaptor.plugin;
+
+import eu.cise.adaptor.core.common.logging.AdaptorLogger;
+import eu.cise.adaptor.core.common.logging.LogConfig;
+import eu.cise.adaptor.core.common.logging.LoggerMessage;
+import eu.cise.adaptor.core.servicehandler.domain.RegisteredMessage;
+import eu.cise.adaptor.plugin.cisecontext.PushProviderDeliver;
+import eu.cise.adaptor.plugin.config.PushProviderPluginConfig;
+import eu.cise.adaptor.plugin.translator.VesselCSVCheckpointJournal;
+import eu.cise.adaptor.plugin.translator.VesselCSVConflationQueue;
+import eu.cise.adaptor.plugin.translator.VesselCSVTranslator;
+import eu.cise.adaptor.plugin.translator.VesselCSVTranslatorEntry;
+import eu.cise.servicemodel.v1.message.Acknowledgement;
+import eu.cise.servicemodel.v1.message.XmlEntityPayload;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static eu.cise.adaptor.plugin.translator.VesselCSVTranslator.vesselCSVEntriesToCISE;
+
+/**
+ * Delivery of the {@link VesselCSVTranslator.MessageKey} groups of the translated CSV files to the Service Handler of the Generic Adaptor.
+ * <p>
+ * By default the groups of a file are sent one at a time, each waiting for the acknowledgement of the previous one. When more than one
+ * message may be in flight, the groups are handed to a pool of delivery threads and the number of messages waiting for their
+ * acknowledgement is bounded over all the files. The results are applied to the lines of their group, so the reports keep the order of
+ * the lines.
+ * With the delivery lanes, the groups are queued in the lane of their recipient instead, a slow recipient only holding back its own lane.
+ * <p>
+ * With the conflation, a group only delivers the positions that are the newest of their vessel and recipient among the files waiting for
+ * delivery. The delivered groups of a file are recorded in its checkpoint journal, when it has one, and are not sent again after a restart.
+ */
+class VesselCSVGroupDelivery {
+
+    private static final AdaptorLogger logger = LogConfig.configureLogging(VesselCSVGroupDelivery.class);
+    private final PushProviderDeliver vesselDeliver;
+    private final VesselCSVConflationQueue conflationQueue; // null when the positions are not conflated
+    private final boolean partialDeliveryEnabled;
+    private final ExecutorService deliveryExecutorService; // null when the groups are delivered one at a time
+    private final Semaphore deliverySlots; // messages that can be sent before an acknowledgement is received
+    private final VesselCSVDeliveryLanes deliveryLanes; // null when the groups are not delivered in lanes by recipient
+
+    /**
+     * @param config          configuration of the plugin
+     * @param vesselDeliver   delivery of one message to the Service Handler
+     * @param conflationQueue queue of the files waiting for delivery, null when the positions are not conflated
+     * @param processingModes processing modes used, with the partial delivery, the delivery lanes and the messages in flight
+     */
+    VesselCSVGroupDelivery(PushProviderPluginConfig config, PushProviderDeliver vesselDeliver, VesselCSVConflationQueue conflationQueue,
+                           VesselCSVProcessingModes processingModes) {
+        this.vesselDeliver = vesselDeliver;
+        this.conflationQueue = conflationQueue;
+        this.partialDeliveryEnabled = processingModes.isPartialDeliveryEnabled();
+        int deliveryMaxInFlight = processingModes.getDeliveryMaxInFlight();
+        this.deliveryExecutorService = deliveryMaxInFlight > 1 ? Executors.newFixedThreadPool(deliveryMaxInFlight) : null;
+        this.deliverySlots = new Semaphore(deliveryMaxInFlight);
+        this.deliveryLanes = processingModes.isDeliveryLanesEnabled()
+                ? new VesselCSVDeliveryLanes(config.getCSVDeliveryLaneThreads(), config.getCSVDeliveryLaneMaxDepth())
+                : null;
+    }
+
+    void deliverGroups(VesselCSVTranslator vesselCSVTranslatorToCiseResult, VesselCSVCheckpointJournal checkpointJournal) throws Exception {
+        if (isToBeDelivered(vesselCSVTranslatorToCiseResult)) {
+            offerToConflation(vesselCSVTranslatorToCiseResult);
+            try {
+                if (deliveryLanes != null || deliveryExecutorService != null) {
+                    deliverGroupsInFlight(vesselCSVTranslatorToCiseResult, checkpointJournal);
+                    return;
+                }
+                // send the generated messages one group at a time, the groups only contain lines without errors
+                List<VesselCSVTranslator.MessageKey> messageKeys = vesselCSVTranslatorToCiseResult.getMessageKeys();
+                for (int groupIndex = 0; groupIndex < messageKeys.size(); groupIndex++) {
+                    VesselCSVTranslator.MessageKey messageKey = messageKeys.get(groupIndex);
+                    if (!restoreGroup(checkpointJournal, vesselCSVTranslatorToCiseResult, groupIndex, messageKey)) {
+                        deliverGroup(checkpointJournal, vesselCSVTranslatorToCiseResult, groupIndex, messageKey, vesselCSVTranslatorToCiseResult.getMessagePayload(messageKey));
+                    }
+                }
+            } finally {
+                releaseFromConflation(vesselCSVTranslatorToCiseResult);
+            }
+        }
+    }
+
+    /**
+     * Sends the groups of a file without waiting for the acknowledgement of the previous ones, as long as a delivery slot is free or, with
+     * the delivery lanes, in the lane of the recipient of each group. The payloads are built in order by the calling worker, and no group
+     * is sent after a delivery has failed. Returns once all the deliveries are done, with the failure of the first group that failed.
+     */
+    private void deliverGroupsInFlight(VesselCSVTranslator vesselCSVTranslatorToCiseResult, VesselCSVCheckpointJournal checkpointJournal) throws Exception {
+        List<VesselCSVTranslator.MessageKey> messageKeys = vesselCSVTranslatorToCiseResult.getMessageKeys();
+        List<Future<?>> deliveries = new ArrayList<>();
+        AtomicBoolean deliveryFailed = new AtomicBoolean();
+        try {
+            for (int groupIndex = 0; groupIndex < messageKeys.size() && !deliveryFailed.get(); groupIndex++) {
+                VesselCSVTranslator.MessageKey messageKey = messageKeys.get(groupIndex);
+                if (restoreGroup(checkpointJournal, vesselCSVTranslatorToCiseResult, groupIndex, messageKey)) {
+                    continue;
+                }
+                XmlEntityPayload payload = vesselCSVTranslatorToCiseResult.getMessagePayload(messageKey);
+                int deliveredGroupIndex = groupIndex;
+                deliveries.add(submitDelivery(messageKey, () -> {
+                    if (deliveryFailed.get()) {
+                        return null; // a group of the file failed while this one was waiting for its turn, it is not sent
+                    }
+                    try {
+                        deliverGroup(checkpointJournal, vesselCSVTranslatorToCiseResult, deliveredGroupIndex, messageKey, payload);
+                        return null;
+                    } catch (Exception ex) {
+                        deliveryFailed.set(true);
+                        throw ex;
+                    }
+                }));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            deliveries.forEach(delivery -> delivery.cancel(true));
+            throw ex;
+        }
+
+        Exception failure = null;
+        for (Future<?> delivery : deliveries) {
+            try {
+                delivery.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                deliveries.forEach(pendingDelivery -> pendingDelivery.cancel(true));
+                throw ex;
+            } catch (ExecutionException ex) {
+                if (failure == null) {
+                    failure = ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Queues the delivery of a group in the lane of its recipient when the delivery lanes are enabled, otherwise waits for a free
+     * delivery slot and sends it from the delivery pool
+     */
+    private Future<Void> submitDelivery(VesselCSVTranslator.MessageKey messageKey, Callable<Void> delivery) throws InterruptedException {
+        if (deliveryLanes != null) {
+            return deliveryLanes.submit(messageKey.getRecipientServiceId(), delivery);
+        }
+        deliverySlots.acquire();
+        try {
+            return deliveryExecutorService.submit(() -> {
+                try {
+                    return delivery.call();
+                } finally {
+                    deliverySlots.release();
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            deliverySlots.release();
+            throw ex;
+        }
+    }
+
+    boolean isToBeDelivered(VesselCSVTranslator vesselCSVTranslatorToCiseResult) {
+        return !vesselCSVTranslatorToCiseResult.hasErrors() || partialDeliveryEnabled;
+    }
+
+    boolean restoreGroup(VesselCSVCheckpointJournal checkpointJournal, VesselCSVTranslator vesselCSVTranslatorToCiseResult, int groupIndex,
+                                 VesselCSVTranslator.MessageKey messageKey) {
+        // a group delivered before a restart gets its entries filled from the journal
+        return checkpointJournal != null
+                && vesselCSVTranslatorToCiseResult.restoreEntriesFromCheckpoint(groupIndex, messageKey, checkpointJournal);
+    }
+
+    void deliverGroup(VesselCSVCheckpointJournal checkpointJournal, VesselCSVTranslator vesselCSVTranslatorToCiseResult, int groupIndex,
+                              VesselCSVTranslator.MessageKey messageKey, XmlEntityPayload payload) throws Exception {
+        if (conflationQueue != null) {
+            payload = vesselCSVTranslatorToCiseResult.getConflatedMessagePayload(messageKey, payload, conflationQueue);
+            if (payload == null) {
+                // all the positions of the group have been replaced by newer ones, nothing to send
+                if (checkpointJournal != null) {
+                    vesselCSVTranslatorToCiseResult.checkpointEntries(groupIndex, messageKey, checkpointJournal);
+                }
+                return;
+            }
+        }
+        // there should be only 1 entry in the list and that entry we can use to update the results
+        vesselCSVTranslatorToCiseResult.updateEntriesWithMessageResult(messageKey, sendMessage(messageKey, payload));
+        if (checkpointJournal != null) {
+            vesselCSVTranslatorToCiseResult.checkpointEntries(groupIndex, messageKey, checkpointJournal);
+        }
+    }
+
+    void offerToConflation(VesselCSVTranslator vesselCSVTranslatorToCiseResult) {
+        if (conflationQueue != null) {
+            conflationQueue.offer(vesselCSVTranslatorToCiseResult);
+        }
+    }
+
+    void releaseFromConflation(VesselCSVTranslator vesselCSVTranslatorToCiseResult) {
+        if (conflationQueue != null) {
+            List<VesselCSVTranslatorEntry> supersededEntries = conflationQueue.release(vesselCSVTranslatorToCiseResult);
+            if (!supersededEntries.isEmpty()) {
+                resendConflatedPositions(supersededEntries);
+            }
+        }
+    }
+
+    /**
+     * Sends again the conflated positions whose newer position has not been delivered, in groups of their own MessageKey. A failure is
+     * only logged, the positions are then reported as not delivered in the sent details of their file if it has not been completed yet.
+     */
+    private void resendConflatedPositions(List<VesselCSVTranslatorEntry> supersededEntries) {
+        logger.warn(LoggerMessage.of("Sending again {} conflated positions whose newer positions were not delivered", supersededEntries.size()));
+        VesselCSVTranslator supersededPositions = vesselCSVEntriesToCISE(supersededEntries);
+        for (VesselCSVTranslator.MessageKey messageKey : supersededPositions.getMessageKeys()) {
+            try {
+                supersededPositions.updateEntriesWithMessageResult(messageKey, sendMessage(messageKey, supersededPositions.getMessagePayload(messageKey)));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception ex) {
+                logger.error(LoggerMessage.of("Unable to send again the conflated positions of contextId {}. Exception message: {}", messageKey.getContextId(), ex.getMessage()));
+            }
+        }
+    }
+
+    Pair<RegisteredMessage, Acknowledgement> sendMessage(VesselCSVTranslator.MessageKey messageKey, XmlEntityPayload payload) throws Exception {
+        List<Pair<RegisteredMessage, Acknowledgement>> sendResult = vesselDeliver.deliver(
+                messageKey.getReferenceMessageId(),
+                messageKey.getContextId(),
+                messageKey.getRecipientServiceId(),
+                payload);
+        return sendResult.get(0);
+    }
+
+    /**
+     * @return the average latency of the deliveries of each recipient with messages waiting or being sent, in milliseconds, empty if the
+     * delivery lanes are not enabled
+     */
+    Map<String, Long> getDeliveryLaneLatencies() {
+        return deliveryLanes != null ? deliveryLanes.getAverageLatencies() : Collections.emptyMap();
+    }
+
+    /**
+     * @return a description of each delivery lane, empty if the delivery lanes are not enabled
+     */
+    Map<String, String> describeDeliveryLanes() {
+        return deliveryLanes != null ? deliveryLanes.describeLanes() : Collections.emptyMap();
+    }
+
+    void stop() {
+        if (deliveryExecutorService != null) {
+            deliveryExecutorService.shutdownNow();
+        }
+        if (deliveryLanes != null) {
+            deliveryLanes.stop();
+        }
+    }
+}
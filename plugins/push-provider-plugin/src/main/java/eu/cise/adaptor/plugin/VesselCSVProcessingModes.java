@@ -0,0 +1,123 @@
+package eu.cise.adaptor.plugin;
+
+import eu.cise.adaptor.core.common.logging.AdaptorLogger;
+import eu.cise.adaptor.core.common.logging.LogConfig;
+import eu.cise.adaptor.core.common.logging.LoggerMessage;
+import eu.cise.adaptor.plugin.config.PushProviderPluginConfig;
+
+/**
+ * Processing modes of the CSV files enabled in the configuration and actually used.
+ * <p>
+ * The streaming and the columnar modes do not keep the entries of the whole file, so the modes working on them (the pipeline with the
+ * streaming, the parallel translation, the conflation and the splitting) are ignored when one of them is enabled, with a warning.
+ * <p>
+ * The streaming translator and the deliver stage of the pipeline send the groups on their own threads, so the delivery lanes of the
+ * file workers and their messages in flight are ignored when one of them is enabled, with a warning.
+ */
+class VesselCSVProcessingModes {
+
+    private static final AdaptorLogger logger = LogConfig.configureLogging(VesselCSVProcessingModes.class);
+    private final boolean streamingEnabled;
+    private final boolean columnarEnabled;
+    private final boolean pipelineEnabled;
+    private final int parallelTranslationThreads; // 0 when the files are translated sequentially
+    private final boolean conflationEnabled;
+    private final long splitThresholdBytes; // 0 when the files are never split
+    private final boolean partialDeliveryEnabled;
+    private final boolean deliveryLanesEnabled;
+    private final int deliveryMaxInFlight; // 1 when the groups are delivered one at a time
+
+    VesselCSVProcessingModes(PushProviderPluginConfig config) {
+        this.streamingEnabled = config.isCSVStreamingEnabled();
+        this.partialDeliveryEnabled = config.isCSVPartialDeliveryEnabled();
+        if (!partialDeliveryEnabled && streamingEnabled) {
+            logger.warn(LoggerMessage.of("csv-partial-delivery-enabled=false is ignored, csv-streaming-enabled always delivers the valid lines of the files with errors"));
+        }
+        this.columnarEnabled = isModeApplied(config.isCSVColumnarEnabled(), "csv-columnar-enabled", streamingEnabled, "csv-streaming-enabled");
+        this.pipelineEnabled = isModeApplied(config.isCSVPipelineEnabled(), "csv-pipeline-enabled", streamingEnabled, "csv-streaming-enabled");
+        boolean wholeFileModeEnabled = streamingEnabled || config.isCSVColumnarEnabled();
+        this.parallelTranslationThreads = isModeApplied(config.getCSVParallelTranslationThreads() > 0, "csv-parallel-translation-threads",
+                wholeFileModeEnabled, getWholeFileModeKey(config))
+                ? config.getCSVParallelTranslationThreads()
+                : 0;
+        this.conflationEnabled = isModeApplied(config.isCSVConflationEnabled(), "csv-conflation-enabled", wholeFileModeEnabled, getWholeFileModeKey(config));
+        this.splitThresholdBytes = isModeApplied(config.getCSVSplitThresholdBytes() > 0, "csv-split-threshold-bytes",
+                wholeFileModeEnabled, getWholeFileModeKey(config))
+                ? config.getCSVSplitThresholdBytes()
+                : 0L;
+        boolean groupSendingModeEnabled = streamingEnabled || config.isCSVPipelineEnabled();
+        this.deliveryLanesEnabled = isModeApplied(config.isCSVDeliveryLanesEnabled(), "csv-delivery-lanes-enabled", groupSendingModeEnabled,
+                getGroupSendingModeKey(config));
+        this.deliveryMaxInFlight = isModeApplied(config.getCSVDeliveryMaxInFlight() > 1, "csv-delivery-max-in-flight", groupSendingModeEnabled,
+                getGroupSendingModeKey(config))
+                ? config.getCSVDeliveryMaxInFlight()
+                : 1;
+    }
+
+    /**
+     * @param enabled         true if the mode is enabled in the configuration
+     * @param modeKey         configuration key of the mode
+     * @param ignored         true if another enabled mode does not support it
+     * @param ignoringModeKey configuration key of the other mode
+     * @return true if the mode is enabled and used, a warning is logged when it is enabled but ignored
+     */
+    private static boolean isModeApplied(boolean enabled, String modeKey, boolean ignored, String ignoringModeKey) {
+        if (enabled && ignored) {
+            logger.warn(LoggerMessage.of("{} is ignored, it is not supported with {}", modeKey, ignoringModeKey));
+        }
+        return enabled && !ignored;
+    }
+
+    /**
+     * @return the configuration key of the enabled mode that does not keep the entries of the whole file, streaming or columnar
+     */
+    private static String getWholeFileModeKey(PushProviderPluginConfig config) {
+        return config.isCSVStreamingEnabled() ? "csv-streaming-enabled" : "csv-columnar-enabled";
+    }
+
+    /**
+     * @return the configuration key of the enabled mode that sends the groups on its own threads, streaming or pipeline
+     */
+    private static String getGroupSendingModeKey(PushProviderPluginConfig config) {
+        return config.isCSVStreamingEnabled() ? "csv-streaming-enabled" : "csv-pipeline-enabled";
+    }
+
+    boolean isStreamingEnabled() {
+        return streamingEnabled;
+    }
+
+    boolean isColumnarEnabled() {
+        return columnarEnabled;
+    }
+
+    boolean isPipelineEnabled() {
+        return pipelineEnabled;
+    }
+
+    int getParallelTranslationThreads() {
+        return parallelTranslationThreads;
+    }
+
+    boolean isConflationEnabled() {
+        return conflationEnabled;
+    }
+
+    long getSplitThresholdBytes() {
+        return splitThresholdBytes;
+    }
+
+    /**
+     * @return true if the valid lines of the files with errors are delivered, always the case with the streaming
+     */
+    boolean isPartialDeliveryEnabled() {
+        return partialDeliveryEnabled;
+    }
+
+    boolean isDeliveryLanesEnabled() {
+        return deliveryLanesEnabled;
+    }
+
+    int getDeliveryMaxInFlight() {
+        return deliveryMaxInFlight;
+    }
+}
@@ -0,0 +1,23 @@
+package eu.cise.adaptor.plugin.cisecontext;
+
+/**
+ * This Functional Interface declares a function, validateAndTranslateToVessel, that creates a CISE Vessel like {@link VesselBuilder}, but
+ * reports all the violations of the validation rules in its result instead of throwing an exception for the first one.
+ * <p>
+ * An implementation may only validate the data and give the values it parsed, the Vessel being created from them when the payload
+ * is built (see {@link eu.cise.adaptor.plugin.cisecontext.impl.VesselPayloadBuilder#validateVesselData}).
+ */
+@FunctionalInterface
+public interface VesselValidatingBuilder {
+    /**
+     * This function validates the vessel data and may create a CISE Vessel Data Model instance when they are valid.
+     *
+     * @param imoNumberStr         The IMO number of the vessel.
+     * @param mmsiStr              MMSI number as defined by ITU-R M.1371
+     * @param latitude             Latitude position
+     * @param longitude            Longitude position
+     * @param positionTimestampStr Time stamp of the position data, in the format yyyy-MM-dd HH:mm:ss
+     * @return the violations of the rules, or the values parsed and possibly the Vessel data model instance when there is none
+     */
+    VesselValidationResult validateAndTranslateToVessel(String imoNumberStr, String mmsiStr, String latitude, String longitude, String positionTimestampStr);
+}
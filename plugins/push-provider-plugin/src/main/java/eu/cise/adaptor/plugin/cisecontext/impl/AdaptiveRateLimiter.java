@@ -0,0 +1,189 @@
+package eu.cise.adaptor.plugin.cisecontext.impl;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket limiting the rate of the messages handed to the Service Handler of the Generic Adaptor by the
+ * {@link VesselInformationDeliver}, over all the deliveries and for each recipientServiceId. A delivery takes a token of the bucket of its
+ * recipient, then a token of the global bucket, waiting until the buckets refill when they are empty. A bucket holds at most one
+ * second of messages at its current rate.
+ * <p>
+ * The rate of the buckets adapts to the acknowledgements, in the manner of the AIMD congestion control: every SUCCESS acknowledgement
+ * received within the target latency raises the rate so that it grows by the additive increase for each second of deliveries, while a
+ * slower acknowledgement, another acknowledgement code or a failed delivery multiplies it by the decrease factor. The rate stays between
+ * the minimum and the configured maximum, and is decreased at most once per target latency, since the messages already in flight when the
+ * node slows down report the same congestion.
+ */
+public class AdaptiveRateLimiter {
+
+    /**
+     * No limit, the messages are delivered as fast as they are produced
+     */
+    public static final AdaptiveRateLimiter UNLIMITED = new AdaptiveRateLimiter(0, 0, 1, 0L, 0.0, 1.0);
+
+    private final double minRate;
+    private final double recipientMaxRate; // 0 for no limit by recipient
+    private final long targetLatencyNanos;
+    private final double additiveIncrease;
+    private final double decreaseFactor;
+    private final LongSupplier nanoClock;
+    private final TokenBucket globalBucket; // null for no global limit
+    private final Map<String, TokenBucket> recipientBuckets = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxRate             maximum number of messages per second over all the deliveries, the starting rate, 0 for no limit
+     * @param recipientMaxRate    maximum number of messages per second to one recipient, the starting rate, 0 for no limit
+     * @param minRate             minimum number of messages per second the rates are decreased to
+     * @param targetLatencyMillis acknowledgement latency above which the rates are decreased
+     * @param additiveIncrease    messages per second added to the rates for each second of deliveries acknowledged within the target
+     * @param decreaseFactor      factor, between 0 and 1, applied to the rates on a slow or failed delivery
+     */
+    public AdaptiveRateLimiter(int maxRate, int recipientMaxRate, int minRate, long targetLatencyMillis, double additiveIncrease,
+                               double decreaseFactor) {
+        this(maxRate, recipientMaxRate, minRate, targetLatencyMillis, additiveIncrease, decreaseFactor, System::nanoTime);
+    }
+
+    AdaptiveRateLimiter(int maxRate, int recipientMaxRate, int minRate, long targetLatencyMillis, double additiveIncrease,
+                        double decreaseFactor, LongSupplier nanoClock) {
+        this.minRate = Math.max(1, minRate);
+        this.recipientMaxRate = Math.max(0, recipientMaxRate);
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, targetLatencyMillis));
+        this.additiveIncrease = Math.max(0.0, additiveIncrease);
+        this.decreaseFactor = Math.min(1.0, Math.max(0.01, decreaseFactor));
+        this.nanoClock = nanoClock;
+        this.globalBucket = maxRate > 0 ? new TokenBucket(maxRate) : null;
+    }
+
+    /**
+     * @return true if the deliveries are never limited
+     */
+    public boolean isUnlimited() {
+        return globalBucket == null && recipientMaxRate == 0.0;
+    }
+
+    /**
+     * Waits for a token of the bucket of the recipient and of the global bucket
+     *
+     * @param recipientServiceId recipient of the message, null when the message is not delivered to a given recipient
+     * @throws InterruptedException Interrupted while waiting for a token
+     */
+    public void acquire(String recipientServiceId) throws InterruptedException {
+        TokenBucket recipientBucket = getRecipientBucket(recipientServiceId);
+        if (recipientBucket != null) {
+            recipientBucket.take();
+        }
+        if (globalBucket != null) {
+            globalBucket.take();
+        }
+    }
+
+    /**
+     * Adapts the rates of the recipient and the global rate to the result of a delivery
+     *
+     * @param recipientServiceId recipient of the message, null when the message is not delivered to a given recipient
+     * @param latencyNanos       time from the handing of the message to the reception of its acknowledgements
+     * @param success            true if all the acknowledgements of the message were SUCCESS
+     */
+    public void onDelivered(String recipientServiceId, long latencyNanos, boolean success) {
+        boolean congested = !success || latencyNanos > targetLatencyNanos;
+        TokenBucket recipientBucket = getRecipientBucket(recipientServiceId);
+        if (recipientBucket != null) {
+            recipientBucket.adapt(congested);
+        }
+        if (globalBucket != null) {
+            globalBucket.adapt(congested);
+        }
+    }
+
+    /**
+     * @return the current global rate in messages per second, 0 if there is no global limit
+     */
+    public double getRate() {
+        return globalBucket != null ? globalBucket.getRate() : 0.0;
+    }
+
+    /**
+     * @return the current rate of each recipient in messages per second, empty if there is no limit by recipient
+     */
+    public Map<String, Double> getRecipientRates() {
+        Map<String, Double> recipientRates = new TreeMap<>();
+        recipientBuckets.forEach((recipientServiceId, recipientBucket) -> recipientRates.put(recipientServiceId, recipientBucket.getRate()));
+        return recipientRates;
+    }
+
+    /**
+     * @return the time to wait before a token of the bucket of the recipient and of the global bucket are available, 0 if they are
+     */
+    long getWaitNanos(String recipientServiceId) {
+        TokenBucket recipientBucket = getRecipientBucket(recipientServiceId);
+        return Math.max(recipientBucket != null ? recipientBucket.getWaitNanos() : 0L, globalBucket != null ? globalBucket.getWaitNanos() : 0L);
+    }
+
+    private TokenBucket getRecipientBucket(String recipientServiceId) {
+        if (recipientMaxRate == 0.0 || recipientServiceId == null) {
+            return null;
+        }
+        return recipientBuckets.computeIfAbsent(recipientServiceId, recipient -> new TokenBucket(recipientMaxRate));
+    }
+
+    private class TokenBucket {
+        private final double maxRate;
+        private double rate; // messages per second, guarded by this
+        private double tokens;
+        private long refilledAt;
+        private long decreasedAt;
+
+        TokenBucket(double maxRate) {
+            this.maxRate = maxRate;
+            this.rate = maxRate;
+            this.tokens = 1.0;
+            this.refilledAt = nanoClock.getAsLong();
+            this.decreasedAt = refilledAt - targetLatencyNanos;
+        }
+
+        void take() throws InterruptedException {
+            long waitNanos;
+            while ((waitNanos = tryTake()) > 0L) {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+        }
+
+        private synchronized long tryTake() {
+            long waitNanos = getWaitNanos();
+            if (waitNanos == 0L) {
+                tokens -= 1.0;
+            }
+            return waitNanos;
+        }
+
+        synchronized long getWaitNanos() {
+            refill(nanoClock.getAsLong());
+            return tokens >= 1.0 ? 0L : Math.max(1L, (long) Math.ceil((1.0 - tokens) * TimeUnit.SECONDS.toNanos(1L) / rate));
+        }
+
+        synchronized void adapt(boolean congested) {
+            long now = nanoClock.getAsLong();
+            refill(now);
+            if (!congested) {
+                rate = Math.min(maxRate, rate + additiveIncrease / rate);
+            } else if (now - decreasedAt >= targetLatencyNanos) {
+                rate = Math.max(Math.min(minRate, maxRate), rate * decreaseFactor);
+                tokens = Math.min(tokens, Math.max(1.0, rate));
+                decreasedAt = now;
+            }
+        }
+
+        synchronized double getRate() {
+            return rate;
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(Math.max(1.0, rate), tokens + (now - refilledAt) * rate / TimeUnit.SECONDS.toNanos(1L));
+            refilledAt = now;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package eu.cise.adaptor.plugin.cisecontext.impl;
+
+import eu.cise.servicemodel.v1.message.Message;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded cache of the reference messages looked up by the {@link VesselInformationDeliver}, so that the rows and files that reuse the
+ * same referenceMessageId do not query the database of the Generic Adaptor for each message.
+ * <p>
+ * Only the contextId and the serviceId of the sender of a reference message found are kept, for the configured time to live. A
+ * reference message not found is also remembered, for a shorter time, since it may be stored shortly after. When the cache is full, the
+ * least recently used reference is evicted. The lookups answered from the cache and those that queried the database are counted.
+ */
+public class ReferenceMessageCache {
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final long notFoundTtlNanos;
+    private final LongSupplier nanoClock;
+    private final Map<String, CachedReference> references; // in the order of their last use, guarded by this
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param maxEntries         maximum number of reference messages kept, 0 to disable the cache
+     * @param ttlSeconds         time a reference message found is kept
+     * @param notFoundTtlSeconds time a reference message not found is remembered, 0 to always query it again
+     */
+    public ReferenceMessageCache(int maxEntries, long ttlSeconds, long notFoundTtlSeconds) {
+        this(maxEntries, ttlSeconds, notFoundTtlSeconds, System::nanoTime);
+    }
+
+    ReferenceMessageCache(int maxEntries, long ttlSeconds, long notFoundTtlSeconds, LongSupplier nanoClock) {
+        this.maxEntries = Math.max(0, maxEntries);
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(Math.max(0L, ttlSeconds));
+        this.notFoundTtlNanos = TimeUnit.SECONDS.toNanos(Math.max(0L, notFoundTtlSeconds));
+        this.nanoClock = nanoClock;
+        this.references = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedReference> eldest) {
+                return size() > ReferenceMessageCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Gives the contextId and the sender of a reference message, from the cache or from the loader when it is not cached or has expired
+     *
+     * @param referenceMessageId id of the reference message
+     * @param messageLoader      lookup of the message in the database, called without holding the cache
+     * @return the contextId and the serviceId of the sender of the message, empty if the message was not found
+     */
+    public Optional<Pair<String, String>> lookup(String referenceMessageId, Function<String, Optional<Message>> messageLoader) {
+        if (maxEntries > 0 && referenceMessageId != null) {
+            synchronized (this) {
+                CachedReference cachedReference = references.get(referenceMessageId);
+                if (cachedReference != null && nanoClock.getAsLong() - cachedReference.expiresAt < 0L) {
+                    hits.incrementAndGet();
+                    return Optional.ofNullable(cachedReference.reference);
+                }
+            }
+        }
+        misses.incrementAndGet();
+        Optional<Pair<String, String>> reference = messageLoader.apply(referenceMessageId).map(message ->
+                new ImmutablePair<>(message.getContextID(), message.getSender() != null ? message.getSender().getServiceID() : null));
+        long ttl = reference.isPresent() ? ttlNanos : notFoundTtlNanos;
+        if (maxEntries > 0 && referenceMessageId != null && ttl > 0L) {
+            synchronized (this) {
+                references.put(referenceMessageId, new CachedReference(reference.orElse(null), nanoClock.getAsLong() + ttl));
+            }
+        }
+        return reference;
+    }
+
+    /**
+     * @return the number of lookups answered from the cache since the start
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of lookups that queried the database since the start
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of reference messages cached, expired or not
+     */
+    public synchronized int size() {
+        return references.size();
+    }
+
+    private static class CachedReference {
+        private final Pair<String, String> reference; // null for a reference message not found
+        private final long expiresAt;
+
+        CachedReference(Pair<String, String> reference, long expiresAt) {
+            this.reference = reference;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -2,7 +2,10 @@ package eu.cise.adaptor.plugin.cisecontext.impl;
 
 import eu.cise.adaptor.plugin.cisecontext.CISEPayloadBuilder;
 import eu.cise.adaptor.plugin.cisecontext.VesselBuilder;
-import eu.cise.adaptor.plugin.translator.TimeUtils;
+import eu.cise.adaptor.plugin.cisecontext.VesselValidatingBuilder;
+import eu.cise.adaptor.plugin.cisecontext.VesselValidationResult;
+import eu.cise.adaptor.plugin.translator.VesselCSVColumnarBatch;
+import eu.cise.adaptor.plugin.translator.VesselCSVTranslator.MessageKey;
 import eu.cise.adaptor.plugin.translator.VesselCSVTranslatorEntry;
 import eu.cise.adaptor.plugin.translator.exceptions.VesselCSVTranslationException;
 import eu.cise.datamodel.v1.entity.location.Geometry;
@@ -27,17 +30,57 @@ import java.util.List;
  * <li>The building of the CISE payload using multiple instances of CISE Vessel</li>
  * </ul>
  */
-public class VesselPayloadBuilder implements VesselBuilder, CISEPayloadBuilder {
+public class VesselPayloadBuilder implements VesselBuilder, VesselValidatingBuilder, CISEPayloadBuilder {
+
+    public static final String POSITION_TIMESTAMP_PATTERN = "yyyy-MM-dd HH:mm:ss";
+
+    private final VesselDataValidator vesselDataValidator = new VesselDataValidator();
 
 
     /**
-     * Implementation of the Functional Interface  {@link CISEPayloadBuilder}.
+     * Implementation of the Functional Interface  {@link CISEPayloadBuilder}. The Vessels of the entries that only hold the values
+     * parsed by the validation are created here, so they only live as long as the payload of their group.
      *
      * @param entityList List of VesselCSVTranslatorEntry
      * @return The CISE Payload with all the Vessels inside
      */
     public XmlEntityPayload build(List<VesselCSVTranslatorEntry> entityList) {
 
+        XmlEntityPayload resultPayload = createPayload();
+        for (VesselCSVTranslatorEntry currentEntry : entityList) {
+            Vessel vessel = currentEntry.getResultVessel();
+            if (vessel == null) {
+                vessel = buildVessel(currentEntry.getIMONumber(), currentEntry.getMMSI(), currentEntry.getLatitude(), currentEntry.getLongitude(),
+                        currentEntry.getPositionTime());
+                currentEntry.setVesselAttributes(vessel);
+            }
+            resultPayload.getAnies().add(vessel);
+        }
+
+        return resultPayload;
+    }
+
+    /**
+     * Builds the CISE Payload of one group of rows of a {@link VesselCSVColumnarBatch}, creating the Vessels from the columns.
+     *
+     * @param batch      columnar batch of the rows of a file
+     * @param messageKey key of the group of rows
+     * @return The CISE Payload with all the Vessels inside
+     */
+    public XmlEntityPayload build(VesselCSVColumnarBatch batch, MessageKey messageKey) {
+
+        XmlEntityPayload resultPayload = createPayload();
+        int[] rows = batch.getGroupRows(messageKey);
+        for (int row : rows) {
+            Vessel vessel = buildVessel(batch.getIMONumber(row), batch.getMMSI(row), batch.getLatitude(row), batch.getLongitude(row), batch.getPositionTime(row));
+            batch.setVesselAttributes(row, vessel);
+            resultPayload.getAnies().add(vessel);
+        }
+
+        return resultPayload;
+    }
+
+    private XmlEntityPayload createPayload() {
         // create the CISE payload
         XmlEntityPayload resultPayload = new XmlEntityPayload();
         // add the basics
@@ -45,11 +88,6 @@ public class VesselPayloadBuilder implements VesselBuilder, CISEPayloadBuilder {
         resultPayload.setInformationSensitivity(InformationSensitivityType.NON_SPECIFIED);
         resultPayload.setPurpose(PurposeType.NON_SPECIFIED);
         resultPayload.setEnsureEncryption(false);
-
-        for (VesselCSVTranslatorEntry currentEntry : entityList) {
-            resultPayload.getAnies().add(currentEntry.getResultVessel());
-        }
-
         return resultPayload;
     }
 
@@ -66,23 +104,66 @@ public class VesselPayloadBuilder implements VesselBuilder, CISEPayloadBuilder {
      */
     public Vessel translateToVessel(String imoNumberStr, String mmsiStr, String latitude, String longitude, String positionTimestampStr) throws VesselCSVTranslationException {
 
-        // validate imo_number and transform to Long
-        Long imoNumber = validateStringAndTransformToLong(imoNumberStr, 7, "IMO_number");
-        Long mmsiNumber = validateStringAndTransformToLong(mmsiStr, 9, "MMSI");
-        // event type and date converter
-        Vessel vessel = createCISEVessel(imoNumber, mmsiNumber);
-        // validate longitude and latitude values
-        // Latitude must be a number between -90 and 90
-        validateNumericWithinBounds(latitude, -90, 90, "Latitude");
-        //Longitude must a number between -180 and 180
-        validateNumericWithinBounds(longitude, -180, 180, "Longitude");
-        validateLatitudeAndLongitude(latitude, longitude);
-        validatePositionTimestampPresenceWhenCoordinatesProvided(latitude,longitude, positionTimestampStr);
-        // location converter
-        convertLocationToCISE(longitude, latitude, vessel);
-        // created timestamp
-        convertPositionTimeStampToCISE(positionTimestampStr, vessel);
+        VesselValidationResult result = validateAndTranslateToVessel(imoNumberStr, mmsiStr, latitude, longitude, positionTimestampStr);
+        if (!result.isValid()) {
+            throw new VesselCSVTranslationException(result.getViolationsMessage());
+        }
+
+        return result.getVessel();
+    }
+
+    /**
+     * Implementation of Functional Interface {@link VesselValidatingBuilder}: all the rules of the {@link VesselDataValidator} are checked,
+     * and the Vessel is created from the values they parsed when there is no violation.
+     *
+     * @param imoNumberStr         The IMO number of the vessel.
+     * @param mmsiStr              MMSI number as defined by ITU-R M.1371
+     * @param latitude             Latitude position
+     * @param longitude            Longitude position
+     * @param positionTimestampStr Time stamp of the position data, in the format yyyy-MM-dd HH:mm:ss
+     * @return the violations of the rules, or the Vessel data model instance when there is none
+     */
+    public VesselValidationResult validateAndTranslateToVessel(String imoNumberStr, String mmsiStr, String latitude, String longitude, String positionTimestampStr) {
+
+        VesselValidationResult result = vesselDataValidator.validate(imoNumberStr, mmsiStr, latitude, longitude, positionTimestampStr);
+        if (result.isValid()) {
+            result.setVessel(buildVessel(result.getIMONumber(), result.getMMSI(), latitude, longitude, result.getPositionTime()));
+        }
+
+        return result;
+    }
 
+    /**
+     * Validates the vessel data with the same rules as {@link #translateToVessel(String, String, String, String, String)}, without creating
+     * the Vessel.
+     *
+     * @param imoNumberStr         The IMO number of the vessel.
+     * @param mmsiStr              MMSI number as defined by ITU-R M.1371
+     * @param latitude             Latitude position
+     * @param longitude            Longitude position
+     * @param positionTimestampStr Time stamp of the position data, in the format yyyy-MM-dd HH:mm:ss
+     * @return the violations of the rules and the values they parsed
+     */
+    public VesselValidationResult validateVesselData(String imoNumberStr, String mmsiStr, String latitude, String longitude, String positionTimestampStr) {
+        return vesselDataValidator.validate(imoNumberStr, mmsiStr, latitude, longitude, positionTimestampStr);
+    }
+
+    /**
+     * Creates a Vessel from data already validated.
+     *
+     * @param imoNumber    The IMO number of the vessel, null if not provided
+     * @param mmsi         MMSI number, null if not provided
+     * @param latitude     Latitude position, null if not provided
+     * @param longitude    Longitude position, null if not provided
+     * @param positionTime Time of the position, null if not provided
+     * @return Vessel data model instance
+     */
+    public Vessel buildVessel(Long imoNumber, Long mmsi, String latitude, String longitude, XMLGregorianCalendar positionTime) {
+        Vessel vessel = createCISEVessel(imoNumber, mmsi);
+        convertLocationToCISE(longitude, latitude, vessel);
+        if (positionTime != null && !vessel.getLocationRels().isEmpty()) {
+            setPositionTime(positionTime, vessel);
+        }
         return vessel;
     }
 
@@ -111,65 +192,10 @@ public class VesselPayloadBuilder implements VesselBuilder, CISEPayloadBuilder {
     }
 
 
-    private void convertPositionTimeStampToCISE(String positionTimestampStr, Vessel vessel) throws VesselCSVTranslationException {
-        if (!StringUtils.isEmpty(positionTimestampStr) && vessel.getLocationRels().get(0) != null ) {
-            XMLGregorianCalendar createdTime = TimeUtils.calculateXMLGregorianCalendarWithPattern(positionTimestampStr, "yyyy-MM-dd HH:mm:ss");
-
-            Period period = new Period();
-            period.setStartDate(createdTime);
-            period.setStartTime(createdTime);
-            vessel.getLocationRels().get(0).setPeriodOfTime(period);
-        }
-    }
-
-    private Long validateStringAndTransformToLong(String numberString, int noOfDigits, String fieldDescription) throws VesselCSVTranslationException {
-        if (StringUtils.isEmpty(numberString)) {
-            return null;
-        }
-        if (numberString.length() != noOfDigits) {
-            throw new VesselCSVTranslationException(fieldDescription + " does not have correct number of characters. Found: " + numberString.length() + " but expected: " + noOfDigits);
-        }
-        Long result;
-        try {
-            result = Long.valueOf(numberString);
-        } catch (Exception ex) {
-            throw new VesselCSVTranslationException("Unable to construct numeric value for field: " + fieldDescription + " with value: " + numberString);
-        }
-        return result;
-    }
-
-    private void validateNumericWithinBounds(String valueToCheck, double lowerBound, double upperBound, String description) throws VesselCSVTranslationException {
-        if (StringUtils.isEmpty(valueToCheck)) {
-            return;
-        }
-        Double doubleValue = lowerBound - 10; // so that the check fails if it is not parsed
-        try {
-            doubleValue = Double.valueOf(valueToCheck);
-
-        } catch (Exception ex) {
-            throw new VesselCSVTranslationException(description + "  value of " + valueToCheck + " could not be parsed as numeric.");
-        }
-        if (doubleValue < lowerBound || doubleValue > upperBound) {
-            throw new VesselCSVTranslationException(description + "  value of " + valueToCheck + " is not correct. Appropriate bounds: [" + lowerBound + "," + upperBound + "]");
-        }
-    }
-
-    private void validatePositionTimestampPresenceWhenCoordinatesProvided(String latitude, String longitude, String positionTimestamp) throws VesselCSVTranslationException {
-        boolean isLatitudeProvided = !StringUtils.isEmpty(latitude);
-        boolean isLongitudeProvided = !StringUtils.isEmpty(longitude);
-        boolean isPositionTimestampMissing = StringUtils.isEmpty(positionTimestamp);
-
-        if (isLatitudeProvided && isLongitudeProvided && isPositionTimestampMissing) {
-            throw new VesselCSVTranslationException("Position timestamp is missing while Latitude and Longitude are provided.");
-        }
-    }
-
-    private void validateLatitudeAndLongitude(String latitude, String longitude) throws VesselCSVTranslationException {
-        boolean isLatitudeEmpty = StringUtils.isEmpty(latitude);
-        boolean isLongitudeEmpty = StringUtils.isEmpty(longitude);
-
-        if (isLatitudeEmpty != isLongitudeEmpty) {
-            throw new VesselCSVTranslationException("Both Latitude and Longitude must be provided or both must be omitted.");
-        }
+    private void setPositionTime(XMLGregorianCalendar positionTime, Vessel vessel) {
+        Period period = new Period();
+        period.setStartDate(positionTime);
+        period.setStartTime(positionTime);
+        vessel.getLocationRels().get(0).setPeriodOfTime(period);
     }
 }
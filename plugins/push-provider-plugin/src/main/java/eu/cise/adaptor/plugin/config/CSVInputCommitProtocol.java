@@ -0,0 +1,39 @@
+package eu.cise.adaptor.plugin.config;
+
+/**
+ * Protocol followed by the writers of the CSV input directory to signal that a file is complete and can be processed
+ */
+public enum CSVInputCommitProtocol {
+
+    /**
+     * No protocol: a file is complete when its size did not change between two checks
+     */
+    SIZE("size"),
+    /**
+     * The file is written as *.csv.part and renamed to *.csv once complete, every *.csv file is processed immediately
+     */
+    RENAME("rename"),
+    /**
+     * The file is complete once the marker file *.csv.done has been created next to it, the marker is deleted with the file
+     */
+    MARKER("marker");
+
+    private final String value;
+
+    CSVInputCommitProtocol(String value) {
+        this.value = value;
+    }
+
+    public String value() {
+        return value;
+    }
+
+    public static CSVInputCommitProtocol fromValue(String value) {
+        for (CSVInputCommitProtocol protocol : values()) {
+            if (protocol.value.equalsIgnoreCase(value)) {
+                return protocol;
+            }
+        }
+        throw new IllegalArgumentException("Unknown csv-input-commit-protocol: " + value + ". Expected size, rename or marker");
+    }
+}
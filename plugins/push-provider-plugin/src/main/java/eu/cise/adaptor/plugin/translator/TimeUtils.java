@@ -2,12 +2,13 @@ package eu.cise.adaptor.plugin.translator;
 
 import eu.cise.adaptor.plugin.translator.exceptions.VesselCSVTranslationException;
 
-import javax.xml.datatype.DatatypeConfigurationException;
 import javax.xml.datatype.DatatypeConstants;
-import javax.xml.datatype.DatatypeFactory;
 import javax.xml.datatype.XMLGregorianCalendar;
+import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.Date;
 import java.util.GregorianCalendar;
@@ -15,7 +16,15 @@ import java.util.TimeZone;
 
 public class TimeUtils {
 
+    /**
+     * Parses the time, the local time given being taken as UTC. The timestamps with the {@code yyyy-MM-dd HH:mm:ss} pattern are
+     * converted by the {@link TimestampCodec}, the other ones by a SimpleDateFormat
+     */
     public static XMLGregorianCalendar calculateXMLGregorianCalendarWithPattern(String dayTimeString, String pattern) throws VesselCSVTranslationException {
+        TimestampCodec.CachedTimestamp timestamp = parseFixedPattern(dayTimeString, pattern);
+        if (timestamp != null) {
+            return timestamp.newCalendar();
+        }
 
         XMLGregorianCalendar result = null;
         try {
@@ -35,12 +44,80 @@ public class TimeUtils {
         return result;
     }
 
-    private static XMLGregorianCalendar zonedDateTimeToGregorianCalendar(ZonedDateTime zonedDateTime) throws DatatypeConfigurationException {
+    /**
+     * Parses the time like {@link #calculateXMLGregorianCalendarWithPattern(String, String)}, without throwing an exception when the text
+     * cannot be parsed
+     *
+     * @return the time, null if the text cannot be parsed with the pattern
+     */
+    public static XMLGregorianCalendar parseXMLGregorianCalendarWithPattern(String dayTimeString, String pattern) {
+        TimestampCodec.CachedTimestamp timestamp = parseFixedPattern(dayTimeString, pattern);
+        if (timestamp != null) {
+            return timestamp.newCalendar();
+        }
+        if (dayTimeString == null) {
+            return null;
+        }
+
+        Date givenDateAndTime = new SimpleDateFormat(pattern).parse(dayTimeString, new ParsePosition(0));
+        if (givenDateAndTime == null) {
+            return null;
+        }
+        ZonedDateTime setTime = ZonedDateTime.ofInstant(givenDateAndTime.toInstant(), ZoneId.systemDefault())
+                .withNano(0)
+                .withZoneSameLocal(ZoneId.of("Z"));
+        return zonedDateTimeToGregorianCalendar(setTime);
+    }
+
+    /**
+     * Parses the time like {@link #calculateXMLGregorianCalendarWithPattern(String, String)}, the local time given being taken as UTC
+     *
+     * @return the time in seconds since the epoch
+     */
+    public static long calculateEpochSecondsWithPattern(String dayTimeString, String pattern) throws VesselCSVTranslationException {
+        TimestampCodec.CachedTimestamp timestamp = parseFixedPattern(dayTimeString, pattern);
+        if (timestamp != null) {
+            return timestamp.getEpochSeconds();
+        }
+        try {
+            SimpleDateFormat dtf = new SimpleDateFormat(pattern);
+            Date givenDateAndTime = dtf.parse(dayTimeString);
+
+            return ZonedDateTime.ofInstant(givenDateAndTime.toInstant(), ZoneId.systemDefault())
+                    .withZoneSameLocal(ZoneId.of("Z"))
+                    .toEpochSecond();
+        } catch (Exception ex) {
+            throw new VesselCSVTranslationException("Unable to calculate time object from given string: " + dayTimeString, ex);
+        }
+    }
+
+    /**
+     * @param epochSeconds time in seconds since the epoch
+     * @return the same XMLGregorianCalendar as {@link #calculateXMLGregorianCalendarWithPattern(String, String)} for this time
+     */
+    public static XMLGregorianCalendar epochSecondsToXMLGregorianCalendar(long epochSeconds) {
+        return TimestampCodec.toXMLGregorianCalendar(epochSeconds);
+    }
+
+    /**
+     * @param calendar UTC time, as given by the methods of this class
+     * @return the time in seconds since the epoch
+     */
+    public static long xmlGregorianCalendarToEpochSeconds(XMLGregorianCalendar calendar) {
+        return LocalDateTime.of(calendar.getYear(), calendar.getMonth(), calendar.getDay(), calendar.getHour(), calendar.getMinute(), calendar.getSecond())
+                .toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static TimestampCodec.CachedTimestamp parseFixedPattern(String dayTimeString, String pattern) {
+        return dayTimeString != null && TimestampCodec.FIXED_PATTERN.equals(pattern) ? TimestampCodec.parse(dayTimeString) : null;
+    }
+
+    private static XMLGregorianCalendar zonedDateTimeToGregorianCalendar(ZonedDateTime zonedDateTime) {
         GregorianCalendar gregCal = new GregorianCalendar();
         gregCal.setTime(Date.from(zonedDateTime.toInstant()));
         gregCal.setTimeZone(TimeZone.getTimeZone(ZoneId.of("Z")));
         XMLGregorianCalendar result = null;
-        result = DatatypeFactory.newInstance()
+        result = TimestampCodec.getDatatypeFactory()
                 .newXMLGregorianCalendar(gregCal);
         result.setMillisecond(DatatypeConstants.FIELD_UNDEFINED);
 
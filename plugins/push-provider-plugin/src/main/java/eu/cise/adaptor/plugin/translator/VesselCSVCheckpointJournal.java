@@ -0,0 +1,278 @@
+package eu.cise.adaptor.plugin.translator;
+
+import eu.cise.adaptor.core.common.logging.AdaptorLogger;
+import eu.cise.adaptor.core.common.logging.LogConfig;
+import eu.cise.adaptor.core.common.logging.LoggerMessage;
+import eu.cise.adaptor.plugin.translator.VesselCSVTranslator.MessageKey;
+import eu.cise.servicemodel.v1.message.AcknowledgementType;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Append-only journal of the groups of a CSV file that have already been delivered.
+ * <p>
+ * Every delivered {@link MessageKey} group is appended, and forced to the disk, as one line with the position of the group in the delivery
+ * order, its first line number, its number of lines, its key and the generated messageId, contextId and acknowledgement. When the adaptor
+ * stops while a file is being delivered, the file is still in the input directory at the next start: the groups found in its journal are
+ * not sent again and their entries are filled from the journal, so the sent details file is complete.
+ * <p>
+ * The journal belongs to one version of the input file, identified by its name, size and last modification time, and is discarded when
+ * they do not match. A line left incomplete by a crash is ignored and overwritten. A group delivered but not yet journaled when the
+ * adaptor stopped is sent again.
+ */
+public class VesselCSVCheckpointJournal implements Closeable {
+
+    private static final AdaptorLogger logger = LogConfig.configureLogging(VesselCSVCheckpointJournal.class);
+    private static final String HEADER_MARKER = "#VesselCSVCheckpointJournal";
+    private static final String NULL_FIELD = "\\N";
+    private static final int RECORD_FIELDS = 10; // position, first line, lines, key and delivery result of the group
+
+    private final File journalFile;
+    private final FileChannel journalChannel;
+    private final Map<Integer, String[]> deliveredGroups;
+
+    private VesselCSVCheckpointJournal(File journalFile, FileChannel journalChannel, Map<Integer, String[]> deliveredGroups) {
+        this.journalFile = journalFile;
+        this.journalChannel = journalChannel;
+        this.deliveredGroups = deliveredGroups;
+    }
+
+    /**
+     * Opens the journal of the input file, loading the groups already delivered when the journal belongs to the same version of the file.
+     *
+     * @param journalFile journal file, created if it does not exist
+     * @param inputFile   CSV file being delivered
+     * @return the opened journal
+     * @throws IOException In case of IO Problem during the reading or the writing of the journal
+     */
+    public static VesselCSVCheckpointJournal open(File journalFile, File inputFile) throws IOException {
+        String header = HEADER_MARKER + "\t" + escape(inputFile.getName()) + "\t" + inputFile.length() + "\t" + inputFile.lastModified() + "\n";
+        Map<Integer, String[]> deliveredGroups = new HashMap<>();
+        long validLength = 0L;
+
+        if (journalFile.exists()) {
+            String content = new String(Files.readAllBytes(journalFile.toPath()), StandardCharsets.UTF_8);
+            if (content.startsWith(header)) {
+                validLength = header.getBytes(StandardCharsets.UTF_8).length;
+                int lineStart = header.length();
+                int lineEnd;
+                // only the lines terminated by '\n' are complete, the last one may have been cut by a crash
+                while ((lineEnd = content.indexOf('\n', lineStart)) >= 0) {
+                    String[] fields = split(content.substring(lineStart, lineEnd));
+                    if (fields.length != RECORD_FIELDS || !fields[0].chars().allMatch(Character::isDigit)) {
+                        break;
+                    }
+                    deliveredGroups.put(Integer.parseInt(fields[0]), fields);
+                    validLength += content.substring(lineStart, lineEnd + 1).getBytes(StandardCharsets.UTF_8).length;
+                    lineStart = lineEnd + 1;
+                }
+            } else {
+                logger.warn(LoggerMessage.of("Discarding checkpoint journal {} that does not match the input file {}", journalFile.getAbsolutePath(), inputFile.getAbsolutePath()));
+            }
+        }
+
+        FileChannel journalChannel = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            journalChannel.truncate(validLength);
+            journalChannel.position(validLength);
+            if (validLength == 0L) {
+                write(journalChannel, header);
+            }
+        } catch (IOException ex) {
+            journalChannel.close();
+            throw ex;
+        }
+        if (!deliveredGroups.isEmpty()) {
+            logger.info(LoggerMessage.of("Resuming {} from checkpoint journal: {} groups already delivered", inputFile.getAbsolutePath(), deliveredGroups.size()));
+        }
+        return new VesselCSVCheckpointJournal(journalFile, journalChannel, deliveredGroups);
+    }
+
+    /**
+     * @return number of delivered groups found in the journal when it was opened
+     */
+    public int getRecoveredGroups() {
+        return deliveredGroups.size();
+    }
+
+    /**
+     * Fills the entries of a group with the delivery result found in the journal. The group must be at the same position, start at
+     * the same line, have the same number of lines and the same key as the journaled group.
+     *
+     * @param groupIndex position of the group in the delivery order, starting from 0
+     * @param messageKey key of the group
+     * @param entries    entries of the group
+     * @return true if the group was already delivered and must not be sent again
+     */
+    boolean restore(int groupIndex, MessageKey messageKey, List<VesselCSVTranslatorEntry> entries) {
+        String[] result = findDeliveryResult(groupIndex, messageKey, entries.get(0).getLineNumber(), entries.size());
+        if (result == null) {
+            return false;
+        }
+        if (VesselCSVTranslator.conflatedAckStatus.equals(result[2])) {
+            entries.forEach(VesselCSVTranslatorEntry::markConflated); // all the positions of the group were replaced, it was not sent
+            return true;
+        }
+        for (VesselCSVTranslatorEntry entry : entries) {
+            entry.setGeneratedMessageId(result[0]);
+            entry.setGeneratedContextId(result[1]);
+            entry.setGeneratedAckCode(result[2] != null ? AcknowledgementType.fromValue(result[2]) : null);
+            entry.setGeneratedAckDetail(result[3]);
+        }
+        return true;
+    }
+
+    /**
+     * Finds the delivery result of a journaled group. The group must be at the same position, start at the same line, have the same
+     * number of lines and the same key as the journaled group.
+     *
+     * @param groupIndex      position of the group in the delivery order, starting from 0
+     * @param messageKey      key of the group
+     * @param firstLineNumber number of the first line of the group
+     * @param lines           number of lines of the group
+     * @return the generated messageId, contextId, acknowledgement code and detail, null if the group was not delivered
+     */
+    String[] findDeliveryResult(int groupIndex, MessageKey messageKey, int firstLineNumber, int lines) {
+        String[] fields = deliveredGroups.get(groupIndex);
+        if (fields == null) {
+            return null;
+        }
+        List<String> groupFields = groupFields(groupIndex, messageKey, firstLineNumber, lines);
+        for (int i = 0; i < groupFields.size(); i++) {
+            if (!Objects.equals(groupFields.get(i), fields[i])) {
+                logger.warn(LoggerMessage.of("Checkpoint journal {} does not match the group {}, it will be delivered again", journalFile.getAbsolutePath(), groupIndex));
+                return null;
+            }
+        }
+        return Arrays.copyOfRange(fields, groupFields.size(), fields.length);
+    }
+
+    /**
+     * Appends a delivered group, with the delivery result set on its entries, and forces it to the disk. A group whose entries are all
+     * conflated is recorded as such, it is not sent after a restart either. Can be called by several delivery threads
+     *
+     * @param groupIndex position of the group in the delivery order, starting from 0
+     * @param messageKey key of the group
+     * @param entries    entries of the group, updated with the delivery result
+     * @throws IOException In case of IO Problem during the writing of the journal
+     */
+    void record(int groupIndex, MessageKey messageKey, List<VesselCSVTranslatorEntry> entries) throws IOException {
+        VesselCSVTranslatorEntry firstEntry = entries.get(0);
+        if (entries.stream().allMatch(VesselCSVTranslatorEntry::isConflated)) {
+            append(groupIndex, messageKey, firstEntry.getLineNumber(), entries.size(), null, null, VesselCSVTranslator.conflatedAckStatus, null);
+            return;
+        }
+        record(groupIndex, messageKey, firstEntry.getLineNumber(), entries.size(), firstEntry.getGeneratedMessageId(),
+                firstEntry.getGeneratedContextId(), firstEntry.getGeneratedAckCode(), firstEntry.getGeneratedAckDetail());
+    }
+
+    /**
+     * Appends a delivered group and its delivery result, and forces it to the disk. Can be called by several delivery threads
+     *
+     * @param groupIndex      position of the group in the delivery order, starting from 0
+     * @param messageKey      key of the group
+     * @param firstLineNumber number of the first line of the group
+     * @param lines           number of lines of the group
+     * @throws IOException In case of IO Problem during the writing of the journal
+     */
+    synchronized void record(int groupIndex, MessageKey messageKey, int firstLineNumber, int lines, String generatedMessageId,
+                             String generatedContextId, AcknowledgementType generatedAckCode, String generatedAckDetail) throws IOException {
+        append(groupIndex, messageKey, firstLineNumber, lines, generatedMessageId, generatedContextId,
+                generatedAckCode != null ? generatedAckCode.value() : null, generatedAckDetail);
+    }
+
+    private synchronized void append(int groupIndex, MessageKey messageKey, int firstLineNumber, int lines, String generatedMessageId,
+                                     String generatedContextId, String ackStatus, String generatedAckDetail) throws IOException {
+        List<String> fields = groupFields(groupIndex, messageKey, firstLineNumber, lines);
+        fields.add(generatedMessageId);
+        fields.add(generatedContextId);
+        fields.add(ackStatus);
+        fields.add(generatedAckDetail);
+
+        StringBuilder line = new StringBuilder();
+        for (String field : fields) {
+            if (line.length() > 0) {
+                line.append('\t');
+            }
+            line.append(field != null ? escape(field) : NULL_FIELD);
+        }
+        write(journalChannel, line.append('\n').toString());
+        journalChannel.force(false);
+    }
+
+    /**
+     * Deletes the journal, once the input file has left the input directory
+     */
+    public void delete() {
+        try {
+            Files.deleteIfExists(journalFile.toPath());
+        } catch (IOException ex) {
+            logger.error(LoggerMessage.of("Unable to delete checkpoint journal {}. Exception message: {}", journalFile.getAbsolutePath(), ex.getMessage()));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        journalChannel.close();
+    }
+
+    private static List<String> groupFields(int groupIndex, MessageKey messageKey, int firstLineNumber, int lines) {
+        List<String> fields = new ArrayList<>();
+        fields.add(String.valueOf(groupIndex));
+        fields.add(String.valueOf(firstLineNumber));
+        fields.add(String.valueOf(lines));
+        fields.add(messageKey.getContextId());
+        fields.add(messageKey.getReferenceMessageId());
+        fields.add(messageKey.getRecipientServiceId());
+        return fields;
+    }
+
+    private static void write(FileChannel journalChannel, String text) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            journalChannel.write(buffer);
+        }
+    }
+
+    private static String escape(String field) {
+        return field.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String[] split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean nullField = false;
+        for (int i = 0; i < line.length(); i++) {
+            char current = line.charAt(i);
+            if (current == '\t') {
+                fields.add(nullField ? null : field.toString());
+                field.setLength(0);
+                nullField = false;
+            } else if (current == '\\' && i + 1 < line.length()) {
+                char escaped = line.charAt(++i);
+                if (escaped == 'N') {
+                    nullField = true;
+                } else {
+                    field.append(escaped == 't' ? '\t' : escaped == 'n' ? '\n' : escaped == 'r' ? '\r' : escaped);
+                }
+            } else {
+                field.append(current);
+            }
+        }
+        fields.add(nullField ? null : field.toString());
+        return fields.toArray(new String[0]);
+    }
+}
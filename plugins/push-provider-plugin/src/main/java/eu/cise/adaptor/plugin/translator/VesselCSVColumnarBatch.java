@@ -0,0 +1,326 @@
+package eu.cise.adaptor.plugin.translator;
+
+import eu.cise.adaptor.plugin.cisecontext.VesselValidationResult;
+import eu.cise.adaptor.plugin.cisecontext.impl.VesselPayloadBuilder;
+import eu.cise.adaptor.plugin.translator.VesselCSVTranslator.MessageKey;
+import eu.cise.datamodel.v1.entity.vessel.Vessel;
+import eu.cise.servicemodel.v1.message.AcknowledgementType;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.xml.datatype.XMLGregorianCalendar;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact holder of the parsed lines of a CSV file, alternative to one {@link VesselCSVTranslatorEntry} per line. The values of the
+ * lines are kept in primitive columns, one slot per line:
+ * <ul>
+ * <li>the IMO and MMSI numbers as long</li>
+ * <li>the latitude and longitude as double, with the original text of the values the double does not render back (e.g. "22" or
+ * "43.400000")</li>
+ * <li>the position timestamp as seconds since the epoch</li>
+ * <li>the {@link MessageKey} (recipientServiceId, contextId, referenceMessageId) as the int code of the key in the dictionary of
+ * the groups of the file, which also keeps the delivery result of each group</li>
+ * </ul>
+ * A line takes a few dozen bytes instead of the Strings, the Vessel and the delivery details of an entry. The Vessels are only created
+ * when the payload of a group is built, and the original text of the lines is read again from the file when the reports are written.
+ * The lines with errors, which are rare, are still kept as {@link VesselCSVTranslatorEntry} with their translation error.
+ * <p>
+ * The optional name, callSign and flag of the vessels are only kept, as Strings, for the files that have these columns.
+ * <p>
+ * The latitude and longitude are written in the payload as they are written in the file, like the entries do. The text is only kept, in
+ * a column allocated for the first such value, when the plain decimal representation of the parsed value differs from it.
+ */
+public class VesselCSVColumnarBatch {
+
+    private static final long NO_NUMBER = Long.MIN_VALUE;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final VesselPayloadBuilder vesselPayloadBuilder;
+    private int rowCount;
+    private int[] lineNumbers = new int[INITIAL_CAPACITY];
+    private long[] imoNumbers = new long[INITIAL_CAPACITY];
+    private long[] mmsiNumbers = new long[INITIAL_CAPACITY];
+    private double[] latitudes = new double[INITIAL_CAPACITY];
+    private double[] longitudes = new double[INITIAL_CAPACITY];
+    private long[] positionTimes = new long[INITIAL_CAPACITY];
+    private int[] rowCodes = new int[INITIAL_CAPACITY]; // code of the group of the line, or -1 - index of the error entry
+    private String[][] vesselAttributes; // name, callSign and flag of each line, null if the file has none of these columns
+    private String[][] coordinateTexts; // latitude and longitude text of the lines that do not render back from the double, null if none
+    private final List<VesselCSVTranslatorEntry> errorEntries = new ArrayList<>();
+    private final Map<MessageKey, Integer> groupCodes = new HashMap<>();
+    private final List<Group> groups = new ArrayList<>();
+
+    public VesselCSVColumnarBatch(VesselPayloadBuilder vesselPayloadBuilder) {
+        this.vesselPayloadBuilder = vesselPayloadBuilder;
+    }
+
+    /**
+     * Validates the values of a line, with the rules of the {@link VesselPayloadBuilder}, and adds them to the columns
+     *
+     * @param lineNumber number of the line in the file
+     * @param messageKey key of the group of the line
+     * @param vesselAttributes name, callSign and flag of the vessel, null if the file has none of these columns
+     * @return false in case data are not complaint to build a Vessel Instance, the line is not added
+     */
+    public boolean addRow(int lineNumber, String imoNumberStr, String mmsiStr, String latitude, String longitude, String positionTimestampStr,
+                          MessageKey messageKey, String[] vesselAttributes) {
+        VesselValidationResult validationResult = vesselPayloadBuilder.validateVesselData(imoNumberStr, mmsiStr, latitude, longitude, positionTimestampStr);
+        if (!validationResult.isValid()) {
+            return false;
+        }
+        boolean positionProvided = !StringUtils.isEmpty(latitude) && !StringUtils.isEmpty(longitude);
+        long positionTime = positionProvided && validationResult.getPositionTime() != null
+                ? TimeUtils.xmlGregorianCalendarToEpochSeconds(validationResult.getPositionTime())
+                : NO_NUMBER;
+
+        int row = nextRow(lineNumber);
+        imoNumbers[row] = validationResult.getIMONumber() == null ? NO_NUMBER : validationResult.getIMONumber();
+        mmsiNumbers[row] = validationResult.getMMSI() == null ? NO_NUMBER : validationResult.getMMSI();
+        latitudes[row] = positionProvided ? Double.parseDouble(latitude) : Double.NaN;
+        longitudes[row] = positionProvided ? Double.parseDouble(longitude) : Double.NaN;
+        if (positionProvided && (!latitude.equals(toText(latitudes[row])) || !longitude.equals(toText(longitudes[row])))) {
+            setCoordinateTexts(row, latitude, longitude);
+        }
+        positionTimes[row] = positionTime;
+        if (vesselAttributes != null) {
+            setVesselAttributes(row, vesselAttributes);
+        }
+
+        Integer groupCode = groupCodes.get(messageKey);
+        if (groupCode == null) {
+            groupCode = groups.size();
+            groupCodes.put(messageKey, groupCode);
+            groups.add(new Group(messageKey));
+        }
+        rowCodes[row] = groupCode;
+        groups.get(groupCode).add(row);
+        return true;
+    }
+
+    /**
+     * Adds a line with errors
+     *
+     * @param errorEntry entry of the line, with its translation error
+     */
+    public void addErrorRow(VesselCSVTranslatorEntry errorEntry) {
+        int row = nextRow(errorEntry.getLineNumber());
+        rowCodes[row] = -1 - errorEntries.size();
+        errorEntries.add(errorEntry);
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getLineNumber(int row) {
+        return lineNumbers[row];
+    }
+
+    /**
+     * @return the entry of the line with errors, null if the line is valid
+     */
+    public VesselCSVTranslatorEntry getErrorEntry(int row) {
+        return rowCodes[row] < 0 ? errorEntries.get(-1 - rowCodes[row]) : null;
+    }
+
+    public List<VesselCSVTranslatorEntry> getErrorEntries() {
+        return errorEntries;
+    }
+
+    public Long getIMONumber(int row) {
+        return imoNumbers[row] != NO_NUMBER ? imoNumbers[row] : null;
+    }
+
+    public Long getMMSI(int row) {
+        return mmsiNumbers[row] != NO_NUMBER ? mmsiNumbers[row] : null;
+    }
+
+    public String getLatitude(int row) {
+        if (coordinateTexts != null && coordinateTexts[row] != null) {
+            return coordinateTexts[row][0];
+        }
+        return Double.isNaN(latitudes[row]) ? null : toText(latitudes[row]);
+    }
+
+    public String getLongitude(int row) {
+        if (coordinateTexts != null && coordinateTexts[row] != null) {
+            return coordinateTexts[row][1];
+        }
+        return Double.isNaN(longitudes[row]) ? null : toText(longitudes[row]);
+    }
+
+    public XMLGregorianCalendar getPositionTime(int row) {
+        return positionTimes[row] != NO_NUMBER ? TimeUtils.epochSecondsToXMLGregorianCalendar(positionTimes[row]) : null;
+    }
+
+    /**
+     * @return the keys of the groups of valid lines, in the order they appear in the file
+     */
+    public List<MessageKey> getMessageKeys() {
+        List<MessageKey> messageKeys = new ArrayList<>(groups.size());
+        groups.forEach(group -> messageKeys.add(group.messageKey));
+        return messageKeys;
+    }
+
+    /**
+     * @return the rows of the lines of a group, in the order they appear in the file
+     */
+    public int[] getGroupRows(MessageKey messageKey) {
+        Group group = getGroup(messageKey);
+        return Arrays.copyOf(group.rows, group.size);
+    }
+
+    /**
+     * Replaces the groups larger than the limits of the messages by their parts, in the same place of the delivery order
+     *
+     * @param messageSplitter limits of the messages
+     */
+    void splitGroups(VesselCSVMessageSplitter messageSplitter) {
+        List<Group> splitGroups = new ArrayList<>(groups.size());
+        groupCodes.clear();
+        for (Group group : groups) {
+            Group part = null;
+            long partBytes = 0L;
+            for (int i = 0; i < group.size; i++) {
+                int row = group.rows[i];
+                boolean position = !Double.isNaN(latitudes[row]);
+                long vesselBytes = VesselCSVMessageSplitter.estimateVesselBytes(imoNumbers[row] != NO_NUMBER, mmsiNumbers[row] != NO_NUMBER, position,
+                        positionTimes[row] != NO_NUMBER, vesselAttributes != null ? vesselAttributes[row] : null);
+                if (part == null || messageSplitter.isFull(part.size, partBytes, vesselBytes)) {
+                    part = new Group(group.messageKey.withPart(part == null ? 0 : part.messageKey.getPart() + 1));
+                    groupCodes.put(part.messageKey, splitGroups.size());
+                    splitGroups.add(part);
+                    partBytes = 0L;
+                }
+                rowCodes[row] = splitGroups.size() - 1;
+                part.add(row);
+                partBytes += vesselBytes;
+            }
+        }
+        groups.clear();
+        groups.addAll(splitGroups);
+    }
+
+    /**
+     * Sets the delivery result of all the lines of a group
+     */
+    public void setDeliveryResult(MessageKey messageKey, String generatedMessageId, String generatedContextId, AcknowledgementType generatedAckCode,
+                                  String generatedAckDetail) {
+        Group group = getGroup(messageKey);
+        group.generatedMessageId = generatedMessageId;
+        group.generatedContextId = generatedContextId;
+        group.generatedAckCode = generatedAckCode;
+        group.generatedAckDetail = generatedAckDetail;
+    }
+
+    /**
+     * Sets the delivery result of a group found in the checkpoint journal
+     *
+     * @return true if the group was already delivered and must not be sent again
+     */
+    boolean restore(int groupIndex, MessageKey messageKey, VesselCSVCheckpointJournal checkpointJournal) {
+        Group group = getGroup(messageKey);
+        String[] result = checkpointJournal.findDeliveryResult(groupIndex, messageKey, lineNumbers[group.rows[0]], group.size);
+        if (result == null) {
+            return false;
+        }
+        setDeliveryResult(messageKey, result[0], result[1], result[2] != null ? AcknowledgementType.fromValue(result[2]) : null, result[3]);
+        return true;
+    }
+
+    /**
+     * Appends the delivery result of a group to the checkpoint journal
+     */
+    void record(int groupIndex, MessageKey messageKey, VesselCSVCheckpointJournal checkpointJournal) throws IOException {
+        Group group = getGroup(messageKey);
+        checkpointJournal.record(groupIndex, messageKey, lineNumbers[group.rows[0]], group.size, group.generatedMessageId, group.generatedContextId,
+                group.generatedAckCode, group.generatedAckDetail);
+    }
+
+    /**
+     * Appends the delivery result of the group of a valid line, in the format of the sent details file
+     */
+    void appendDeliveryResult(StringBuilder result, int row) {
+        Group group = groups.get(rowCodes[row]);
+        VesselCSVTranslator.appendDeliveryResult(result, group.generatedMessageId, group.generatedContextId, group.generatedAckCode, group.generatedAckDetail);
+    }
+
+    private void setVesselAttributes(int row, String[] rowVesselAttributes) {
+        if (vesselAttributes == null) {
+            vesselAttributes = new String[lineNumbers.length][];
+        }
+        vesselAttributes[row] = rowVesselAttributes;
+    }
+
+    private void setCoordinateTexts(int row, String latitude, String longitude) {
+        if (coordinateTexts == null) {
+            coordinateTexts = new String[lineNumbers.length][];
+        }
+        coordinateTexts[row] = new String[]{latitude, longitude};
+    }
+
+    private static String toText(double coordinate) {
+        return BigDecimal.valueOf(coordinate).toPlainString();
+    }
+
+    /**
+     * Sets on the Vessel of the line its optional attributes, if the file has the columns
+     */
+    public void setVesselAttributes(int row, Vessel vessel) {
+        if (vesselAttributes != null && vesselAttributes[row] != null) {
+            VesselCSVColumnMapping.setVesselAttributes(vessel, vesselAttributes[row][0], vesselAttributes[row][1], vesselAttributes[row][2]);
+        }
+    }
+
+    private Group getGroup(MessageKey messageKey) {
+        return groups.get(groupCodes.get(messageKey));
+    }
+
+    private int nextRow(int lineNumber) {
+        if (rowCount == lineNumbers.length) {
+            int capacity = rowCount * 2;
+            lineNumbers = Arrays.copyOf(lineNumbers, capacity);
+            imoNumbers = Arrays.copyOf(imoNumbers, capacity);
+            mmsiNumbers = Arrays.copyOf(mmsiNumbers, capacity);
+            latitudes = Arrays.copyOf(latitudes, capacity);
+            longitudes = Arrays.copyOf(longitudes, capacity);
+            positionTimes = Arrays.copyOf(positionTimes, capacity);
+            rowCodes = Arrays.copyOf(rowCodes, capacity);
+            if (vesselAttributes != null) {
+                vesselAttributes = Arrays.copyOf(vesselAttributes, capacity);
+            }
+            if (coordinateTexts != null) {
+                coordinateTexts = Arrays.copyOf(coordinateTexts, capacity);
+            }
+        }
+        lineNumbers[rowCount] = lineNumber;
+        return rowCount++;
+    }
+
+    private static class Group {
+        private final MessageKey messageKey;
+        private int[] rows = new int[16];
+        private int size;
+        private String generatedMessageId;
+        private String generatedContextId;
+        private AcknowledgementType generatedAckCode;
+        private String generatedAckDetail;
+
+        Group(MessageKey messageKey) {
+            this.messageKey = messageKey;
+        }
+
+        void add(int row) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            rows[size++] = row;
+        }
+    }
+}
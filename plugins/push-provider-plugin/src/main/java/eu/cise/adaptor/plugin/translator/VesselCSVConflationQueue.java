@@ -0,0 +1,187 @@
+package eu.cise.adaptor.plugin.translator;
+
+import eu.cise.servicemodel.v1.message.AcknowledgementType;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Conflation of the positions waiting for delivery: for each vessel, identified by its IMO number (or its MMSI when the IMO number is
+ * missing), and each recipient, only the newest position of the translated files not yet delivered is sent.
+ * <p>
+ * The positions of a file are offered once it has been translated and released once it has been completed. When a group is about to be
+ * delivered, its positions replaced by a newer position of the same vessel from another file waiting for delivery are marked as
+ * conflated and left out of its payload. The positions of a file never replace each other, the chunks of a split file being the same
+ * file, so nothing is conflated while the files are delivered one after the other. When the node acknowledges slowly, the files pile up
+ * and the number of positions sent is bounded by the number of vessels instead of the number of lines.
+ * <p>
+ * A conflated position is only left out for good once the newer position replacing it has been delivered. The queue keeps, for each
+ * vessel, the newest position conflated so far, and gives it back when the file of the newer position is released without having
+ * delivered it (the delivery failed or was abandoned), so that it is sent again instead of being lost.
+ * <p>
+ * The lines without position (no coordinates or no position timestamp) or without IMO number and MMSI are never conflated.
+ */
+public class VesselCSVConflationQueue {
+
+    private final Map<Pair<String, String>, QueuedPosition> latestPositions = new ConcurrentHashMap<>();
+    private final AtomicLong conflatedPositions = new AtomicLong();
+
+    /**
+     * Queues the positions of the valid lines of a translated file, in the order of the file. A position replaces the queued position of
+     * the same vessel unless it is older.
+     *
+     * @param translated translated file about to be delivered, not in columnar mode
+     */
+    public void offer(VesselCSVTranslator translated) {
+        Object source = getSource(translated);
+        for (VesselCSVTranslatorEntry entry : translated.getEntries()) {
+            Pair<String, String> conflationKey = getConflationKey(entry);
+            if (conflationKey != null) {
+                latestPositions.merge(conflationKey, new QueuedPosition(entry, source, null), (queued, offered) ->
+                        entry.getPositionEpochSeconds() >= queued.latest.getPositionEpochSeconds() ? new QueuedPosition(entry, source, queued.superseded) : queued);
+            }
+        }
+    }
+
+    /**
+     * Marks as conflated the entries of a group whose position has been replaced by a newer one of another file, the newest of them is kept
+     * until the newer position has been delivered
+     *
+     * @param translated   translated file of the group, offered before
+     * @param groupEntries entries of a group about to be delivered
+     * @return the entries of the group that are not replaced by a newer position of another file, the given list if no entry is conflated
+     */
+    public List<VesselCSVTranslatorEntry> poll(VesselCSVTranslator translated, List<VesselCSVTranslatorEntry> groupEntries) {
+        Object source = getSource(translated);
+        List<VesselCSVTranslatorEntry> latestEntries = null; // created with the first conflated entry
+        for (int i = 0; i < groupEntries.size(); i++) {
+            VesselCSVTranslatorEntry entry = groupEntries.get(i);
+            Pair<String, String> conflationKey = getConflationKey(entry);
+            QueuedPosition queued = conflationKey == null ? null
+                    : latestPositions.computeIfPresent(conflationKey, (key, position) -> position.isReplacing(entry, source) ? position.supersede(entry) : position);
+            if (queued != null && queued.isReplacing(entry, source)) {
+                entry.markConflated();
+                conflatedPositions.incrementAndGet();
+                if (latestEntries == null) {
+                    latestEntries = new ArrayList<>(groupEntries.subList(0, i));
+                }
+            } else if (latestEntries != null) {
+                latestEntries.add(entry);
+            }
+        }
+        return latestEntries == null ? groupEntries : latestEntries;
+    }
+
+    /**
+     * Removes the positions of a file that has been delivered, or whose delivery has been abandoned. The conflated positions replaced by
+     * a position of the file that has not been delivered are no longer conflated, they have to be sent again.
+     *
+     * @param translated translated file offered before
+     * @return the conflated positions to send again, empty if all the positions of the file replacing others have been delivered
+     */
+    public List<VesselCSVTranslatorEntry> release(VesselCSVTranslator translated) {
+        List<VesselCSVTranslatorEntry> supersededEntries = new ArrayList<>();
+        for (VesselCSVTranslatorEntry entry : translated.getEntries()) {
+            Pair<String, String> conflationKey = getConflationKey(entry);
+            if (conflationKey != null) {
+                latestPositions.computeIfPresent(conflationKey, (key, position) -> {
+                    if (position.latest != entry) {
+                        return position;
+                    }
+                    if (position.superseded != null && !isDelivered(entry)) {
+                        supersededEntries.add(position.superseded);
+                    }
+                    return null;
+                });
+            }
+        }
+        for (VesselCSVTranslatorEntry supersededEntry : supersededEntries) {
+            supersededEntry.clearConflated();
+            conflatedPositions.decrementAndGet();
+        }
+        return supersededEntries;
+    }
+
+    /**
+     * @return true if the position has been sent and the node did not reject it
+     */
+    private static boolean isDelivered(VesselCSVTranslatorEntry entry) {
+        return entry.getGeneratedMessageId() != null
+                && (entry.getGeneratedAckCode() == null || entry.getGeneratedAckCode() == AcknowledgementType.SUCCESS);
+    }
+
+    /**
+     * @return the file of the translated lines, or the translated entries themselves when they were not read from a file
+     */
+    private static Object getSource(VesselCSVTranslator translated) {
+        return translated.getSourceFile() != null ? translated.getSourceFile() : translated;
+    }
+
+    /**
+     * @return the number of positions left out of the payloads since the start
+     */
+    public long getConflatedPositions() {
+        return conflatedPositions.get();
+    }
+
+    /**
+     * @return the number of vessels with a position waiting for delivery
+     */
+    public int size() {
+        return latestPositions.size();
+    }
+
+    /**
+     * @return the recipient and the vessel of the position of the entry, null if the entry has no position or no vessel identifier
+     */
+    private static Pair<String, String> getConflationKey(VesselCSVTranslatorEntry entry) {
+        if (entry.hasTranslationError() || entry.getPositionEpochSeconds() == Long.MIN_VALUE
+                || StringUtils.isEmpty(entry.getLatitude()) || StringUtils.isEmpty(entry.getLongitude())) {
+            return null;
+        }
+        String vessel;
+        if (entry.getIMONumber() != null) {
+            vessel = "IMO:" + entry.getIMONumber();
+        } else if (entry.getMMSI() != null) {
+            vessel = "MMSI:" + entry.getMMSI();
+        } else {
+            return null;
+        }
+        return new ImmutablePair<>(entry.getRecipientServiceId(), vessel);
+    }
+
+    /**
+     * Newest position queued for a vessel, with the file it comes from and the newest of its positions conflated so far
+     */
+    private static class QueuedPosition {
+        private final VesselCSVTranslatorEntry latest;
+        private final Object source;
+        private final VesselCSVTranslatorEntry superseded; // null while no position has been conflated
+
+        QueuedPosition(VesselCSVTranslatorEntry latest, Object source, VesselCSVTranslatorEntry superseded) {
+            this.latest = latest;
+            this.source = source;
+            this.superseded = superseded;
+        }
+
+        /**
+         * @return true if the queued position replaces the entry, a position of another file
+         */
+        boolean isReplacing(VesselCSVTranslatorEntry entry, Object entrySource) {
+            return latest != entry && !source.equals(entrySource);
+        }
+
+        QueuedPosition supersede(VesselCSVTranslatorEntry conflated) {
+            if (superseded != null && superseded.getPositionEpochSeconds() > conflated.getPositionEpochSeconds()) {
+                return this;
+            }
+            return new QueuedPosition(latest, source, conflated);
+        }
+    }
+}
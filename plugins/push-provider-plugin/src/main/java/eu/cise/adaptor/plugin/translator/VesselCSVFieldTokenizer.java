@@ -0,0 +1,131 @@
+package eu.cise.adaptor.plugin.translator;
+
+import eu.cise.adaptor.plugin.translator.exceptions.VesselCSVTranslationException;
+
+import java.util.Arrays;
+
+/**
+ * Reusable tokenizer of the fields of one CSV line, following RFC 4180: a field may be enclosed in double quotes, in which case it may
+ * contain commas, and a double quote inside a quoted field is escaped by another double quote.
+ * <p>
+ * Instead of splitting the line, the tokenizer records the start and end offsets of each field in the line in arrays reused from one
+ * line to the next, and a String is only created when {@link #getField(int)} is called. An instance keeps the state of the last line and
+ * must not be shared between threads.
+ * <p>
+ * The lines are read one by one, so a quoted field cannot contain a line break.
+ */
+public class VesselCSVFieldTokenizer {
+
+    private static final char SEPARATOR = ',';
+    private static final char QUOTE = '"';
+
+    private CharSequence line;
+    private int fieldCount;
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+    private boolean[] fieldsWithEscapedQuotes = new boolean[16];
+
+    /**
+     * Finds the boundaries of the fields of the line
+     *
+     * @param line csv line, without the line terminator
+     * @return the number of fields of the line
+     * @throws VesselCSVTranslationException if a quoted field is not terminated or is followed by other characters than a separator
+     */
+    public int tokenize(CharSequence line) throws VesselCSVTranslationException {
+        this.line = line;
+        this.fieldCount = 0;
+        int length = line.length();
+        int position = 0;
+
+        while (true) {
+            if (position < length && line.charAt(position) == QUOTE) {
+                int start = position + 1;
+                boolean escapedQuotes = false;
+                position = start;
+                while (true) {
+                    if (position >= length) {
+                        throw new VesselCSVTranslationException("Unable to translate vessel input: quoted field " + (fieldCount + 1) + " is not terminated");
+                    }
+                    if (line.charAt(position) == QUOTE) {
+                        if (position + 1 < length && line.charAt(position + 1) == QUOTE) {
+                            escapedQuotes = true;
+                            position += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    position++;
+                }
+                addField(start, position, escapedQuotes);
+                position++; // the closing quote
+                if (position < length && line.charAt(position) != SEPARATOR) {
+                    throw new VesselCSVTranslationException("Unable to translate vessel input: unexpected character after the quoted field " + fieldCount);
+                }
+            } else {
+                int start = position;
+                while (position < length && line.charAt(position) != SEPARATOR) {
+                    position++;
+                }
+                addField(start, position, false);
+            }
+            if (position >= length) {
+                return fieldCount;
+            }
+            position++; // the separator, another field follows even if the line ends with it
+        }
+    }
+
+    /**
+     * @return the number of fields of the last tokenized line
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * @param index index of the field, starting from 0
+     * @return offset in the line of the first character of the field, after the opening quote of a quoted field
+     */
+    public int getFieldStart(int index) {
+        checkIndex(index);
+        return fieldStarts[index];
+    }
+
+    /**
+     * @param index index of the field, starting from 0
+     * @return offset in the line following the last character of the field, before the closing quote of a quoted field
+     */
+    public int getFieldEnd(int index) {
+        checkIndex(index);
+        return fieldEnds[index];
+    }
+
+    /**
+     * @param index index of the field, starting from 0
+     * @return the value of the field, without the enclosing quotes and with the escaped quotes replaced by one quote
+     */
+    public String getField(int index) {
+        checkIndex(index);
+        String field = line.subSequence(fieldStarts[index], fieldEnds[index]).toString();
+        return fieldsWithEscapedQuotes[index] ? field.replace("\"\"", "\"") : field;
+    }
+
+    private void addField(int start, int end, boolean escapedQuotes) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+            fieldsWithEscapedQuotes = Arrays.copyOf(fieldsWithEscapedQuotes, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldsWithEscapedQuotes[fieldCount] = escapedQuotes;
+        fieldCount++;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= fieldCount) {
+            throw new IndexOutOfBoundsException("Field " + index + " out of " + fieldCount + " fields");
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package eu.cise.adaptor.plugin.translator;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Line reader of the CSV files working on the raw bytes of the file instead of {@link java.util.Scanner}.
+ * The file is read region by region into a reusable buffer through positional reads of its {@link FileChannel}, the line boundaries ('\n'
+ * or "\r\n") are searched on the bytes and the current line is copied in a reusable buffer. The UTF-8 decoding only happens when {@link #getLine()} is called, so the header and
+ * the blank lines are recognised and skipped without creating any String.
+ * <p>
+ * The line numbers start from 1 and count every line of the file, including the header and the blank lines, like the previous Scanner loop.
+ * <p>
+ * The reading can start at a byte offset of the file, the beginning of a line, to read only the lines appended since a previous reading,
+ * and stop at another offset, to read one chunk of the file.
+ * <p>
+ * A gzip compressed file (*.gz) is decompressed as a stream into the same buffer, and the offsets are those of the decompressed bytes. The
+ * bytes before the start offset are decompressed and skipped.
+ * <p>
+ * The file is not memory mapped: a mapping is only released when its buffer is garbage collected, not when the reader is closed, so the
+ * regions of the files already processed stayed mapped (and, on Windows, the files could not be moved) until the next collection.
+ */
+public class VesselCSVLineReader implements Closeable {
+
+    static final int DEFAULT_REGION_SIZE = 1024 * 1024;
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private final FileChannel fileChannel; // null for a compressed file
+    private final ReadableByteChannel decompressedChannel; // null for a plain file
+    private final long fileSize; // unknown for a compressed file until it has been read, Long.MAX_VALUE
+    private final int regionSize;
+    private final boolean fileStart; // a byte order mark is only expected at the beginning of the file
+    private long readLimit;
+    private long regionStart;
+    private ByteBuffer region;
+    private byte[] lineBuffer = new byte[256];
+    private int lineLength;
+    private int lineNumber;
+    private boolean lineTerminated;
+    private String line;
+
+    public VesselCSVLineReader(File csvFile) throws IOException {
+        this(csvFile, DEFAULT_REGION_SIZE);
+    }
+
+    /**
+     * @param csvFile         Csv file
+     * @param startOffset     offset of the first byte to read, at the beginning of a line
+     * @param startLineNumber number of lines before the offset, the first line read gets the next number
+     * @throws IOException The file was not found or could not be opened
+     */
+    public VesselCSVLineReader(File csvFile, long startOffset, int startLineNumber) throws IOException {
+        this(csvFile, DEFAULT_REGION_SIZE, startOffset, startLineNumber);
+    }
+
+    VesselCSVLineReader(File csvFile, int regionSize) throws IOException {
+        this(csvFile, regionSize, 0L, 0);
+    }
+
+    /**
+     * @param csvFile     Csv file
+     * @param startOffset offset of the first byte to read, at the beginning of a line
+     * @param endOffset   offset following the last byte to read, at the beginning of a line or at the end of the file
+     * @throws IOException The file was not found or could not be opened
+     */
+    VesselCSVLineReader(File csvFile, long startOffset, long endOffset) throws IOException {
+        this(csvFile, DEFAULT_REGION_SIZE, startOffset, 0);
+        this.readLimit = Math.min(fileSize, endOffset);
+    }
+
+    VesselCSVLineReader(File csvFile, int regionSize, long startOffset, int startLineNumber) throws IOException {
+        if (VesselCSVCompression.isGzipCompressed(csvFile)) {
+            this.fileChannel = null;
+            this.decompressedChannel = openDecompressedChannel(csvFile, startOffset);
+            this.fileSize = Long.MAX_VALUE;
+        } else {
+            this.fileChannel = FileChannel.open(csvFile.toPath(), StandardOpenOption.READ);
+            this.decompressedChannel = null;
+            this.fileSize = fileChannel.size();
+        }
+        this.readLimit = fileSize;
+        this.regionSize = regionSize;
+        this.regionStart = startOffset;
+        this.lineNumber = startLineNumber;
+        this.fileStart = startOffset == 0L;
+    }
+
+    /**
+     * Moves to the next line of the file
+     *
+     * @return false when the end of the file has been reached
+     * @throws IOException In case of IO Problem during the reading of the file
+     */
+    public boolean nextLine() throws IOException {
+        lineLength = 0;
+        line = null;
+        boolean endOfLineFound = false;
+        boolean bytesRead = false;
+
+        while (!endOfLineFound) {
+            if ((region == null || !region.hasRemaining()) && !readNextRegion()) {
+                break;
+            }
+            int start = region.position();
+            int limit = region.limit();
+            int position = start;
+            while (position < limit && region.get(position) != '\n') {
+                position++;
+            }
+            appendToLine(position - start);
+            bytesRead = true;
+            if (position < limit) {
+                region.get(); // consume the '\n'
+                endOfLineFound = true;
+            }
+        }
+        if (!bytesRead) {
+            return false;
+        }
+        lineTerminated = endOfLineFound;
+        if (lineLength > 0 && lineBuffer[lineLength - 1] == '\r') {
+            lineLength--;
+        }
+        if (fileStart && lineNumber == 0 && startsWith(UTF8_BOM)) {
+            System.arraycopy(lineBuffer, UTF8_BOM.length, lineBuffer, 0, lineLength - UTF8_BOM.length);
+            lineLength -= UTF8_BOM.length;
+        }
+        lineNumber++;
+        return true;
+    }
+
+    /**
+     * @return the number of the current line, starting from 1
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * @return false if the current line is the last one of the file and is not terminated by '\n', it may still be being written
+     */
+    public boolean isLineTerminated() {
+        return lineTerminated;
+    }
+
+    /**
+     * @return the offset of the byte following the current line, where the next line starts
+     */
+    public long getNextLineOffset() {
+        return region != null ? regionStart + region.position() : regionStart;
+    }
+
+    /**
+     * @return the current line decoded as UTF-8
+     */
+    public String getLine() {
+        if (line == null) {
+            line = new String(lineBuffer, 0, lineLength, StandardCharsets.UTF_8);
+        }
+        return line;
+    }
+
+    /**
+     * @return true if the current line contains only white spaces
+     */
+    public boolean isBlank() {
+        for (int i = 0; i < lineLength; i++) {
+            byte current = lineBuffer[i];
+            if (current != ' ' && current != '\t' && current != '\r' && current != '\f' && current != 0x0B) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param prefix ASCII or UTF-8 encoded prefix
+     * @return true if the raw bytes of the current line start with the prefix
+     */
+    public boolean startsWith(byte[] prefix) {
+        if (prefix.length > lineLength) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (lineBuffer[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean readNextRegion() throws IOException {
+        if (region == null) {
+            // a small file or chunk does not need a buffer of the full region size
+            region = ByteBuffer.allocate((int) Math.max(1L, Math.min(regionSize, readLimit - regionStart)));
+        } else {
+            regionStart += region.limit();
+            region.clear();
+        }
+        long remaining = readLimit - regionStart;
+        if (remaining < region.capacity()) {
+            region.limit((int) Math.max(remaining, 0L));
+        }
+        while (region.hasRemaining()) {
+            // the decompressed channel reads 0 bytes until the inflater produces some, both channels read -1 at the end of the file
+            int read = fileChannel != null ? fileChannel.read(region, regionStart + region.position()) : decompressedChannel.read(region);
+            if (read < 0) {
+                break;
+            }
+        }
+        region.flip();
+        return region.hasRemaining();
+    }
+
+    private static ReadableByteChannel openDecompressedChannel(File csvFile, long startOffset) throws IOException {
+        InputStream decompressedStream = VesselCSVCompression.openDecompressedStream(csvFile);
+        try {
+            long skipped = 0L;
+            while (skipped < startOffset) {
+                long count = decompressedStream.skip(startOffset - skipped);
+                if (count <= 0) {
+                    break; // end of the file before the start offset
+                }
+                skipped += count;
+            }
+        } catch (IOException ex) {
+            decompressedStream.close();
+            throw ex;
+        }
+        return Channels.newChannel(decompressedStream);
+    }
+
+    private void appendToLine(int length) {
+        if (lineLength + length > lineBuffer.length) {
+            lineBuffer = Arrays.copyOf(lineBuffer, Math.max(lineBuffer.length * 2, lineLength + length));
+        }
+        region.get(lineBuffer, lineLength, length);
+        lineLength += length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        region = null;
+        if (fileChannel != null) {
+            fileChannel.close();
+        } else {
+            decompressedChannel.close();
+        }
+    }
+}
@@ -6,31 +6,41 @@ import eu.cise.adaptor.core.common.logging.LogConfig;
 import eu.cise.adaptor.core.common.logging.LoggerMessage;
 import eu.cise.adaptor.core.servicehandler.domain.RegisteredMessage;
 import eu.cise.adaptor.plugin.cisecontext.CISEPayloadBuilder;
-import eu.cise.adaptor.plugin.cisecontext.VesselBuilder;
+import eu.cise.adaptor.plugin.cisecontext.VesselValidatingBuilder;
+import eu.cise.adaptor.plugin.translator.VesselCSVColumnMapping.Column;
 import eu.cise.adaptor.plugin.cisecontext.impl.VesselPayloadBuilder;
+import eu.cise.adaptor.plugin.translator.exceptions.VesselCSVTranslationException;
 import eu.cise.servicemodel.v1.message.Acknowledgement;
+import eu.cise.servicemodel.v1.message.AcknowledgementType;
 import eu.cise.servicemodel.v1.message.XmlEntityPayload;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 
-import java.io.BufferedWriter;
+import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 
 /**
  * This class provides functionality over CSV file, in particular:
  * <ul>
  * <li>Read a csv file with the following header: IMO_Number, MMSI, longitude, latitude, position_timestamp, recipientServiceID, contextId, referenceMessageId</li>
- * <li>It stores the line data using the class {@link VesselCSVTranslatorEntry}</li>
+ * <li>It stores the line data using the class {@link VesselCSVTranslatorEntry}, or in a {@link VesselCSVColumnarBatch} for large files</li>
  * <li>Checks if all the lines have the correct information to build a CISE Vessel for that line</li>
  * <li>Write a csv file with the original data and CISE information about the transmission, adding these information in the header: generatedMessageId, generatedContextId, ackStatus, ackDetail</li>
  * <li>If there are errors, write a csv file with the original data and the error detail, adding these information in the header: translation_error</li>
@@ -40,55 +50,331 @@ public class VesselCSVTranslator {
 
     private static final AdaptorLogger logger = LogConfig.configureLogging(VesselCSVTranslator.class);
     public static final String csvHeaderRow = "IMO_Number,MMSI,longitude,latitude,position_timestamp,recipientServiceId,contextId,referenceMessageId";
+    static final byte[] csvHeaderPrefix = "IMO_Number".getBytes(StandardCharsets.US_ASCII);
+    static final String errorFileHeaderSuffix = ",translation_error";
+    static final String sentDetailsFileHeaderSuffix = ",generatedMessageId,generatedContextId,ackStatus,ackDetail";
+    static final String errorFileHeaderRow = csvHeaderRow + errorFileHeaderSuffix;
+    static final String sentDetailsFileHeaderRow = csvHeaderRow + sentDetailsFileHeaderSuffix;
+    static final String skippedAckStatus = "SKIPPED"; // ackStatus of the lines not delivered because of a translation error
+    static final String conflatedAckStatus = "CONFLATED"; // ackStatus of the lines replaced by a newer position of the same vessel
     private final Map<MessageKey, List<VesselCSVTranslatorEntry>> csvEntries; // keeps the entries grouped by message key in the order they appear
     private final List<VesselCSVTranslatorEntry> errorEntries; // keeps the entries with errors to create the error file
     private final List<VesselCSVTranslatorEntry> originalOrder; // keeps the original order of entries to create output file
-    private final VesselBuilder vesselPayloadBuilder;
+    private final VesselValidatingBuilder vesselPayloadBuilder;
     private final CISEPayloadBuilder cisePayloadBuilder;
+    private final VesselCSVFieldTokenizer fieldTokenizer; // reused for all the lines
+    private final File columnarSourceFile; // file read again to write the sent details in columnar mode
+    private final VesselPayloadBuilder columnarPayloadBuilder;
+    private final VesselCSVColumnarBatch columnarBatch; // holds the lines instead of the entries in columnar mode, null otherwise
+    private VesselCSVColumnMapping columnMapping = VesselCSVColumnMapping.DEFAULT;
+    private File sourceFile; // file the lines were read from, null for the entries translated before
+    private static final int CHUNKS_PER_THREAD = 4; // smaller chunks balance the load between the threads
+    private static final long MIN_CHUNK_BYTES = 1024 * 1024;
 
     public VesselCSVTranslator() {
+        this(null);
+    }
+
+    private VesselCSVTranslator(File columnarSourceFile) {
+        this.columnarSourceFile = columnarSourceFile;
+        columnarPayloadBuilder = columnarSourceFile != null ? new VesselPayloadBuilder() : null;
+        columnarBatch = columnarSourceFile != null ? new VesselCSVColumnarBatch(columnarPayloadBuilder) : null;
         csvEntries = new LinkedHashMap<>();
         errorEntries = new ArrayList<>();
         originalOrder = new ArrayList<>();
-        // Provide the VesselBuilder and the CISEPayloadBuilder. In our example they are implemented by the same class VesselPayloadBuilder
-        vesselPayloadBuilder = new VesselPayloadBuilder();
+        // Provide the VesselValidatingBuilder and the CISEPayloadBuilder. In our example they are implemented by the same class VesselPayloadBuilder.
+        // The lines are only validated, their Vessels are created by the CISEPayloadBuilder when the payload of their group is built
+        vesselPayloadBuilder = new VesselPayloadBuilder()::validateVesselData;
         cisePayloadBuilder = new VesselPayloadBuilder();
+        fieldTokenizer = new VesselCSVFieldTokenizer();
+    }
+
+    /**
+     * Static constructor of the VesselCSVTranslator instance holding entries already translated, grouped by their MessageKey
+     *
+     * @param entries entries without translation error, in the order of their delivery
+     * @return instance of VesselCSVTranslator class
+     */
+    public static VesselCSVTranslator vesselCSVEntriesToCISE(List<VesselCSVTranslatorEntry> entries) {
+        VesselCSVTranslator result = new VesselCSVTranslator();
+        entries.forEach(result::addEntry);
+        return result;
     }
 
     /**
      * Static constructor of the VesselCSVTranslator instance, that will work on the csv input file
      *
-     * @param vesselCSVFile Csv file
+     * @param vesselCSVFile Csv file (UTF-8 encoded), gzip compressed if its name ends with .gz
      * @return instance of VesselCSVTranslator class
-     * @throws FileNotFoundException The file was not found
+     * @throws IOException The file was not found or could not be read
      */
-    public static VesselCSVTranslator vesselCSVToCISE(File vesselCSVFile) throws FileNotFoundException {
+    public static VesselCSVTranslator vesselCSVToCISE(File vesselCSVFile) throws IOException {
         logger.info(LoggerMessage.of("Translating inputFile found: {}", vesselCSVFile.getAbsolutePath()));
         VesselCSVTranslator result = new VesselCSVTranslator();
-        int csvLineNumber = 0;
-        String currentEntry;
-
-        Scanner scanner = new Scanner(vesselCSVFile);
-        while (scanner.hasNextLine()) {
-            currentEntry = scanner.nextLine();
-            csvLineNumber++;
-            if (!currentEntry.startsWith("IMO_Number") && !currentEntry.isBlank()) { // skip the file header line
-                result.addCSVEntry(currentEntry, csvLineNumber); // accumulate lines while translating them along the way
+        result.setColumnMapping(VesselCSVColumnMapping.readHeader(vesselCSVFile));
+        result.sourceFile = vesselCSVFile;
+
+        try (VesselCSVLineReader lineReader = new VesselCSVLineReader(vesselCSVFile)) {
+            while (lineReader.nextLine()) {
+                if (!result.columnMapping.isHeader(lineReader) && !lineReader.isBlank()) { // skip the file header line
+                    result.addCSVEntry(lineReader.getLine(), lineReader.getLineNumber()); // accumulate lines while translating them along the way
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Static constructor of the VesselCSVTranslator instance, that translates the lines of the csv input file in parallel when the file is
+     * large enough. The file is split into chunks ending at a line boundary, the chunks are translated by the tasks of the pool, and their
+     * entries are merged in the order of the chunks, so the lines, their numbers and their grouping are the same as with the sequential
+     * translation. A gzip compressed file is always translated sequentially.
+     *
+     * @param vesselCSVFile          Csv file (UTF-8 encoded)
+     * @param translationPool        pool translating the chunks, null to translate the file sequentially
+     * @param parallelThresholdBytes minimum size of the file to translate it in parallel
+     * @return instance of VesselCSVTranslator class
+     * @throws IOException The file was not found or could not be read
+     */
+    public static VesselCSVTranslator vesselCSVToCISE(File vesselCSVFile, ForkJoinPool translationPool, long parallelThresholdBytes) throws IOException {
+        long fileSize = vesselCSVFile.length();
+        if (translationPool == null || fileSize < parallelThresholdBytes || VesselCSVCompression.isGzipCompressed(vesselCSVFile)) {
+            // a compressed file cannot be split at byte offsets, it is decompressed and translated sequentially
+            return vesselCSVToCISE(vesselCSVFile);
+        }
+        logger.info(LoggerMessage.of("Translating inputFile found in parallel: {}", vesselCSVFile.getAbsolutePath()));
+        VesselCSVTranslator result = new VesselCSVTranslator();
+        VesselCSVColumnMapping columnMapping = VesselCSVColumnMapping.readHeader(vesselCSVFile);
+        result.setColumnMapping(columnMapping);
+        result.sourceFile = vesselCSVFile;
+
+        long chunkSize = Math.max(MIN_CHUNK_BYTES, fileSize / Math.max(1, translationPool.getParallelism() * CHUNKS_PER_THREAD));
+        List<Long> chunkBoundaries = findChunkBoundaries(vesselCSVFile, fileSize, chunkSize);
+        List<Integer> linesBeforeChunks = countLinesBeforeChunks(vesselCSVFile, chunkBoundaries);
+        List<ForkJoinTask<List<VesselCSVTranslatorEntry>>> chunkTasks = new ArrayList<>();
+        for (int i = 0; i + 1 < chunkBoundaries.size(); i++) {
+            long chunkStart = chunkBoundaries.get(i);
+            long chunkEnd = chunkBoundaries.get(i + 1);
+            int previousLines = linesBeforeChunks.get(i);
+            chunkTasks.add(translationPool.submit(() -> translateChunk(vesselCSVFile, chunkStart, chunkEnd, previousLines, columnMapping)));
+        }
+
+        for (ForkJoinTask<List<VesselCSVTranslatorEntry>> chunkTask : chunkTasks) {
+            List<VesselCSVTranslatorEntry> chunkEntries;
+            try {
+                chunkEntries = chunkTask.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                chunkTasks.forEach(task -> task.cancel(true));
+                throw new InterruptedIOException("Interrupted while translating " + vesselCSVFile.getAbsolutePath());
+            } catch (ExecutionException ex) {
+                chunkTasks.forEach(task -> task.cancel(true));
+                if (ex.getCause() instanceof IOException) {
+                    throw (IOException) ex.getCause();
+                }
+                throw new IOException("Unable to translate " + vesselCSVFile.getAbsolutePath(), ex.getCause());
+            }
+            chunkEntries.forEach(result::addEntry);
+        }
+
+        return result;
+    }
+
+    /**
+     * Splits the csv file in chunks of about the given size, each boundary being moved to the beginning of the next line. Each chunk can be
+     * translated on its own by {@link #vesselCSVChunkToCISE(File, long, long, int, VesselCSVColumnMapping)}.
+     *
+     * @param vesselCSVFile Csv file, not compressed
+     * @param chunkSize     size of the chunks, in bytes
+     * @return the offsets of the boundaries, from 0 to the size of the file
+     * @throws IOException The file was not found or could not be read
+     */
+    public static List<Long> findLineAlignedChunks(File vesselCSVFile, long chunkSize) throws IOException {
+        return findChunkBoundaries(vesselCSVFile, vesselCSVFile.length(), Math.max(1L, chunkSize));
+    }
+
+    /**
+     * Counts the lines of the file preceding each chunk, in one pass over the file
+     *
+     * @param vesselCSVFile   Csv file, not compressed
+     * @param chunkBoundaries offsets of the boundaries of the chunks, from {@link #findLineAlignedChunks(File, long)}
+     * @return the number of lines before the beginning of each chunk, one value per chunk
+     * @throws IOException The file was not found or could not be read
+     */
+    public static List<Integer> countLinesBeforeChunks(File vesselCSVFile, List<Long> chunkBoundaries) throws IOException {
+        List<Integer> previousLines = new ArrayList<>();
+        if (chunkBoundaries.size() < 2) {
+            return previousLines;
+        }
+        previousLines.add(0);
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        try (FileChannel fileChannel = FileChannel.open(vesselCSVFile.toPath(), StandardOpenOption.READ)) {
+            int lines = 0;
+            long position = 0L;
+            for (int i = 1; i + 1 < chunkBoundaries.size(); i++) {
+                long chunkStart = chunkBoundaries.get(i);
+                while (position < chunkStart) {
+                    buffer.clear();
+                    buffer.limit((int) Math.min(buffer.capacity(), chunkStart - position));
+                    int read = fileChannel.read(buffer, position);
+                    if (read <= 0) {
+                        break;
+                    }
+                    for (int j = 0; j < read; j++) {
+                        if (buffer.get(j) == '\n') {
+                            lines++;
+                        }
+                    }
+                    position += read;
+                }
+                previousLines.add(lines);
+            }
+        }
+        return previousLines;
+    }
+
+    /**
+     * Static constructor of the VesselCSVTranslator instance, that works on one chunk of the csv input file. The lines are numbered from
+     * the beginning of the file, given the number of lines preceding the chunk, and only the first chunk may hold the header row of the
+     * file.
+     *
+     * @param vesselCSVFile Csv file (UTF-8 encoded), not compressed
+     * @param chunkStart    offset of the beginning of the chunk, at the beginning of a line
+     * @param chunkEnd      offset following the end of the chunk, at the beginning of a line or at the end of the file
+     * @param previousLines number of lines of the file before the chunk, from {@link #countLinesBeforeChunks(File, List)}
+     * @param columnMapping mapping of the columns of the file, read from its header
+     * @return instance of VesselCSVTranslator class
+     * @throws IOException The file was not found or could not be read
+     */
+    public static VesselCSVTranslator vesselCSVChunkToCISE(File vesselCSVFile, long chunkStart, long chunkEnd, int previousLines,
+                                                           VesselCSVColumnMapping columnMapping) throws IOException {
+        VesselCSVTranslator result = new VesselCSVTranslator();
+        result.setColumnMapping(columnMapping);
+        result.sourceFile = vesselCSVFile;
+        translateChunk(vesselCSVFile, chunkStart, chunkEnd, previousLines, columnMapping).forEach(result::addEntry);
+        return result;
+    }
+
+    /**
+     * Splits the file in chunks of about the given size, each boundary being moved to the beginning of the next line
+     *
+     * @return the offsets of the boundaries, from 0 to the size of the file
+     */
+    private static List<Long> findChunkBoundaries(File vesselCSVFile, long fileSize, long chunkSize) throws IOException {
+        List<Long> chunkBoundaries = new ArrayList<>();
+        chunkBoundaries.add(0L);
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        try (FileChannel fileChannel = FileChannel.open(vesselCSVFile.toPath(), StandardOpenOption.READ)) {
+            long boundary = chunkSize;
+            while (boundary < fileSize) {
+                long lineStart = -1L;
+                long position = boundary - 1; // a boundary right after a '\n' is already at the beginning of a line
+                while (lineStart < 0L && position < fileSize) {
+                    buffer.clear();
+                    int read = fileChannel.read(buffer, position);
+                    if (read <= 0) {
+                        break;
+                    }
+                    for (int i = 0; i < read; i++) {
+                        if (buffer.get(i) == '\n') {
+                            lineStart = position + i + 1;
+                            break;
+                        }
+                    }
+                    position += read;
+                }
+                if (lineStart < 0L || lineStart >= fileSize) {
+                    break; // the last line of the file is already in the last chunk
+                }
+                chunkBoundaries.add(lineStart);
+                boundary = lineStart + chunkSize;
+            }
+        }
+        chunkBoundaries.add(fileSize);
+        return chunkBoundaries;
+    }
+
+    /**
+     * @param previousLines number of lines of the file before the chunk, the line reader numbers the lines from the beginning of the chunk
+     * @return the entries of the chunk, numbered from the beginning of the file
+     */
+    private static List<VesselCSVTranslatorEntry> translateChunk(File vesselCSVFile, long chunkStart, long chunkEnd, int previousLines,
+                                                                 VesselCSVColumnMapping columnMapping) throws IOException {
+        // each task has its own builder and tokenizer
+        VesselValidatingBuilder chunkVesselBuilder = new VesselPayloadBuilder()::validateVesselData;
+        VesselCSVFieldTokenizer chunkFieldTokenizer = new VesselCSVFieldTokenizer();
+        List<VesselCSVTranslatorEntry> chunkEntries = new ArrayList<>();
+        try (VesselCSVLineReader lineReader = new VesselCSVLineReader(vesselCSVFile, chunkStart, chunkEnd)) {
+            while (lineReader.nextLine()) {
+                if (!columnMapping.isHeader(lineReader, previousLines) && !lineReader.isBlank()) { // skip the file header line
+                    chunkEntries.add(new VesselCSVTranslatorEntry(lineReader.getLine(), previousLines + lineReader.getLineNumber(),
+                            chunkVesselBuilder::validateAndTranslateToVessel, chunkFieldTokenizer, columnMapping));
+                }
+            }
+        }
+        return chunkEntries;
+    }
+
+    /**
+     * Static constructor of the VesselCSVTranslator instance that keeps the lines in a {@link VesselCSVColumnarBatch} instead of one
+     * {@link VesselCSVTranslatorEntry} per line. The file is read again when the sent details are written, it must not be moved before.
+     *
+     * @param vesselCSVFile Csv file (UTF-8 encoded)
+     * @return instance of VesselCSVTranslator class
+     * @throws IOException The file was not found or could not be read
+     */
+    public static VesselCSVTranslator vesselCSVToCISEColumnar(File vesselCSVFile) throws IOException {
+        logger.info(LoggerMessage.of("Translating inputFile found in columnar mode: {}", vesselCSVFile.getAbsolutePath()));
+        VesselCSVTranslator result = new VesselCSVTranslator(vesselCSVFile);
+
+        result.setColumnMapping(VesselCSVColumnMapping.readHeader(vesselCSVFile));
+        try (VesselCSVLineReader lineReader = new VesselCSVLineReader(vesselCSVFile)) {
+            while (lineReader.nextLine()) {
+                if (!result.columnMapping.isHeader(lineReader) && !lineReader.isBlank()) { // skip the file header line
+                    result.addColumnarRow(lineReader.getLine(), lineReader.getLineNumber());
+                }
             }
         }
-        scanner.close();
 
         return result;
     }
 
-    private void addCSVEntry(String csvEntry, Integer lineNumber) {
+    private void addColumnarRow(String csvEntry, int lineNumber) {
+        try {
+            int fieldCount = fieldTokenizer.tokenize(csvEntry);
+            if (fieldCount == columnMapping.getFieldCount() && columnarBatch.addRow(lineNumber, columnMapping.getField(fieldTokenizer, Column.IMO_NUMBER),
+                    columnMapping.getField(fieldTokenizer, Column.MMSI), columnMapping.getField(fieldTokenizer, Column.LATITUDE),
+                    columnMapping.getField(fieldTokenizer, Column.LONGITUDE), columnMapping.getField(fieldTokenizer, Column.POSITION_TIMESTAMP),
+                    columnMapping.getMessageKey(fieldTokenizer), columnMapping.getVesselAttributes(fieldTokenizer))) {
+                return;
+            }
+        } catch (VesselCSVTranslationException ex) {
+            // the entry gives the same translation error
+        }
+        columnarBatch.addErrorRow(new VesselCSVTranslatorEntry(csvEntry, lineNumber, vesselPayloadBuilder::validateAndTranslateToVessel, fieldTokenizer, columnMapping));
+    }
+
+    void addCSVEntry(String csvEntry, Integer lineNumber) {
+        addEntry(new VesselCSVTranslatorEntry(csvEntry, lineNumber, vesselPayloadBuilder::validateAndTranslateToVessel, fieldTokenizer, columnMapping));
+    }
+
+    /**
+     * @param columnMapping mapping of the columns of the translated file, read from its header row
+     */
+    void setColumnMapping(VesselCSVColumnMapping columnMapping) {
+        this.columnMapping = columnMapping;
+    }
 
-        VesselCSVTranslatorEntry entry = new VesselCSVTranslatorEntry(csvEntry, lineNumber, vesselPayloadBuilder::translateToVessel);
+    VesselCSVColumnMapping getColumnMapping() {
+        return columnMapping;
+    }
 
+    private void addEntry(VesselCSVTranslatorEntry entry) {
         // Add as List to maintain the original order
         originalOrder.add(entry);
 
-        if (entry.getTranslationException() == null) {
+        if (!entry.hasTranslationError()) {
             // Add in a map to  associate key -> Entry
             MessageKey messageKey = new MessageKey(entry.getContextId(), entry.getReferenceMessageId(), entry.getRecipientServiceId());
             List<VesselCSVTranslatorEntry> existingEntries = csvEntries.computeIfAbsent(messageKey, k -> new ArrayList<>());
@@ -105,7 +391,7 @@ public class VesselCSVTranslator {
      * @return List of VesselCSVTranslatorEntry containing the error lines
      */
     public List<VesselCSVTranslatorEntry> getErrorLines() {
-        return errorEntries;
+        return columnarBatch != null ? columnarBatch.getErrorEntries() : errorEntries;
     }
 
     /**
@@ -123,38 +409,142 @@ public class VesselCSVTranslator {
      * @throws IOException In case of IO Problem during the writing of the file
      */
     public void writeErrorLinesToFile(File errorFile) throws IOException {
+        writeErrorLines(errorFile, false);
+    }
+
+    /**
+     * Append the lines with error at the end of a csv file, starting it with the header of {@link #writeErrorLinesToFile(File)} if it
+     * does not exist yet
+     *
+     * @param errorFile Destination csv file
+     * @throws IOException In case of IO Problem during the writing of the file
+     */
+    public void appendErrorLinesToFile(File errorFile) throws IOException {
+        writeErrorLines(errorFile, true);
+    }
+
+    private void writeErrorLines(File errorFile, boolean append) throws IOException {
         List<VesselCSVTranslatorEntry> errorLines = getErrorLines();
         if (!getErrorLines().isEmpty()) {
             String newLine = System.lineSeparator();
             StringBuilder result = new StringBuilder();
-            result.append(csvHeaderRow).append(",translation_error");
+            if (!append || errorFile.length() == 0L) {
+                result.append(columnMapping.getHeaderRow()).append(errorFileHeaderSuffix);
+            }
             for (VesselCSVTranslatorEntry entry : errorLines) {
-                result.append(newLine).append(entry.getCsvEntry()).append(",").append(entry.getTranslationException().getMessage());
+                result.append(newLine); // also separates the appended lines from the last line of an existing file
+                appendErrorLine(result, entry);
             }
-            writeStringBuilderToFile(result, errorFile);
+            writeStringBuilderToFile(result, errorFile, append);
         }
     }
 
     /**
      * Write a csv file with like the original, adding in the end information about the message created and the sending result.
      * To the original header, the following information wil be added: generatedMessageId,generatedContextId,ackStatus,ackDetail
+     * The lines with a translation error are marked with the ackStatus SKIPPED and the error as ackDetail
      *
      * @param outputFile Destination csv file
      * @throws IOException n case of IO Problem during the writing of the file
      */
     public void writeOutputFileWithGeneratedMessageDetails(File outputFile) throws IOException {
-        if (!originalOrder.isEmpty()) {
+        writeGeneratedMessageDetails(outputFile, false);
+    }
+
+    /**
+     * Append the lines with the information about the message created and the sending result at the end of a csv file, starting it with
+     * the header of {@link #writeOutputFileWithGeneratedMessageDetails(File)} if it does not exist yet
+     *
+     * @param outputFile Destination csv file
+     * @throws IOException In case of IO Problem during the writing of the file
+     */
+    public void appendGeneratedMessageDetailsToFile(File outputFile) throws IOException {
+        writeGeneratedMessageDetails(outputFile, true);
+    }
+
+    /**
+     * Merges the reports written for the chunks of a file into one report, the lines of each chunk following those of the previous one.
+     * The header row of the first report is kept and those of the other reports are skipped. The chunk reports are deleted. The reports
+     * are read and written in UTF-8, like {@link VesselCSVCompression#newWriter(File, boolean)} writes them.
+     *
+     * @param chunkReports reports of the chunks, in the order of the chunks, those that do not exist are ignored
+     * @param mergedReport Destination csv file
+     * @return false if none of the chunk reports exists, the merged report is not written
+     * @throws IOException In case of IO Problem during the reading or the writing of the files
+     */
+    public static boolean mergeReports(List<File> chunkReports, File mergedReport) throws IOException {
+        Writer writer = null;
+        try {
+            for (File chunkReport : chunkReports) {
+                if (!chunkReport.isFile()) {
+                    continue;
+                }
+                try (BufferedReader reader = Files.newBufferedReader(chunkReport.toPath(), StandardCharsets.UTF_8)) {
+                    String line = reader.readLine(); // the header row
+                    if (line == null) {
+                        continue;
+                    }
+                    if (writer == null) {
+                        writer = VesselCSVCompression.newWriter(mergedReport, false);
+                        writer.write(line);
+                    }
+                    while ((line = reader.readLine()) != null) {
+                        writer.write(System.lineSeparator());
+                        writer.write(line);
+                    }
+                }
+            }
+        } finally {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+        for (File chunkReport : chunkReports) {
+            Files.deleteIfExists(chunkReport.toPath());
+        }
+        return writer != null;
+    }
+
+    private void writeGeneratedMessageDetails(File outputFile, boolean append) throws IOException {
+        if (columnarBatch != null ? columnarBatch.getRowCount() > 0 : !originalOrder.isEmpty()) {
             String newLine = System.lineSeparator();
             StringBuilder result = new StringBuilder();
-            result.append(csvHeaderRow).append(",generatedMessageId,generatedContextId,ackStatus,ackDetail");
-            for (VesselCSVTranslatorEntry entry : originalOrder) {
-                result.append(newLine).append(entry.getCsvEntry()).append(",")
-                        .append(entry.getGeneratedMessageId()).append(",")
-                        .append(entry.getGeneratedContextId()).append(",")
-                        .append(entry.getGeneratedAckCode() != null ? entry.getGeneratedAckCode().value() : "Unknown").append(",")
-                        .append(entry.getGeneratedAckDetail());
+            if (!append || outputFile.length() == 0L) {
+                result.append(columnMapping.getHeaderRow()).append(sentDetailsFileHeaderSuffix);
+            }
+            if (columnarBatch != null) {
+                appendColumnarSentDetailsLines(result);
+            } else {
+                for (VesselCSVTranslatorEntry entry : originalOrder) {
+                    result.append(newLine); // also separates the appended lines from the last line of an existing file
+                    appendSentDetailsLine(result, entry);
+                }
+            }
+            writeStringBuilderToFile(result, outputFile, append);
+        }
+    }
+
+    /**
+     * The rows of the batch follow the order of the lines, the original text of the valid lines is read again from the file
+     */
+    private void appendColumnarSentDetailsLines(StringBuilder result) throws IOException {
+        String newLine = System.lineSeparator();
+        int row = 0;
+        try (VesselCSVLineReader lineReader = new VesselCSVLineReader(columnarSourceFile)) {
+            while (row < columnarBatch.getRowCount() && lineReader.nextLine()) {
+                if (lineReader.getLineNumber() != columnarBatch.getLineNumber(row)) {
+                    continue;
+                }
+                result.append(newLine); // also separates the appended lines from the last line of an existing file
+                VesselCSVTranslatorEntry errorEntry = columnarBatch.getErrorEntry(row);
+                if (errorEntry != null) {
+                    appendSentDetailsLine(result, errorEntry);
+                } else {
+                    result.append(lineReader.getLine()).append(",");
+                    columnarBatch.appendDeliveryResult(result, row);
+                }
+                row++;
             }
-            writeStringBuilderToFile(result, outputFile);
         }
     }
 
@@ -166,18 +556,134 @@ public class VesselCSVTranslator {
     public List<Pair<MessageKey, XmlEntityPayload>> getResultingMessagesPayloads() {
         List<Pair<MessageKey, XmlEntityPayload>> result = new ArrayList<>();
 
-        for (MessageKey messageKey : csvEntries.keySet()) {
+        for (MessageKey messageKey : getMessageKeys()) {
             // create the CISE payload
-            XmlEntityPayload resultPayload = cisePayloadBuilder.build(csvEntries.get(messageKey));
+            XmlEntityPayload resultPayload = getMessagePayload(messageKey);
             Pair<MessageKey, XmlEntityPayload> resultPair = new ImmutablePair<>(messageKey, resultPayload);
             result.add(resultPair);
         }
         return result;
     }
 
-    private void writeStringBuilderToFile(StringBuilder stringBuilder, File outputFile) throws IOException {
-        // write output to file
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(outputFile))) {
+    /**
+     * Retrieve the keys of the groups of VesselCSVTranslatorEntry entries, in the order they appear in the file
+     *
+     * @return List of MessageKey
+     */
+    public List<MessageKey> getMessageKeys() {
+        if (columnarBatch != null) {
+            return columnarBatch.getMessageKeys();
+        }
+        return new ArrayList<>(csvEntries.keySet());
+    }
+
+    /**
+     * Splits the groups larger than the limits of the messages in several groups, each delivered in its own message. The parts of a group
+     * take its place in the delivery order, their keys only differ by their part.
+     *
+     * @param messageSplitter limits of the messages
+     */
+    public void splitMessages(VesselCSVMessageSplitter messageSplitter) {
+        if (messageSplitter.isUnlimited()) {
+            return;
+        }
+        if (columnarBatch != null) {
+            columnarBatch.splitGroups(messageSplitter);
+            return;
+        }
+        Map<MessageKey, List<VesselCSVTranslatorEntry>> splitEntries = new LinkedHashMap<>();
+        for (Map.Entry<MessageKey, List<VesselCSVTranslatorEntry>> group : csvEntries.entrySet()) {
+            List<List<VesselCSVTranslatorEntry>> parts = messageSplitter.split(group.getValue());
+            for (int part = 0; part < parts.size(); part++) {
+                splitEntries.put(group.getKey().withPart(part), parts.get(part));
+            }
+        }
+        csvEntries.clear();
+        csvEntries.putAll(splitEntries);
+    }
+
+    /**
+     * Build the CISE payload of the VesselCSVTranslatorEntry entries grouped by MessageKey
+     *
+     * @param messageKey MessageKey of the group
+     * @return the CISE payload of the group
+     */
+    public XmlEntityPayload getMessagePayload(MessageKey messageKey) {
+        if (columnarBatch != null) {
+            return columnarPayloadBuilder.build(columnarBatch, messageKey);
+        }
+        return cisePayloadBuilder.build(csvEntries.get(messageKey));
+    }
+
+    /**
+     * Build the CISE payload of the group with only the positions that are the newest of their vessel in the conflation queue, the
+     * other entries of the group are marked as conflated
+     *
+     * @param messageKey       MessageKey of the group
+     * @param payload          payload of the whole group, already built
+     * @param conflationQueue  queue of the positions waiting for delivery, to which the file has been offered
+     * @return the given payload if no entry is conflated, null if all the entries are conflated
+     */
+    public XmlEntityPayload getConflatedMessagePayload(MessageKey messageKey, XmlEntityPayload payload, VesselCSVConflationQueue conflationQueue) {
+        List<VesselCSVTranslatorEntry> groupEntries = csvEntries.get(messageKey);
+        List<VesselCSVTranslatorEntry> latestEntries = conflationQueue.poll(this, groupEntries);
+        if (latestEntries == groupEntries) {
+            return payload;
+        }
+        return latestEntries.isEmpty() ? null : cisePayloadBuilder.build(latestEntries);
+    }
+
+    /**
+     * @return the number of lines whose position has been replaced by a newer position of the same vessel
+     */
+    public int getConflatedLines() {
+        return (int) originalOrder.stream().filter(VesselCSVTranslatorEntry::isConflated).count();
+    }
+
+    /**
+     * @return the entries of all the lines in the order of the file, empty in columnar mode
+     */
+    List<VesselCSVTranslatorEntry> getEntries() {
+        return originalOrder;
+    }
+
+    /**
+     * @return the file the lines were read from, the same for all the chunks of a file, null for the entries translated before
+     */
+    File getSourceFile() {
+        return sourceFile;
+    }
+
+    static void appendErrorLine(StringBuilder result, VesselCSVTranslatorEntry entry) {
+        result.append(entry.getCsvEntry()).append(",").append(entry.getTranslationError());
+    }
+
+    static void appendSentDetailsLine(StringBuilder result, VesselCSVTranslatorEntry entry) {
+        if (entry.hasTranslationError()) {
+            result.append(entry.getCsvEntry()).append(",null,null,")
+                    .append(skippedAckStatus).append(",")
+                    .append(entry.getTranslationError());
+            return;
+        }
+        if (entry.isConflated()) {
+            result.append(entry.getCsvEntry()).append(",null,null,").append(conflatedAckStatus).append(",null");
+            return;
+        }
+        result.append(entry.getCsvEntry()).append(",");
+        appendDeliveryResult(result, entry.getGeneratedMessageId(), entry.getGeneratedContextId(), entry.getGeneratedAckCode(), entry.getGeneratedAckDetail());
+    }
+
+    static void appendDeliveryResult(StringBuilder result, String generatedMessageId, String generatedContextId, AcknowledgementType generatedAckCode,
+                                     String generatedAckDetail) {
+        result.append(generatedMessageId).append(",")
+                .append(generatedContextId).append(",")
+                .append(generatedAckCode != null ? generatedAckCode.value() : "Unknown").append(",")
+                .append(generatedAckDetail);
+    }
+
+    private void writeStringBuilderToFile(StringBuilder stringBuilder, File outputFile, boolean append) throws IOException {
+        // write output to file, compressed if its name ends with .gz
+        try (Writer writer = VesselCSVCompression.newWriter(outputFile, append)) {
             writer.write(stringBuilder.toString());
         }
     }
@@ -189,8 +695,47 @@ public class VesselCSVTranslator {
      * @param messageResult Couple of RegisteredMessage, Acknowledgement result of CISE processing
      */
     public void updateEntriesWithMessageResult(MessageKey messageKey, Pair<RegisteredMessage, Acknowledgement> messageResult) {
+        if (columnarBatch != null) {
+            columnarBatch.setDeliveryResult(messageKey, messageResult.getLeft().getMessageId(), messageResult.getLeft().getContextId(),
+                    messageResult.getRight().getAckCode(), messageResult.getRight().getAckDetail());
+            return;
+        }
+        updateEntriesWithMessageResult(csvEntries.get(messageKey), messageResult);
+    }
+
+    /**
+     * Fill the VesselCSVTranslatorEntry grouped by MessageKey with the result found in the checkpoint journal
+     *
+     * @param groupIndex        position of the group in the delivery order, starting from 0
+     * @param messageKey        MessageKey related to the update
+     * @param checkpointJournal journal of the groups already delivered
+     * @return true if the group was already delivered and must not be sent again
+     */
+    public boolean restoreEntriesFromCheckpoint(int groupIndex, MessageKey messageKey, VesselCSVCheckpointJournal checkpointJournal) {
+        if (columnarBatch != null) {
+            return columnarBatch.restore(groupIndex, messageKey, checkpointJournal);
+        }
+        return checkpointJournal.restore(groupIndex, messageKey, csvEntries.get(messageKey));
+    }
+
+    /**
+     * Append the result of the delivery of the VesselCSVTranslatorEntry grouped by MessageKey to the checkpoint journal
+     *
+     * @param groupIndex        position of the group in the delivery order, starting from 0
+     * @param messageKey        MessageKey related to the update
+     * @param checkpointJournal journal of the groups already delivered
+     * @throws IOException In case of IO Problem during the writing of the journal
+     */
+    public void checkpointEntries(int groupIndex, MessageKey messageKey, VesselCSVCheckpointJournal checkpointJournal) throws IOException {
+        if (columnarBatch != null) {
+            columnarBatch.record(groupIndex, messageKey, checkpointJournal);
+            return;
+        }
+        checkpointJournal.record(groupIndex, messageKey, csvEntries.get(messageKey));
+    }
 
-        for (VesselCSVTranslatorEntry entry : csvEntries.get(messageKey)) {
+    static void updateEntriesWithMessageResult(List<VesselCSVTranslatorEntry> entries, Pair<RegisteredMessage, Acknowledgement> messageResult) {
+        for (VesselCSVTranslatorEntry entry : entries) {
             entry.setGeneratedMessageId(messageResult.getLeft().getMessageId());
             entry.setGeneratedContextId(messageResult.getLeft().getContextId());
             entry.setGeneratedAckDetail(messageResult.getRight().getAckDetail());
@@ -200,17 +745,32 @@ public class VesselCSVTranslator {
 
     /**
      * Key factor to group the VesselCSVTranslatorEntry
-     * Entries with the same contextId and referenceMessageId and recipientServiceID are part of the same CISE Message
+     * Entries with the same contextId and referenceMessageId and recipientServiceID are part of the same CISE Message, unless the group is
+     * split in several messages, numbered by their part
      */
     public static class MessageKey {
         private final String contextId;
         private final String referenceMessageId;
         private final String recipientServiceId;
+        private final int part; // index of the message among those of a group split by the VesselCSVMessageSplitter
 
         public MessageKey(String contextId, String referenceMessageId, String recipientServiceId) {
+            this(contextId, referenceMessageId, recipientServiceId, 0);
+        }
+
+        private MessageKey(String contextId, String referenceMessageId, String recipientServiceId, int part) {
             this.contextId = contextId;
             this.referenceMessageId = referenceMessageId;
             this.recipientServiceId = recipientServiceId;
+            this.part = part;
+        }
+
+        /**
+         * @param part index of the message among those of the group, starting from 0
+         * @return the key of one of the messages of a group split in several messages
+         */
+        public MessageKey withPart(int part) {
+            return part == this.part ? this : new MessageKey(contextId, referenceMessageId, recipientServiceId, part);
         }
 
         public String getContextId() {
@@ -225,17 +785,25 @@ public class VesselCSVTranslator {
             return recipientServiceId;
         }
 
+        /**
+         * @return the index of the message among those of its group, 0 if the group is not split
+         */
+        public int getPart() {
+            return part;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
             if (o == null || getClass() != o.getClass()) return false;
             MessageKey that = (MessageKey) o;
-            return Objects.equals(contextId, that.contextId) && Objects.equals(referenceMessageId, that.referenceMessageId) && Objects.equals(recipientServiceId, that.recipientServiceId);
+            return part == that.part && Objects.equals(contextId, that.contextId) && Objects.equals(referenceMessageId, that.referenceMessageId)
+                    && Objects.equals(recipientServiceId, that.recipientServiceId);
         }
 
         @Override
         public int hashCode() {
-            return Objects.hash(contextId, referenceMessageId, recipientServiceId);
+            return Objects.hash(contextId, referenceMessageId, recipientServiceId, part);
         }
     }
 }
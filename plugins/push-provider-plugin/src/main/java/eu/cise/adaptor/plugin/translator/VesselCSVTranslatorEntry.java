@@ -1,14 +1,23 @@
 package eu.cise.adaptor.plugin.translator;
 
 import eu.cise.adaptor.plugin.cisecontext.VesselBuilder;
+import eu.cise.adaptor.plugin.cisecontext.VesselValidatingBuilder;
+import eu.cise.adaptor.plugin.cisecontext.VesselValidationResult;
+import eu.cise.adaptor.plugin.translator.VesselCSVColumnMapping.Column;
 import eu.cise.adaptor.plugin.translator.exceptions.VesselCSVTranslationException;
 import eu.cise.datamodel.v1.entity.vessel.Vessel;
 import eu.cise.servicemodel.v1.message.AcknowledgementType;
 import eu.cise.servicemodel.v1.message.XmlEntityPayload;
 
+import javax.xml.datatype.XMLGregorianCalendar;
+
 /**
  * This class represents one line entry of the CSV File. It is responsible to keep all the information related to it and to
  * translate it (through the @link {@link eu.cise.adaptor.plugin.cisecontext.impl.VesselPayloadBuilder} ) into a CISE Vessel.
+ * <p>
+ * A valid line only keeps the values parsed by the validation, the Vessel is created from them when the payload of its group is built,
+ * unless the builder given already created it.
+ * <p>
  * It also holds any translation related exceptions and it becomes enriched with the sent details information when the messages are sent
  * through the @link {@link eu.cise.adaptor.plugin.cisecontext.impl.VesselInformationDeliver#deliver(String, String, String, XmlEntityPayload)} method
  */
@@ -17,6 +26,7 @@ public class VesselCSVTranslatorEntry {
     private String csvEntry;
     private Integer lineNumber;
     private Exception translationException;
+    private String translationError; // violations of the validation rules, the exception is only created when asked for
 
     private String imo_numberStr;
     private String mmsiStr;
@@ -32,8 +42,16 @@ public class VesselCSVTranslatorEntry {
 
     private String recipientServiceId;
 
+    // values parsed by the validation, the Vessel is created from them when the payload is built
+    private static final long NO_NUMBER = Long.MIN_VALUE;
+    private long imoNumber = NO_NUMBER;
+    private long mmsi = NO_NUMBER;
+    private long positionTime = NO_NUMBER; // seconds since the epoch
+    private String[] vesselAttributes; // name, callSign and flag, null if the file has none of these columns
+    private volatile boolean conflated; // replaced by a newer position of the same vessel, not delivered
+
     // Generated information from the translation / GA
-    private Vessel resultVessel;
+    private Vessel resultVessel; // only when created by the builder given
 
     private String generatedMessageId;
 
@@ -44,31 +62,83 @@ public class VesselCSVTranslatorEntry {
     private String generatedAckDetail;
 
     public VesselCSVTranslatorEntry(String csvEntry, Integer lineNumber, VesselBuilder vesselBuilder) {
+        this(csvEntry, lineNumber, (imoNumberStr, mmsiStr, latitude, longitude, positionTimestampStr) -> {
+            VesselValidationResult result = new VesselValidationResult(imoNumberStr, mmsiStr, latitude, longitude, positionTimestampStr);
+            try {
+                result.setVessel(vesselBuilder.translateToVessel(imoNumberStr, mmsiStr, latitude, longitude, positionTimestampStr));
+            } catch (VesselCSVTranslationException ex) {
+                result.addViolation(ex.getMessage());
+            }
+            return result;
+        }, new VesselCSVFieldTokenizer());
+    }
+
+    /**
+     * @param csvEntry      csv line
+     * @param lineNumber    number of the line in the file
+     * @param vesselBuilder validation and translation of the fields into a Vessel
+     * @param tokenizer     tokenizer reused for all the lines of a file, by one thread
+     */
+    public VesselCSVTranslatorEntry(String csvEntry, Integer lineNumber, VesselValidatingBuilder vesselBuilder, VesselCSVFieldTokenizer tokenizer) {
+        this(csvEntry, lineNumber, vesselBuilder, tokenizer, VesselCSVColumnMapping.DEFAULT);
+    }
+
+    /**
+     * @param csvEntry      csv line
+     * @param lineNumber    number of the line in the file
+     * @param vesselBuilder validation of the fields, which may also translate them into a Vessel
+     * @param tokenizer     tokenizer reused for all the lines of a file, by one thread
+     * @param columnMapping mapping of the columns of the file to the fields
+     */
+    public VesselCSVTranslatorEntry(String csvEntry, Integer lineNumber, VesselValidatingBuilder vesselBuilder, VesselCSVFieldTokenizer tokenizer,
+                                    VesselCSVColumnMapping columnMapping) {
         this.csvEntry = csvEntry;
         this.lineNumber = lineNumber;
 
         try {
-            processCsvEntry();
-            resultVessel = vesselBuilder.translateToVessel(imo_numberStr, mmsiStr, latitude, longitude, positionTimestampStr);
+            if (!processCsvEntry(tokenizer, columnMapping)) {
+                return;
+            }
         } catch (VesselCSVTranslationException ex) {
             translationException = ex;
+            translationError = ex.getMessage();
+            return;
+        }
+        VesselValidationResult result = vesselBuilder.validateAndTranslateToVessel(imo_numberStr, mmsiStr, latitude, longitude, positionTimestampStr);
+        if (result.isValid()) {
+            imoNumber = result.getIMONumber() == null ? NO_NUMBER : result.getIMONumber();
+            mmsi = result.getMMSI() == null ? NO_NUMBER : result.getMMSI();
+            positionTime = result.getPositionTime() == null ? NO_NUMBER : TimeUtils.xmlGregorianCalendarToEpochSeconds(result.getPositionTime());
+            vesselAttributes = columnMapping.getVesselAttributes(tokenizer);
+            resultVessel = result.getVessel();
+            if (resultVessel != null) {
+                setVesselAttributes(resultVessel);
+            }
+        } else {
+            translationError = result.getViolationsMessage();
         }
     }
 
-    private void processCsvEntry() throws VesselCSVTranslationException {
+    /**
+     * @return false if the line does not have the expected number of fields
+     * @throws VesselCSVTranslationException Thrown when a quoted field of the line is not closed
+     */
+    private boolean processCsvEntry(VesselCSVFieldTokenizer tokenizer, VesselCSVColumnMapping columnMapping) throws VesselCSVTranslationException {
 
-        String[] currentEntrySplit = csvEntry.split(",", -1);
-        if (currentEntrySplit.length != 8) {
-            throw new VesselCSVTranslationException("Unable to translate vessel input with " + currentEntrySplit.length + " fields. Lines should have 8 fields");
+        int fieldCount = tokenizer.tokenize(csvEntry);
+        if (fieldCount != columnMapping.getFieldCount()) {
+            translationError = "Unable to translate vessel input with " + fieldCount + " fields. Lines should have " + columnMapping.getFieldCount() + " fields";
+            return false;
         }
-        imo_numberStr = currentEntrySplit[0];
-        mmsiStr = currentEntrySplit[1];
-        longitude = currentEntrySplit[2];
-        latitude = currentEntrySplit[3];
-        positionTimestampStr = currentEntrySplit[4];
-        recipientServiceId = currentEntrySplit[5];
-        contextId = currentEntrySplit[6];
-        referenceMessageId = currentEntrySplit[7];
+        imo_numberStr = columnMapping.getField(tokenizer, Column.IMO_NUMBER);
+        mmsiStr = columnMapping.getField(tokenizer, Column.MMSI);
+        longitude = columnMapping.getField(tokenizer, Column.LONGITUDE);
+        latitude = columnMapping.getField(tokenizer, Column.LATITUDE);
+        positionTimestampStr = columnMapping.getField(tokenizer, Column.POSITION_TIMESTAMP);
+        recipientServiceId = columnMapping.getField(tokenizer, Column.RECIPIENT_SERVICE_ID);
+        contextId = columnMapping.getField(tokenizer, Column.CONTEXT_ID);
+        referenceMessageId = columnMapping.getField(tokenizer, Column.REFERENCE_MESSAGE_ID);
+        return true;
     }
 
     public String getCsvEntry() {
@@ -79,10 +149,27 @@ public class VesselCSVTranslatorEntry {
         return lineNumber;
     }
 
+    /**
+     * @return the exception with the translation error, created from the violations of the validation rules if they are the error
+     */
     public Exception getTranslationException() {
+        if (translationException == null && translationError != null) {
+            translationException = new VesselCSVTranslationException(translationError);
+        }
         return translationException;
     }
 
+    public boolean hasTranslationError() {
+        return translationError != null;
+    }
+
+    /**
+     * @return the message of the translation error, the violations of the validation rules separated by "; ", null if the line is valid
+     */
+    public String getTranslationError() {
+        return translationError;
+    }
+
     public String getContextId() {
         return contextId;
     }
@@ -95,10 +182,81 @@ public class VesselCSVTranslatorEntry {
         return recipientServiceId;
     }
 
+    /**
+     * @return the Vessel created by the builder given, null if the builder only validated the line and the Vessel is to be created
+     * from the parsed values
+     */
     public Vessel getResultVessel() {
         return resultVessel;
     }
 
+    /**
+     * @return the IMO number parsed, null if not provided
+     */
+    public Long getIMONumber() {
+        return imoNumber == NO_NUMBER ? null : imoNumber;
+    }
+
+    /**
+     * @return the MMSI parsed, null if not provided
+     */
+    public Long getMMSI() {
+        return mmsi == NO_NUMBER ? null : mmsi;
+    }
+
+    public String getLatitude() {
+        return latitude;
+    }
+
+    public String getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * @return a new instance of the position time parsed, null if not provided
+     */
+    public XMLGregorianCalendar getPositionTime() {
+        return positionTime == NO_NUMBER ? null : TimeUtils.epochSecondsToXMLGregorianCalendar(positionTime);
+    }
+
+    /**
+     * @return the position time parsed in seconds since the epoch, Long.MIN_VALUE if not provided
+     */
+    long getPositionEpochSeconds() {
+        return positionTime;
+    }
+
+    /**
+     * @return the name, callSign and flag of the line, null if the file has none of these columns
+     */
+    String[] getVesselAttributes() {
+        return vesselAttributes;
+    }
+
+    /**
+     * @return true if the position of the line has been replaced by a newer position of the same vessel and has not been delivered
+     */
+    public boolean isConflated() {
+        return conflated;
+    }
+
+    void markConflated() {
+        conflated = true;
+    }
+
+    void clearConflated() {
+        conflated = false;
+    }
+
+    /**
+     * Sets on the Vessel the optional name, callSign and flag of the line
+     */
+    public void setVesselAttributes(Vessel vessel) {
+        if (vesselAttributes != null) {
+            VesselCSVColumnMapping.setVesselAttributes(vessel, vesselAttributes[0], vesselAttributes[1], vesselAttributes[2]);
+        }
+    }
+
     public String getGeneratedMessageId() {
         return generatedMessageId;
     }
@@ -0,0 +1,76 @@
+package eu.cise.adaptor.plugin;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VesselCSVDeliveryLanesTest {
+
+    private final VesselCSVDeliveryLanes deliveryLanes = new VesselCSVDeliveryLanes(2, 4);
+
+    @AfterEach
+    void stop() {
+        deliveryLanes.stop();
+    }
+
+    @Test
+    void it_delivers_the_messages_of_a_recipient_in_order_one_at_a_time() throws Exception {
+        List<Integer> delivered = Collections.synchronizedList(new ArrayList<>());
+        List<Future<Integer>> deliveries = new ArrayList<>();
+
+        for (int message = 0; message < 20; message++) {
+            int deliveredMessage = message;
+            deliveries.add(deliveryLanes.submit("recipient-1", () -> {
+                delivered.add(deliveredMessage);
+                return deliveredMessage;
+            }));
+        }
+        for (Future<Integer> delivery : deliveries) {
+            delivery.get(5, TimeUnit.SECONDS);
+        }
+
+        for (int message = 0; message < 20; message++) {
+            assertEquals(message, delivered.get(message));
+        }
+    }
+
+    @Test
+    void it_delivers_the_messages_of_a_recipient_while_another_recipient_is_blocked() throws Exception {
+        CountDownLatch unblock = new CountDownLatch(1);
+        Future<Boolean> blockedDelivery = deliveryLanes.submit("unknown_1", () -> unblock.await(5, TimeUnit.SECONDS));
+        Future<String> blockedNextDelivery = deliveryLanes.submit("unknown_1", () -> "after");
+
+        assertEquals("delivered", deliveryLanes.submit("recipient-2", () -> "delivered").get(5, TimeUnit.SECONDS));
+        assertFalse(blockedNextDelivery.isDone());
+        assertTrue(deliveryLanes.describeLanes().containsKey("unknown_1"));
+
+        unblock.countDown();
+        assertTrue(blockedDelivery.get(5, TimeUnit.SECONDS));
+        assertEquals("after", blockedNextDelivery.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void it_removes_the_lane_of_a_recipient_once_its_messages_are_sent() throws Exception {
+        VesselCSVDeliveryLanes singleThreadLanes = new VesselCSVDeliveryLanes(1, 4);
+        try {
+            assertEquals("first", singleThreadLanes.submit("recipient-1", () -> "first").get(5, TimeUnit.SECONDS));
+            // the only thread is done with the lane of recipient-1 before it runs the lane of recipient-2
+            assertEquals("second", singleThreadLanes.submit("recipient-2", () -> "second").get(5, TimeUnit.SECONDS));
+            assertFalse(singleThreadLanes.describeLanes().containsKey("recipient-1"));
+
+            assertEquals("again", singleThreadLanes.submit("recipient-1", () -> "again").get(5, TimeUnit.SECONDS));
+        } finally {
+            singleThreadLanes.stop();
+        }
+    }
+}
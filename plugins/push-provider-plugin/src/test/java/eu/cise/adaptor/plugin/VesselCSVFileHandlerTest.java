@@ -0,0 +1,215 @@
+package eu.cise.adaptor.plugin;
+
+import eu.cise.adaptor.core.common.exceptions.CiseAdaptorValidationException;
+import eu.cise.adaptor.core.servicehandler.domain.RegisteredMessage;
+import eu.cise.adaptor.core.servicehandler.port.in.ReceiveFromLegacySystemPort;
+import eu.cise.adaptor.plugin.config.PushProviderPluginConfig;
+import eu.cise.adaptor.plugin.translator.VesselCSVTranslator;
+import eu.cise.servicemodel.v1.message.Acknowledgement;
+import eu.cise.servicemodel.v1.message.AcknowledgementType;
+import org.aeonbits.owner.ConfigFactory;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VesselCSVFileHandlerTest {
+
+    private static final String RECIPIENT = "push.consumer.id,"; // field of the recipientServiceId column, with its separator
+
+    @TempDir
+    Path directory;
+
+    private final AtomicInteger deliveries = new AtomicInteger();
+    private final AtomicInteger deliveriesInFlight = new AtomicInteger();
+    private final AtomicInteger maxDeliveriesInFlight = new AtomicInteger();
+    private volatile CountDownLatch deliveryBarrier = new CountDownLatch(0); // deliveries held until this many are in flight together
+    private volatile int firstFailingDelivery; // number of the first delivery rejected by the Service Handler, the next ones too, 0 for none
+    private ReceiveFromLegacySystemPort receiveFromLegacySystemPort;
+    private VesselCSVFileHandler fileHandler;
+
+    @BeforeEach
+    void mockPort() throws Exception {
+        Acknowledgement acknowledgement = mock(Acknowledgement.class);
+        when(acknowledgement.getAckCode()).thenReturn(AcknowledgementType.SUCCESS);
+        receiveFromLegacySystemPort = mock(ReceiveFromLegacySystemPort.class);
+        when(receiveFromLegacySystemPort.handleIncomingLegacyData(any())).thenAnswer(invocation -> {
+            int delivery = deliveries.incrementAndGet();
+            maxDeliveriesInFlight.accumulateAndGet(deliveriesInFlight.incrementAndGet(), Math::max);
+            try {
+                deliveryBarrier.countDown();
+                deliveryBarrier.await(10L, TimeUnit.SECONDS);
+                if (firstFailingDelivery > 0 && delivery >= firstFailingDelivery) {
+                    throw new CiseAdaptorValidationException("Service Handler unavailable");
+                }
+                RegisteredMessage registeredMessage = mock(RegisteredMessage.class);
+                when(registeredMessage.getMessageId()).thenReturn("message-" + delivery);
+                return Collections.singletonList(new ImmutablePair<>(registeredMessage, acknowledgement));
+            } finally {
+                deliveriesInFlight.decrementAndGet();
+            }
+        });
+    }
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        if (fileHandler != null) {
+            fileHandler.stopServer();
+        }
+    }
+
+    @Test
+    void it_processes_the_files_in_parallel() throws Exception {
+        deliveryBarrier = new CountDownLatch(3); // each file is delivered only once the three of them are being delivered
+        List<File> inputFiles = new ArrayList<>();
+        for (String fileName : List.of("first.csv", "second.csv", "third.csv")) {
+            inputFiles.add(writeCSVFile(directory.resolve("input"), fileName).toFile());
+        }
+        CountDownLatch processedFiles = new CountDownLatch(3);
+        PushProviderPluginConfig config = createConfig(Map.of("csv-worker-threads", "3", "csv-input-commit-protocol", "rename",
+                "csv-input-polling-interval-seconds", "3600"));
+        fileHandler = new VesselCSVFileHandler(config, receiveFromLegacySystemPort) {
+            @Override
+            void processFile(File foundFile) {
+                super.processFile(foundFile);
+                processedFiles.countDown();
+            }
+        };
+
+        fileHandler.start(); // the files are found by the first scan
+
+        assertTrue(processedFiles.await(10L, TimeUnit.SECONDS));
+        assertEquals(3, deliveries.get());
+        assertEquals(3, maxDeliveriesInFlight.get());
+        assertTrue(inputFiles.stream().noneMatch(File::exists));
+    }
+
+    @Test
+    void it_delivers_the_groups_of_a_file_with_at_most_the_maximum_messages_in_flight() throws Exception {
+        deliveryBarrier = new CountDownLatch(3);
+        List<String> lines = writeGroupsFile("groups.csv", 12);
+        createFileHandler(Map.of("csv-delivery-max-in-flight", "3"));
+
+        fileHandler.processFile(directory.resolve("input").resolve("groups.csv").toFile());
+
+        assertEquals(12, deliveries.get());
+        assertEquals(3, maxDeliveriesInFlight.get());
+        List<String> sentDetails = readReport(directory.resolve("output"), "groups_*_sentDetails.csv");
+        assertEquals(13, sentDetails.size());
+        Set<String> messageIds = new HashSet<>();
+        for (int line = 0; line < lines.size(); line++) {
+            String sentDetailsLine = sentDetails.get(line + 1);
+            assertTrue(sentDetailsLine.startsWith(lines.get(line) + ",message-"), sentDetailsLine); // in the order of the lines of the file
+            messageIds.add(sentDetailsLine.substring(lines.get(line).length() + 1).split(",")[0]);
+        }
+        assertEquals(12, messageIds.size());
+    }
+
+    @Test
+    void it_sends_no_group_of_a_file_after_a_failed_delivery() throws Exception {
+        deliveryBarrier = new CountDownLatch(2); // both messages in flight are rejected
+        firstFailingDelivery = 1;
+        writeGroupsFile("groups.csv", 12);
+        createFileHandler(Map.of("csv-delivery-max-in-flight", "2"));
+
+        fileHandler.processFile(directory.resolve("input").resolve("groups.csv").toFile());
+
+        assertEquals(2, deliveries.get());
+        assertEquals(1, listFiles(directory.resolve("error"), "groups_*.csv").size());
+    }
+
+    @Test
+    void it_keeps_the_merged_error_file_and_the_failed_file_when_a_chunk_fails() throws Exception {
+        firstFailingDelivery = 1;
+        List<String> lines = writeGroupsFile("groups.csv", 6);
+        Path inputFile = directory.resolve("input").resolve("groups.csv");
+        String wrongLine = "A710525,232000000,22.253667,34.438333,2023-09-27 05:42:44," + RECIPIENT + UUID.randomUUID() + ",reference-1";
+        List<String> inputLines = new ArrayList<>(Files.readAllLines(inputFile));
+        inputLines.add(1, wrongLine);
+        Files.write(inputFile, inputLines);
+
+        createFileHandler(Map.of("csv-split-threshold-bytes", "1", "csv-split-chunk-bytes", "200"));
+        fileHandler.processFile(inputFile.toFile());
+
+        assertTrue(deliveries.get() < lines.size());
+        List<String> errorReport = readReport(directory.resolve("error"), "groups_*[0-9].csv");
+        assertEquals(2, errorReport.size());
+        assertTrue(errorReport.get(1).startsWith(wrongLine + ","), errorReport.get(1));
+        assertEquals(inputLines, readReport(directory.resolve("error"), "groups_*_failed.csv"));
+    }
+
+    /**
+     * Creates a file handler that is not started, its files are processed by the test
+     */
+    private void createFileHandler(Map<String, String> properties) throws Exception {
+        fileHandler = new VesselCSVFileHandler(createConfig(properties), receiveFromLegacySystemPort);
+    }
+
+    private PushProviderPluginConfig createConfig(Map<String, String> properties) throws Exception {
+        Map<String, String> configuration = new HashMap<>();
+        for (String subdirectory : new String[]{"input", "output", "error"}) {
+            configuration.put("csv-" + subdirectory + "-directory", Files.createDirectories(directory.resolve(subdirectory)).toString());
+        }
+        configuration.putAll(properties);
+        return ConfigFactory.create(PushProviderPluginConfig.class, configuration);
+    }
+
+    private static Path writeCSVFile(Path fileDirectory, String fileName) throws Exception {
+        Path csvFile = Files.createDirectories(fileDirectory).resolve(fileName);
+        Files.copy(TestHelper.resourceToFile("vesselscsv/vessels_csv_example_one_message.csv").toPath(), csvFile);
+        return csvFile;
+    }
+
+    /**
+     * Writes a file of one line per group, each line with its own contextId
+     *
+     * @return the lines of the file, without the header row
+     */
+    private List<String> writeGroupsFile(String fileName, int groups) throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (int group = 0; group < groups; group++) {
+            lines.add("77105" + (10 + group) + ",2320000" + (10 + group) + ",22.253667,34.438333,2023-09-27 05:42:44," + RECIPIENT
+                    + UUID.randomUUID() + ",reference-1");
+        }
+        Path groupsFile = Files.createDirectories(directory.resolve("input")).resolve(fileName);
+        Files.writeString(groupsFile, VesselCSVTranslator.csvHeaderRow + "\n" + String.join("\n", lines) + "\n");
+        return lines;
+    }
+
+    private static List<String> readReport(Path reportDirectory, String glob) throws Exception {
+        List<Path> reports = listFiles(reportDirectory, glob);
+        assertEquals(1, reports.size());
+        return Files.readAllLines(reports.get(0));
+    }
+
+    private static List<Path> listFiles(Path fileDirectory, String glob) throws Exception {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(fileDirectory, glob)) {
+            directoryStream.forEach(files::add);
+        }
+        return files;
+    }
+}
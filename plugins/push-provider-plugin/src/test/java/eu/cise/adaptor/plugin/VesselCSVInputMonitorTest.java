@@ -0,0 +1,213 @@
+package eu.cise.adaptor.plugin;
+
+import eu.cise.adaptor.plugin.config.PushProviderPluginConfig;
+import org.aeonbits.owner.ConfigFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VesselCSVInputMonitorTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<File> dispatchedFiles = new CopyOnWriteArrayList<>();
+    private final CountDownLatch fileDispatched = new CountDownLatch(1);
+    private Path inputDirectory;
+    private VesselCSVInputMonitor inputMonitor;
+
+    @BeforeEach
+    void createInputDirectory() throws Exception {
+        inputDirectory = Files.createDirectories(directory.resolve("input"));
+    }
+
+    @AfterEach
+    void stop() {
+        if (inputMonitor != null) {
+            inputMonitor.stop();
+        }
+    }
+
+    @Test
+    void it_dispatches_a_committed_file_behind_more_uncommitted_files_than_the_files_per_scan() throws Exception {
+        long now = System.currentTimeMillis();
+        for (int file = 0; file < 5; file++) {
+            writeInputFile("waiting_" + file + ".csv", now - 60_000L + file); // older than the committed file, without their marker
+        }
+        File committedFile = writeInputFile("committed.csv", now);
+        Files.createFile(inputDirectory.resolve("committed.csv.done"));
+        createInputMonitor(Map.of("csv-input-commit-protocol", "marker", "csv-input-scan-max-files", "2"));
+
+        inputMonitor.monitorInputDirectory();
+
+        assertEquals(List.of(committedFile), dispatchedFiles);
+    }
+
+    @Test
+    void it_dispatches_a_stable_file_behind_more_empty_files_than_the_files_per_scan() throws Exception {
+        long now = System.currentTimeMillis();
+        for (int file = 0; file < 3; file++) {
+            Path emptyFile = Files.createFile(inputDirectory.resolve("empty_" + file + ".csv"));
+            Files.setLastModifiedTime(emptyFile, FileTime.fromMillis(now - 60_000L + file));
+        }
+        File stableFile = writeInputFile("stable.csv", now);
+        createInputMonitor(Map.of("csv-input-scan-max-files", "2"));
+
+        // the sizes of the new files are recorded two at a time, the oldest first, the stable file is checked again by the third scan
+        for (int scan = 0; scan < 3; scan++) {
+            inputMonitor.monitorInputDirectory();
+        }
+
+        assertEquals(List.of(stableFile), dispatchedFiles);
+    }
+
+    @Test
+    void it_keeps_the_files_still_being_written_out_of_the_scan_window() throws Exception {
+        long now = System.currentTimeMillis();
+        Path growingFile = writeInputFile("growing.csv", now - 60_000L).toPath();
+        File stableFile = writeInputFile("stable.csv", now);
+        createInputMonitor(Map.of("csv-input-scan-max-files", "1"));
+
+        for (int scan = 0; scan < 3; scan++) {
+            inputMonitor.monitorInputDirectory();
+            Files.writeString(growingFile, "\n", StandardOpenOption.APPEND); // the older file never becomes stable
+            Files.setLastModifiedTime(growingFile, FileTime.fromMillis(now - 60_000L));
+        }
+
+        assertEquals(List.of(stableFile), dispatchedFiles);
+    }
+
+    @Test
+    void it_frees_the_place_of_a_claimed_file_removed_from_the_input_directory() throws Exception {
+        long now = System.currentTimeMillis();
+        File removedFile = writeInputFile("removed.csv", now - 60_000L);
+        File nextFile = writeInputFile("next.csv", now);
+        createInputMonitor(Map.of("csv-input-commit-protocol", "rename", "csv-input-scan-max-files", "1"));
+
+        inputMonitor.monitorInputDirectory();
+        inputMonitor.monitorInputDirectory(); // the claimed file takes the only place of the scan
+        assertEquals(List.of(removedFile), dispatchedFiles);
+
+        Files.delete(removedFile.toPath()); // removed by another process while it is still claimed
+        inputMonitor.monitorInputDirectory();
+        assertEquals(List.of(removedFile, nextFile), dispatchedFiles);
+    }
+
+    @Test
+    void it_evicts_the_tracked_size_of_a_file_removed_from_the_input_directory() throws Exception {
+        File inputFile = writeInputFile("replaced.csv", System.currentTimeMillis());
+        createInputMonitor(Map.of());
+        inputMonitor.monitorInputDirectory(); // tracks the size of the file
+
+        Files.delete(inputFile.toPath());
+        inputMonitor.monitorInputDirectory();
+        writeInputFile("replaced.csv", System.currentTimeMillis()); // a new file of the same name and size
+        inputMonitor.monitorInputDirectory();
+        assertTrue(dispatchedFiles.isEmpty()); // the size of the new file is tracked from scratch
+
+        inputMonitor.monitorInputDirectory();
+        assertEquals(List.of(inputFile), dispatchedFiles);
+    }
+
+    @Test
+    void it_dispatches_a_file_once_until_it_is_released() throws Exception {
+        File inputFile = writeInputFile("claimed.csv", System.currentTimeMillis());
+        createInputMonitor(Map.of("csv-input-commit-protocol", "rename"));
+
+        inputMonitor.monitorInputDirectory();
+        inputMonitor.monitorInputDirectory(); // the file is still claimed
+        assertEquals(List.of(inputFile), dispatchedFiles);
+
+        inputMonitor.release(inputFile); // left in the input directory
+        inputMonitor.monitorInputDirectory();
+        assertEquals(List.of(inputFile, inputFile), dispatchedFiles);
+    }
+
+    @Test
+    void it_dispatches_a_file_as_soon_as_its_marker_appears() throws Exception {
+        File markedFile = writeInputFile("marked.csv", System.currentTimeMillis());
+        createInputMonitor(Map.of("csv-input-commit-protocol", "marker", "csv-input-polling-interval-seconds", "3600", "csv-input-watch-enabled", "true"));
+        inputMonitor.start();
+
+        Files.createFile(inputDirectory.resolve("marked.csv.done"));
+
+        assertTrue(fileDispatched.await(10L, TimeUnit.SECONDS));
+        assertEquals(List.of(markedFile), dispatchedFiles);
+    }
+
+    @Test
+    void it_dispatches_a_file_as_soon_as_it_is_renamed_to_csv() throws Exception {
+        File partFile = writeInputFile("renamed.csv.part", System.currentTimeMillis());
+        createInputMonitor(Map.of("csv-input-commit-protocol", "rename", "csv-input-polling-interval-seconds", "3600", "csv-input-watch-enabled", "true"));
+        inputMonitor.start();
+
+        Path renamedFile = Files.move(partFile.toPath(), inputDirectory.resolve("renamed.csv"), StandardCopyOption.ATOMIC_MOVE);
+
+        assertTrue(fileDispatched.await(10L, TimeUnit.SECONDS));
+        assertEquals(List.of(renamedFile.toFile()), dispatchedFiles);
+    }
+
+    @Test
+    void it_dispatches_a_file_moved_in_the_input_directory_without_waiting_for_the_polling() throws Exception {
+        Path stagedFile = writeCSVFile(Files.createDirectories(directory.resolve("staging")), "moved.csv");
+        createInputMonitor(Map.of("csv-input-polling-interval-seconds", "3600", "csv-input-watch-enabled", "true", "csv-input-watch-settle-millis", "100"));
+        inputMonitor.start();
+
+        Path movedFile = Files.move(stagedFile, inputDirectory.resolve("moved.csv"));
+
+        assertTrue(fileDispatched.await(10L, TimeUnit.SECONDS));
+        assertEquals(List.of(movedFile.toFile()), dispatchedFiles);
+    }
+
+    /**
+     * Creates a monitor that is not started, whose dispatcher claims the files like the file handler and keeps them claimed
+     */
+    private void createInputMonitor(Map<String, String> properties) {
+        PushProviderPluginConfig config = ConfigFactory.create(PushProviderPluginConfig.class, properties);
+        inputMonitor = new VesselCSVInputMonitor(config, inputDirectory.toFile(), new VesselCSVInputMonitor.FileDispatcher() {
+            @Override
+            public void onScan() {
+            }
+
+            @Override
+            public void dispatchFile(File readyFile) {
+                if (inputMonitor.claim(readyFile)) {
+                    dispatchedFiles.add(readyFile);
+                    fileDispatched.countDown();
+                }
+            }
+
+            @Override
+            public void dispatchFollowedFile(File followedFile) {
+            }
+        });
+    }
+
+    private File writeInputFile(String fileName, long lastModified) throws Exception {
+        Path inputFile = writeCSVFile(inputDirectory, fileName);
+        Files.setLastModifiedTime(inputFile, FileTime.fromMillis(lastModified));
+        return inputFile.toFile();
+    }
+
+    private static Path writeCSVFile(Path fileDirectory, String fileName) throws Exception {
+        Path csvFile = fileDirectory.resolve(fileName);
+        Files.copy(TestHelper.resourceToFile("vesselscsv/vessels_csv_example_one_message.csv").toPath(), csvFile);
+        return csvFile;
+    }
+}
@@ -0,0 +1,48 @@
+package eu.cise.adaptor.plugin;
+
+import eu.cise.adaptor.plugin.config.PushProviderPluginConfig;
+import org.aeonbits.owner.ConfigFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VesselCSVProcessingModesTest {
+
+    @Test
+    void it_uses_the_delivery_lanes_with_the_file_workers() {
+        assertTrue(processingModes(Map.of("csv-delivery-lanes-enabled", "true")).isDeliveryLanesEnabled());
+    }
+
+    @Test
+    void it_ignores_the_delivery_lanes_with_the_pipeline() {
+        assertFalse(processingModes(Map.of("csv-delivery-lanes-enabled", "true", "csv-pipeline-enabled", "true")).isDeliveryLanesEnabled());
+    }
+
+    @Test
+    void it_ignores_the_delivery_lanes_with_the_streaming() {
+        assertFalse(processingModes(Map.of("csv-delivery-lanes-enabled", "true", "csv-streaming-enabled", "true")).isDeliveryLanesEnabled());
+    }
+
+    @Test
+    void it_delivers_the_configured_messages_in_flight_with_the_file_workers() {
+        assertEquals(3, processingModes(Map.of("csv-delivery-max-in-flight", "3")).getDeliveryMaxInFlight());
+    }
+
+    @Test
+    void it_delivers_one_message_at_a_time_with_the_pipeline() {
+        assertEquals(1, processingModes(Map.of("csv-delivery-max-in-flight", "3", "csv-pipeline-enabled", "true")).getDeliveryMaxInFlight());
+    }
+
+    @Test
+    void it_delivers_one_message_at_a_time_with_the_streaming() {
+        assertEquals(1, processingModes(Map.of("csv-delivery-max-in-flight", "3", "csv-streaming-enabled", "true")).getDeliveryMaxInFlight());
+    }
+
+    private static VesselCSVProcessingModes processingModes(Map<String, String> properties) {
+        return new VesselCSVProcessingModes(ConfigFactory.create(PushProviderPluginConfig.class, properties));
+    }
+}
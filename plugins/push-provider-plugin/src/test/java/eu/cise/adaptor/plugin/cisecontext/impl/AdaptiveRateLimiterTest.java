@@ -0,0 +1,59 @@
+package eu.cise.adaptor.plugin.cisecontext.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void it_paces_the_deliveries_at_the_rate_of_the_bucket() throws InterruptedException {
+        AdaptiveRateLimiter rateLimiter = new AdaptiveRateLimiter(10, 0, 1, 1000L, 1.0, 0.5, now::get);
+
+        rateLimiter.acquire(null);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100L), rateLimiter.getWaitNanos(null));
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(100L));
+
+        assertEquals(0L, rateLimiter.getWaitNanos(null));
+    }
+
+    @Test
+    void it_decreases_the_rate_on_a_failed_or_slow_acknowledgement_and_increases_it_on_the_successful_ones() {
+        AdaptiveRateLimiter rateLimiter = new AdaptiveRateLimiter(10, 0, 1, 1000L, 1.0, 0.5, now::get);
+
+        rateLimiter.onDelivered(null, 0L, false);
+        assertEquals(5.0, rateLimiter.getRate(), 0.001);
+        rateLimiter.onDelivered(null, 0L, false); // same congestion, within the target latency of the previous decrease
+        assertEquals(5.0, rateLimiter.getRate(), 0.001);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1L));
+        rateLimiter.onDelivered(null, TimeUnit.SECONDS.toNanos(2L), true);
+        assertEquals(2.5, rateLimiter.getRate(), 0.001);
+
+        rateLimiter.onDelivered(null, TimeUnit.MILLISECONDS.toNanos(100L), true);
+        assertEquals(2.9, rateLimiter.getRate(), 0.001);
+        for (int delivery = 0; delivery < 1000; delivery++) {
+            rateLimiter.onDelivered(null, TimeUnit.MILLISECONDS.toNanos(100L), true);
+        }
+        assertEquals(10.0, rateLimiter.getRate(), 0.001);
+    }
+
+    @Test
+    void it_limits_and_adapts_the_rate_of_each_recipient_separately() throws InterruptedException {
+        AdaptiveRateLimiter rateLimiter = new AdaptiveRateLimiter(0, 4, 1, 1000L, 1.0, 0.5, now::get);
+
+        rateLimiter.acquire("recipient-1");
+        assertTrue(rateLimiter.getWaitNanos("recipient-1") > 0L);
+        assertEquals(0L, rateLimiter.getWaitNanos("recipient-2"));
+        rateLimiter.onDelivered("recipient-1", 0L, false);
+
+        assertEquals(2.0, rateLimiter.getRecipientRates().get("recipient-1"), 0.001);
+        assertEquals(4.0, rateLimiter.getRecipientRates().get("recipient-2"), 0.001);
+        assertEquals(0.0, rateLimiter.getRate(), 0.001);
+    }
+}
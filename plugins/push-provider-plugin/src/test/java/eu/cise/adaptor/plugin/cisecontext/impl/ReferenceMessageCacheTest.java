@@ -0,0 +1,99 @@
+package eu.cise.adaptor.plugin.cisecontext.impl;
+
+import eu.cise.servicemodel.v1.message.Message;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReferenceMessageCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger lookups = new AtomicInteger();
+
+    @Test
+    void it_answers_the_lookups_of_a_found_reference_message_from_the_cache_until_it_expires() {
+        ReferenceMessageCache cache = new ReferenceMessageCache(10, 60L, 5L, now::get);
+        Function<String, Optional<Message>> loader = loader(Optional.of(message("context-1", "sender-1")));
+
+        Optional<Pair<String, String>> reference = cache.lookup("reference-1", loader);
+        assertEquals("context-1", reference.get().getLeft());
+        assertEquals("sender-1", reference.get().getRight());
+        now.addAndGet(TimeUnit.SECONDS.toNanos(59L));
+        assertEquals(reference, cache.lookup("reference-1", loader));
+        assertEquals(1, lookups.get());
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1L));
+        cache.lookup("reference-1", loader);
+
+        assertEquals(2, lookups.get());
+        assertEquals(1L, cache.getHits());
+        assertEquals(2L, cache.getMisses());
+    }
+
+    @Test
+    void it_remembers_a_reference_message_not_found_for_the_shorter_time() {
+        ReferenceMessageCache cache = new ReferenceMessageCache(10, 60L, 5L, now::get);
+        Function<String, Optional<Message>> loader = loader(Optional.empty());
+
+        assertFalse(cache.lookup("reference-1", loader).isPresent());
+        now.addAndGet(TimeUnit.SECONDS.toNanos(4L));
+        assertFalse(cache.lookup("reference-1", loader).isPresent());
+        assertEquals(1, lookups.get());
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1L));
+        assertFalse(cache.lookup("reference-1", loader).isPresent());
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    void it_evicts_the_least_recently_used_reference_message_when_full() {
+        ReferenceMessageCache cache = new ReferenceMessageCache(2, 60L, 5L, now::get);
+        Function<String, Optional<Message>> loader = loader(Optional.of(message("context-1", "sender-1")));
+
+        cache.lookup("reference-1", loader);
+        cache.lookup("reference-2", loader);
+        cache.lookup("reference-1", loader); // reference-2 is now the least recently used
+        cache.lookup("reference-3", loader);
+        assertEquals(2, cache.size());
+        cache.lookup("reference-1", loader);
+        assertEquals(3, lookups.get());
+        cache.lookup("reference-2", loader);
+        assertEquals(4, lookups.get());
+    }
+
+    @Test
+    void it_queries_every_lookup_when_disabled() {
+        ReferenceMessageCache cache = new ReferenceMessageCache(0, 60L, 5L, now::get);
+        Function<String, Optional<Message>> loader = loader(Optional.of(message("context-1", "sender-1")));
+
+        cache.lookup("reference-1", loader);
+        cache.lookup("reference-1", loader);
+
+        assertEquals(2, lookups.get());
+        assertEquals(0, cache.size());
+        assertEquals(0L, cache.getHits());
+    }
+
+    private Function<String, Optional<Message>> loader(Optional<Message> message) {
+        return referenceMessageId -> {
+            lookups.incrementAndGet();
+            return message;
+        };
+    }
+
+    private static Message message(String contextId, String senderServiceId) {
+        Message message = mock(Message.class, RETURNS_DEEP_STUBS);
+        when(message.getContextID()).thenReturn(contextId);
+        when(message.getSender().getServiceID()).thenReturn(senderServiceId);
+        return message;
+    }
+}
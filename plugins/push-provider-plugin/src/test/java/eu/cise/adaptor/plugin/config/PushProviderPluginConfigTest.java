@@ -14,6 +14,7 @@ import org.junit.jupiter.api.Test;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 class PushProviderPluginConfigTest {
@@ -32,6 +33,32 @@ class PushProviderPluginConfigTest {
         assertNotNull(adaptorConfig.getHttpPort());
     }
 
+    @Test
+    public void it_tests_default_input_watch_configuration() {
+        PushProviderPluginConfig adaptorConfig = ConfigFactory.create(PushProviderPluginConfig.class);
+        assertEquals(5L, adaptorConfig.getCSVInputPollingIntervalSeconds());
+        assertFalse(adaptorConfig.isCSVInputWatchEnabled());
+        assertEquals(500L, adaptorConfig.getCSVInputWatchSettleMillis());
+    }
+
+    @Test
+    public void it_tests_default_worker_threads_configuration() {
+        PushProviderPluginConfig adaptorConfig = ConfigFactory.create(PushProviderPluginConfig.class);
+        assertEquals(1, adaptorConfig.getCSVWorkerThreads());
+    }
+
+    @Test
+    public void it_tests_default_input_commit_protocol_configuration() {
+        PushProviderPluginConfig adaptorConfig = ConfigFactory.create(PushProviderPluginConfig.class);
+        assertEquals(CSVInputCommitProtocol.SIZE, CSVInputCommitProtocol.fromValue(adaptorConfig.getCSVInputCommitProtocol()));
+    }
+
+    @Test
+    public void it_tests_default_delivery_in_flight_configuration() {
+        PushProviderPluginConfig adaptorConfig = ConfigFactory.create(PushProviderPluginConfig.class);
+        assertEquals(1, adaptorConfig.getCSVDeliveryMaxInFlight());
+    }
+
     @Test
     public void it_tests_multiple_profiles(){
         DiscoveryProfileConfigurationReader discoveryProfileConfigurationReader = new DiscoveryProfileConfigurationReader();
@@ -0,0 +1,109 @@
+package eu.cise.adaptor.plugin.translator;
+
+import eu.cise.adaptor.core.servicehandler.domain.RegisteredMessage;
+import eu.cise.adaptor.plugin.TestHelper;
+import eu.cise.servicemodel.v1.message.Acknowledgement;
+import eu.cise.servicemodel.v1.message.AcknowledgementType;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VesselCSVCheckpointJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private File csvFile;
+    private File journalFile;
+    private final AtomicInteger sentMessages = new AtomicInteger();
+
+    @BeforeEach
+    void copyInputFile() throws Exception {
+        csvFile = Files.copy(TestHelper.resourceToFile("vesselscsv/vessels_csv_example_four_messages.csv").toPath(), directory.resolve("vessels.csv")).toFile();
+        journalFile = directory.resolve("vessels.csv.checkpoint").toFile();
+    }
+
+    @Test
+    void it_does_not_send_again_the_groups_delivered_before_a_crash() throws Exception {
+        try (VesselCSVCheckpointJournal checkpointJournal = VesselCSVCheckpointJournal.open(journalFile, csvFile)) {
+            assertThrows(IllegalStateException.class, () -> translate(checkpointJournal, 2));
+        }
+        assertEquals(2, sentMessages.get());
+
+        File sentDetailsFile = directory.resolve("sentDetails.csv").toFile();
+        VesselCSVStreamingTranslator.StreamingResult result;
+        try (VesselCSVCheckpointJournal checkpointJournal = VesselCSVCheckpointJournal.open(journalFile, csvFile)) {
+            assertEquals(2, checkpointJournal.getRecoveredGroups());
+            result = new VesselCSVStreamingTranslator(100, 100).translate(csvFile, sentDetailsFile, directory.resolve("error.csv").toFile(),
+                    this::send, checkpointJournal);
+        }
+
+        assertEquals(4, sentMessages.get());
+        assertEquals(2, result.getRecoveredMessages());
+        assertEquals(2, result.getSentMessages());
+        assertEquals(6, result.getSentLines());
+        List<String> sentDetailsLines = Files.readAllLines(sentDetailsFile.toPath());
+        assertTrue(sentDetailsLines.get(1).endsWith(",message-1,context-1,SUCCESS,null"));
+        assertTrue(sentDetailsLines.get(6).endsWith(",message-4,context-4,SUCCESS,null"));
+    }
+
+    @Test
+    void it_ignores_a_line_cut_by_a_crash() throws Exception {
+        try (VesselCSVCheckpointJournal checkpointJournal = VesselCSVCheckpointJournal.open(journalFile, csvFile)) {
+            assertThrows(IllegalStateException.class, () -> translate(checkpointJournal, 1));
+        }
+        Files.write(journalFile.toPath(), "1\t3\t1\tcut".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        try (VesselCSVCheckpointJournal checkpointJournal = VesselCSVCheckpointJournal.open(journalFile, csvFile)) {
+            assertEquals(1, checkpointJournal.getRecoveredGroups());
+        }
+        assertTrue(Files.readString(journalFile.toPath()).endsWith("\n"));
+    }
+
+    @Test
+    void it_discards_the_journal_of_another_version_of_the_file() throws Exception {
+        try (VesselCSVCheckpointJournal checkpointJournal = VesselCSVCheckpointJournal.open(journalFile, csvFile)) {
+            assertThrows(IllegalStateException.class, () -> translate(checkpointJournal, 2));
+        }
+        Files.write(csvFile.toPath(), System.lineSeparator().getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        try (VesselCSVCheckpointJournal checkpointJournal = VesselCSVCheckpointJournal.open(journalFile, csvFile)) {
+            assertEquals(0, checkpointJournal.getRecoveredGroups());
+        }
+    }
+
+    private void translate(VesselCSVCheckpointJournal checkpointJournal, int crashAfterMessages) throws Exception {
+        new VesselCSVStreamingTranslator(100, 100).translate(csvFile, directory.resolve("sentDetails.csv").toFile(), directory.resolve("error.csv").toFile(),
+                (messageKey, payload) -> {
+                    if (sentMessages.get() == crashAfterMessages) {
+                        throw new IllegalStateException("adaptor stopped");
+                    }
+                    return send(messageKey, payload);
+                }, checkpointJournal);
+    }
+
+    private ImmutablePair<RegisteredMessage, Acknowledgement> send(VesselCSVTranslator.MessageKey messageKey, Object payload) {
+        int messageNumber = sentMessages.incrementAndGet();
+        RegisteredMessage registeredMessage = mock(RegisteredMessage.class);
+        when(registeredMessage.getMessageId()).thenReturn("message-" + messageNumber);
+        when(registeredMessage.getContextId()).thenReturn("context-" + messageNumber);
+        Acknowledgement acknowledgement = mock(Acknowledgement.class);
+        when(acknowledgement.getAckCode()).thenReturn(AcknowledgementType.SUCCESS);
+        return new ImmutablePair<>(registeredMessage, acknowledgement);
+    }
+}
@@ -0,0 +1,109 @@
+package eu.cise.adaptor.plugin.translator;
+
+import eu.cise.datamodel.v1.entity.vessel.Vessel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VesselCSVColumnMappingTest {
+
+    @Test
+    void it_maps_reordered_columns_and_ignores_the_unknown_ones(@TempDir Path directory) throws IOException {
+        File csvFile = directory.resolve("reordered.csv").toFile();
+        Files.writeString(csvFile.toPath(), "contextId,comment,MMSI,IMO_Number,referenceMessageId,position_timestamp,latitude,longitude,recipientServiceId\n"
+                + "context-1,\"ignored, quoted\",232000000,7710525,ref-1,2023-09-27 05:42:44,34.438333,22.253667,push.consumer.id\n");
+
+        VesselCSVTranslator translator = VesselCSVTranslator.vesselCSVToCISE(csvFile);
+
+        assertFalse(translator.hasErrors());
+        assertEquals(List.of(new VesselCSVTranslator.MessageKey("context-1", "ref-1", "push.consumer.id")), translator.getMessageKeys());
+        Vessel vessel = (Vessel) translator.getMessagePayload(translator.getMessageKeys().get(0)).getAnies().get(0);
+        assertEquals(7710525L, vessel.getIMONumber());
+        assertEquals(232000000L, vessel.getMMSI());
+        assertEquals("34.438333", vessel.getLocationRels().get(0).getLocation().getGeometries().get(0).getLatitude());
+        assertEquals("22.253667", vessel.getLocationRels().get(0).getLocation().getGeometries().get(0).getLongitude());
+        assertTrue(vessel.getNames().isEmpty());
+        assertNull(vessel.getCallSign());
+    }
+
+    @Test
+    void it_sets_the_optional_vessel_attributes(@TempDir Path directory) throws IOException {
+        File csvFile = directory.resolve("attributes.csv").toFile();
+        Files.writeString(csvFile.toPath(), VesselCSVTranslator.csvHeaderRow + ",name,callSign,flag\n"
+                + "7710525,232000000,22.253667,34.438333,2023-09-27 05:42:44,push.consumer.id,context-1,,SEA STAR,9HA2954,MT\n"
+                + "7710526,232000001,22.253667,34.438333,2023-09-27 05:42:44,push.consumer.id,context-1,,,,\n");
+
+        for (VesselCSVTranslator translator : List.of(VesselCSVTranslator.vesselCSVToCISE(csvFile), VesselCSVTranslator.vesselCSVToCISEColumnar(csvFile))) {
+            List<Object> vessels = translator.getMessagePayload(translator.getMessageKeys().get(0)).getAnies();
+            Vessel named = (Vessel) vessels.get(0);
+            assertEquals(List.of("SEA STAR"), named.getNames());
+            assertEquals("9HA2954", named.getCallSign());
+            assertEquals("MT", named.getFlag());
+            Vessel unnamed = (Vessel) vessels.get(1);
+            assertTrue(unnamed.getNames().isEmpty());
+            assertNull(unnamed.getCallSign());
+            assertNull(unnamed.getFlag());
+        }
+    }
+
+    @Test
+    void it_uses_the_default_columns_for_a_file_without_header() {
+        assertSame(VesselCSVColumnMapping.DEFAULT, VesselCSVColumnMapping.fromHeaderRow("7710525,232000000,22.25,34.43,2023-09-27 05:42:44,,context-1,", 1));
+
+        VesselCSVColumnMapping mapping = VesselCSVColumnMapping.fromHeaderRow(VesselCSVTranslator.csvHeaderRow + ",extra", 1);
+        assertEquals(9, mapping.getFieldCount());
+        assertEquals(VesselCSVTranslator.csvHeaderRow + ",extra", mapping.getHeaderRow());
+        assertFalse(mapping.hasVesselAttributes());
+    }
+
+    @Test
+    void it_skips_the_header_row_only_in_the_first_chunk_of_a_split_file(@TempDir Path directory) throws IOException {
+        File csvFile = directory.resolve("reordered.csv").toFile();
+        Files.writeString(csvFile.toPath(), "MMSI,IMO_Number,longitude,latitude,position_timestamp,recipientServiceId,contextId,referenceMessageId\n"
+                + "232000000,7710525,22.25,34.43,2023-09-27 05:42:44,push.consumer.id,context-1,ref-1\n"
+                + "232000001,7710526,22.25,34.43,2023-09-27 05:42:44,push.consumer.id,context-1,ref-1\n"
+                + "232000002,7710527,22.25,34.43,2023-09-27 05:42:44,push.consumer.id,context-1,ref-1\n");
+        VesselCSVColumnMapping columnMapping = VesselCSVColumnMapping.readHeader(csvFile);
+        List<Long> chunkBoundaries = VesselCSVTranslator.findLineAlignedChunks(csvFile, 1); // one line per chunk
+        List<Integer> linesBeforeChunks = VesselCSVTranslator.countLinesBeforeChunks(csvFile, chunkBoundaries);
+        assertEquals(List.of(0, 1, 2, 3), linesBeforeChunks);
+
+        int vessels = 0;
+        for (int i = 0; i + 1 < chunkBoundaries.size(); i++) {
+            VesselCSVTranslator chunk = VesselCSVTranslator.vesselCSVChunkToCISE(csvFile, chunkBoundaries.get(i), chunkBoundaries.get(i + 1),
+                    linesBeforeChunks.get(i), columnMapping);
+            assertFalse(chunk.hasErrors());
+            for (VesselCSVTranslator.MessageKey messageKey : chunk.getMessageKeys()) {
+                vessels += chunk.getMessagePayload(messageKey).getAnies().size();
+            }
+        }
+
+        assertEquals(3, vessels);
+    }
+
+    @Test
+    void it_writes_the_header_of_the_file_in_the_reports(@TempDir Path directory) throws IOException {
+        File csvFile = directory.resolve("reordered.csv").toFile();
+        String headerRow = "MMSI,IMO_Number,longitude,latitude,position_timestamp,recipientServiceId,contextId,referenceMessageId";
+        Files.writeString(csvFile.toPath(), headerRow + "\n232000000,7710525,22.25,34.43,2023-09-27 05:42:44,push.consumer.id,context-1\n");
+
+        VesselCSVTranslator translator = VesselCSVTranslator.vesselCSVToCISE(csvFile);
+        File errorFile = directory.resolve("errors.csv").toFile();
+        translator.writeErrorLinesToFile(errorFile);
+
+        List<String> errorLines = Files.readAllLines(errorFile.toPath());
+        assertEquals(headerRow + ",translation_error", errorLines.get(0));
+        assertTrue(errorLines.get(1).endsWith("Lines should have 8 fields"));
+    }
+}
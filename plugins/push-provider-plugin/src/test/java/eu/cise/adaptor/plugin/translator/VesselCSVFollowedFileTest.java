@@ -0,0 +1,85 @@
+package eu.cise.adaptor.plugin.translator;
+
+import eu.cise.adaptor.plugin.TestHelper;
+import eu.cise.servicemodel.v1.message.XmlEntityPayload;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class VesselCSVFollowedFileTest {
+
+    @TempDir
+    Path directory;
+
+    private List<String> exampleLines;
+    private File csvFile;
+    private File offsetFile;
+
+    @BeforeEach
+    void readExampleLines() throws Exception {
+        exampleLines = Files.readAllLines(TestHelper.resourceToFile("vesselscsv/vessels_csv_example_four_messages.csv").toPath());
+        csvFile = directory.resolve("positions.csv").toFile();
+        offsetFile = directory.resolve("positions.csv.offset").toFile();
+    }
+
+    @Test
+    void it_reads_only_the_complete_lines_appended_since_the_committed_offset() throws Exception {
+        append(exampleLines.get(0) + "\n" + exampleLines.get(1) + "\n" + exampleLines.get(2) + "\n" + exampleLines.get(3).substring(0, 10));
+
+        VesselCSVFollowedFile followedFile = VesselCSVFollowedFile.open(csvFile, offsetFile);
+        assertEquals(2, countVessels(followedFile.readAppendedLines(100)));
+        followedFile.commit();
+        assertNull(followedFile.readAppendedLines(100));
+
+        append(exampleLines.get(3).substring(10) + "\n" + "wrong line\n");
+        VesselCSVTranslator appendedLines = VesselCSVFollowedFile.open(csvFile, offsetFile).readAppendedLines(100);
+        assertEquals(1, countVessels(appendedLines));
+        assertEquals(5, appendedLines.getErrorLines().get(0).getLineNumber());
+    }
+
+    @Test
+    void it_reads_again_the_lines_of_a_batch_not_committed() throws Exception {
+        append(exampleLines.get(0) + "\n" + exampleLines.get(1) + "\n" + exampleLines.get(2) + "\n" + exampleLines.get(3) + "\n");
+
+        VesselCSVFollowedFile followedFile = VesselCSVFollowedFile.open(csvFile, offsetFile);
+        assertEquals(2, countVessels(followedFile.readAppendedLines(2)));
+        followedFile.commit();
+        assertEquals(1, countVessels(followedFile.readAppendedLines(2)));
+
+        assertEquals(1, countVessels(VesselCSVFollowedFile.open(csvFile, offsetFile).readAppendedLines(2)));
+    }
+
+    @Test
+    void it_reads_a_truncated_file_from_the_beginning() throws Exception {
+        append(exampleLines.get(0) + "\n" + exampleLines.get(1) + "\n" + exampleLines.get(2) + "\n");
+        VesselCSVFollowedFile followedFile = VesselCSVFollowedFile.open(csvFile, offsetFile);
+        followedFile.readAppendedLines(100);
+        followedFile.commit();
+
+        Files.write(csvFile.toPath(), (exampleLines.get(3) + "\n").getBytes(StandardCharsets.UTF_8));
+        assertEquals(1, countVessels(VesselCSVFollowedFile.open(csvFile, offsetFile).readAppendedLines(100)));
+    }
+
+    private void append(String text) throws Exception {
+        Files.write(csvFile.toPath(), text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static int countVessels(VesselCSVTranslator appendedLines) {
+        int vessels = 0;
+        for (Pair<VesselCSVTranslator.MessageKey, XmlEntityPayload> messagePayload : appendedLines.getResultingMessagesPayloads()) {
+            vessels += messagePayload.getRight().getAnies().size();
+        }
+        return vessels;
+    }
+}
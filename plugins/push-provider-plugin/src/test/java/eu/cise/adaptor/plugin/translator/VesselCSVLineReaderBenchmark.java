@@ -0,0 +1,96 @@
+package eu.cise.adaptor.plugin.translator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the lines per second read by the previous {@link Scanner} loop and by {@link VesselCSVLineReader} on a generated csv file
+ * of one million rows. Both loops skip the header and the blank lines and decode the remaining lines, as the translator does.
+ * <p>
+ * Not part of the unit tests, run it with the main method from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class VesselCSVLineReaderBenchmark {
+
+    static final int ROWS = 1_000_000;
+
+    private File csvFile;
+
+    @Setup
+    public void createCSVFile() throws IOException {
+        csvFile = File.createTempFile("vessels-benchmark", ".csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(csvFile.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(VesselCSVTranslator.csvHeaderRow);
+            for (int i = 0; i < ROWS; i++) {
+                writer.newLine();
+                writer.write((9_000_000 + i) + ",2" + (10_000_000 + i) + ",-6.2" + (i % 1000) + ",43.4" + (i % 1000)
+                        + ",2023-06-12 10:15:" + String.format("%02d", i % 60) + ",myService.vessel.push.provider,context-" + (i % 50) + ",");
+            }
+        }
+    }
+
+    @TearDown
+    public void deleteCSVFile() throws IOException {
+        Files.deleteIfExists(csvFile.toPath());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void scanner(Blackhole blackhole) throws IOException {
+        try (Scanner scanner = new Scanner(csvFile)) {
+            while (scanner.hasNextLine()) {
+                String currentEntry = scanner.nextLine();
+                if (!currentEntry.startsWith("IMO_Number") && !currentEntry.isBlank()) {
+                    blackhole.consume(currentEntry);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void lineReader(Blackhole blackhole) throws IOException {
+        try (VesselCSVLineReader lineReader = new VesselCSVLineReader(csvFile)) {
+            while (lineReader.nextLine()) {
+                if (!lineReader.startsWith(VesselCSVTranslator.csvHeaderPrefix) && !lineReader.isBlank()) {
+                    blackhole.consume(lineReader.getLine());
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(VesselCSVLineReaderBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,116 @@
+package eu.cise.adaptor.plugin.translator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VesselCSVLineReaderTest {
+
+    @TempDir
+    Path inputDirectory;
+
+    @Test
+    void it_reads_lines_ending_with_lf_and_crlf() throws IOException {
+        File csvFile = write("first\nsecond\r\nthird\n");
+
+        assertEquals(List.of("1:first", "2:second", "3:third"), readAll(csvFile, VesselCSVLineReader.DEFAULT_REGION_SIZE));
+    }
+
+    @Test
+    void it_reads_the_last_line_without_line_separator() throws IOException {
+        File csvFile = write("first\nlast");
+
+        assertEquals(List.of("1:first", "2:last"), readAll(csvFile, VesselCSVLineReader.DEFAULT_REGION_SIZE));
+    }
+
+    @Test
+    void it_reads_lines_spanning_several_regions() throws IOException {
+        File csvFile = write("a first long line\nsecond\n\n\u00e0 la fin\n");
+
+        assertEquals(List.of("1:a first long line", "2:second", "3:", "4:\u00e0 la fin"), readAll(csvFile, 3));
+    }
+
+    @Test
+    void it_skips_the_byte_order_mark_and_recognises_header_and_blank_lines() throws IOException {
+        File csvFile = write("\uFEFF" + VesselCSVTranslator.csvHeaderRow + "\n \t\n1,2\n");
+
+        try (VesselCSVLineReader lineReader = new VesselCSVLineReader(csvFile)) {
+            assertTrue(lineReader.nextLine());
+            assertTrue(lineReader.startsWith(VesselCSVTranslator.csvHeaderPrefix));
+            assertTrue(lineReader.nextLine());
+            assertTrue(lineReader.isBlank());
+            assertTrue(lineReader.nextLine());
+            assertFalse(lineReader.isBlank());
+            assertEquals(3, lineReader.getLineNumber());
+            assertFalse(lineReader.nextLine());
+        }
+    }
+
+    @Test
+    void it_reads_nothing_from_an_empty_file() throws IOException {
+        assertEquals(List.of(), readAll(write(""), VesselCSVLineReader.DEFAULT_REGION_SIZE));
+    }
+
+    @Test
+    void it_reads_a_gzip_compressed_file_from_an_offset_of_the_decompressed_bytes() throws IOException {
+        File csvFile = inputDirectory.resolve("vessels.csv.gz").toFile();
+        try (OutputStream outputStream = new GZIPOutputStream(Files.newOutputStream(csvFile.toPath()))) {
+            outputStream.write("\uFEFFfirst\r\nsecond\n\u00e0 la fin".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertEquals(List.of("1:first", "2:second", "3:\u00e0 la fin"), readAll(csvFile, 4));
+        try (VesselCSVLineReader lineReader = new VesselCSVLineReader(csvFile, 10L, 1)) {
+            assertTrue(lineReader.nextLine());
+            assertEquals("second", lineReader.getLine());
+            assertEquals(17L, lineReader.getNextLineOffset());
+            assertTrue(lineReader.nextLine());
+            assertFalse(lineReader.isLineTerminated());
+            assertFalse(lineReader.nextLine());
+        }
+    }
+
+    @Test
+    void it_reads_a_chunk_region_by_region_and_releases_the_file_once_closed() throws IOException {
+        File csvFile = write("first\nsecond line\nthird\nfourth\n");
+
+        try (VesselCSVLineReader lineReader = new VesselCSVLineReader(csvFile, 4, 6L, 0)) {
+            assertTrue(lineReader.nextLine());
+            assertEquals("second line", lineReader.getLine());
+            assertEquals(18L, lineReader.getNextLineOffset());
+            assertTrue(lineReader.nextLine());
+            assertTrue(lineReader.nextLine());
+            assertEquals("fourth", lineReader.getLine());
+            assertFalse(lineReader.nextLine());
+            assertEquals(csvFile.length(), lineReader.getNextLineOffset());
+        }
+        Files.move(csvFile.toPath(), inputDirectory.resolve("moved.csv"));
+        Files.delete(inputDirectory.resolve("moved.csv"));
+    }
+
+    private File write(String content) throws IOException {
+        return Files.write(inputDirectory.resolve("vessels.csv"), content.getBytes(StandardCharsets.UTF_8)).toFile();
+    }
+
+    private static List<String> readAll(File csvFile, int regionSize) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (VesselCSVLineReader lineReader = new VesselCSVLineReader(csvFile, regionSize)) {
+            while (lineReader.nextLine()) {
+                lines.add(lineReader.getLineNumber() + ":" + lineReader.getLine());
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,99 @@
+package eu.cise.adaptor.plugin.translator;
+
+import eu.cise.adaptor.core.servicehandler.domain.RegisteredMessage;
+import eu.cise.servicemodel.v1.message.Acknowledgement;
+import eu.cise.servicemodel.v1.message.AcknowledgementType;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VesselCSVMessageSplitterTest {
+
+    private static final String RECIPIENT = "push.consumer.id,"; // field of the recipientServiceId column, with its separator
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void it_splits_a_group_by_number_of_vessels_and_reports_the_message_of_each_line() throws IOException {
+        VesselCSVTranslator translated = VesselCSVTranslator.vesselCSVToCISE(writeFile("vessels.csv",
+                line("context-1"), line("context-1"), line("context-2"), line("context-1"), line("context-1"), line("context-1")));
+        translated.splitMessages(new VesselCSVMessageSplitter(2, 0L));
+
+        List<VesselCSVTranslator.MessageKey> messageKeys = translated.getMessageKeys();
+        assertEquals(4, messageKeys.size());
+        int[] expectedVessels = {2, 2, 1, 1};
+        for (int i = 0; i < messageKeys.size(); i++) {
+            assertEquals(i < 3 ? "context-1" : "context-2", messageKeys.get(i).getContextId());
+            assertEquals(i < 3 ? i : 0, messageKeys.get(i).getPart());
+            assertEquals(expectedVessels[i], translated.getMessagePayload(messageKeys.get(i)).getAnies().size());
+            translated.updateEntriesWithMessageResult(messageKeys.get(i), messageResult("message-" + i));
+        }
+
+        File sentDetailsFile = directory.resolve("sentDetails.csv").toFile();
+        translated.writeOutputFileWithGeneratedMessageDetails(sentDetailsFile);
+        List<String> sentDetailsLines = Files.readAllLines(sentDetailsFile.toPath());
+        String[] expectedMessageIds = {"message-0", "message-0", "message-3", "message-1", "message-1", "message-2"};
+        for (int i = 0; i < expectedMessageIds.length; i++) {
+            assertTrue(sentDetailsLines.get(i + 1).endsWith("," + expectedMessageIds[i] + ",null,SUCCESS,null"));
+        }
+    }
+
+    @Test
+    void it_splits_a_group_by_estimated_bytes_in_both_modes() throws IOException {
+        File csvFile = writeFile("vessels.csv", line("context-1"), line("context-1"), line("context-1"), line("context-1"), line("context-1"));
+        long vesselBytes = VesselCSVMessageSplitter.estimateVesselBytes(true, true, true, true, null);
+        VesselCSVMessageSplitter messageSplitter = new VesselCSVMessageSplitter(0, 2 * vesselBytes + 1);
+        VesselCSVTranslator entries = VesselCSVTranslator.vesselCSVToCISE(csvFile);
+        VesselCSVTranslator columns = VesselCSVTranslator.vesselCSVToCISEColumnar(csvFile);
+        entries.splitMessages(messageSplitter);
+        columns.splitMessages(messageSplitter);
+
+        assertEquals(3, entries.getMessageKeys().size());
+        assertEquals(entries.getMessageKeys(), columns.getMessageKeys());
+        for (VesselCSVTranslator.MessageKey messageKey : entries.getMessageKeys()) {
+            assertEquals(entries.getMessagePayload(messageKey).getAnies().size(), columns.getMessagePayload(messageKey).getAnies().size());
+        }
+        assertEquals(1, entries.getMessagePayload(entries.getMessageKeys().get(2)).getAnies().size());
+    }
+
+    @Test
+    void it_keeps_a_group_within_the_limits_in_one_message() throws IOException {
+        VesselCSVTranslator translated = VesselCSVTranslator.vesselCSVToCISE(writeFile("vessels.csv", line("context-1"), line("context-1")));
+        VesselCSVTranslator.MessageKey messageKey = translated.getMessageKeys().get(0);
+        translated.splitMessages(new VesselCSVMessageSplitter(2, 100_000L));
+
+        assertEquals(List.of(messageKey), translated.getMessageKeys());
+        assertEquals(0, translated.getMessageKeys().get(0).getPart());
+        assertEquals(2, translated.getMessagePayload(messageKey).getAnies().size());
+    }
+
+    private static String line(String contextId) {
+        return "7710525,232000000,22.253667,34.438333,2023-09-27 05:42:44," + RECIPIENT + contextId + ",reference-1";
+    }
+
+    private static ImmutablePair<RegisteredMessage, Acknowledgement> messageResult(String messageId) {
+        RegisteredMessage registeredMessage = mock(RegisteredMessage.class);
+        when(registeredMessage.getMessageId()).thenReturn(messageId);
+        Acknowledgement acknowledgement = mock(Acknowledgement.class);
+        when(acknowledgement.getAckCode()).thenReturn(AcknowledgementType.SUCCESS);
+        return new ImmutablePair<>(registeredMessage, acknowledgement);
+    }
+
+    private File writeFile(String fileName, String... lines) throws IOException {
+        File csvFile = directory.resolve(fileName).toFile();
+        Files.writeString(csvFile.toPath(), VesselCSVTranslator.csvHeaderRow + "\n" + String.join("\n", lines) + "\n");
+        return csvFile;
+    }
+}
@@ -1,21 +1,40 @@
 package eu.cise.adaptor.plugin.translator;
 
 
+import eu.cise.adaptor.core.servicehandler.domain.RegisteredMessage;
 import eu.cise.adaptor.plugin.TestHelper;
+import eu.cise.datamodel.v1.entity.location.Geometry;
+import eu.cise.datamodel.v1.entity.object.Objet;
 import eu.cise.datamodel.v1.entity.vessel.Vessel;
+import eu.cise.servicemodel.v1.message.Acknowledgement;
+import eu.cise.servicemodel.v1.message.AcknowledgementType;
 import eu.cise.servicemodel.v1.message.XmlEntityPayload;
+import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 class VesselCSVTranslatorTest {
 
@@ -108,4 +127,239 @@ class VesselCSVTranslatorTest {
         assertEquals(2, correctResults.size());
     }
 
-}
\ No newline at end of file
+    @Test
+    void it_marks_the_lines_with_errors_as_skipped_in_the_sent_details(@TempDir Path outputDirectory) throws IOException, URISyntaxException {
+        File csvFile = TestHelper.resourceToFile("vesselscsv/vessels_csv_example_wrong.csv");
+        VesselCSVTranslator result = VesselCSVTranslator.vesselCSVToCISE(csvFile);
+        RegisteredMessage registeredMessage = mock(RegisteredMessage.class);
+        when(registeredMessage.getMessageId()).thenReturn("message-1");
+        Acknowledgement acknowledgement = mock(Acknowledgement.class);
+        when(acknowledgement.getAckCode()).thenReturn(AcknowledgementType.SUCCESS);
+        for (Pair<VesselCSVTranslator.MessageKey, XmlEntityPayload> messagePayload : result.getResultingMessagesPayloads()) {
+            result.updateEntriesWithMessageResult(messagePayload.getLeft(), new ImmutablePair<>(registeredMessage, acknowledgement));
+        }
+
+        File sentDetailsFile = outputDirectory.resolve("sentDetails.csv").toFile();
+        result.writeOutputFileWithGeneratedMessageDetails(sentDetailsFile);
+
+        List<String> sentDetailsLines = Files.readAllLines(sentDetailsFile.toPath());
+        assertEquals(7, sentDetailsLines.size());
+        assertTrue(sentDetailsLines.get(1).contains(",null,null,SKIPPED,"));
+        assertTrue(sentDetailsLines.get(3).endsWith(",message-1,null,SUCCESS,null"));
+        assertTrue(sentDetailsLines.get(5).contains(",null,null,SKIPPED,"));
+    }
+
+    @Test
+    void it_gives_the_same_payloads_and_sent_details_in_columnar_mode(@TempDir Path outputDirectory) throws IOException, URISyntaxException {
+        File csvFile = TestHelper.resourceToFile("vesselscsv/vessels_csv_example_wrong.csv");
+        VesselCSVTranslator entries = VesselCSVTranslator.vesselCSVToCISE(csvFile);
+        VesselCSVTranslator columns = VesselCSVTranslator.vesselCSVToCISEColumnar(csvFile);
+
+        assertEquals(entries.getMessageKeys(), columns.getMessageKeys());
+        assertEquals(entries.getErrorLines().size(), columns.getErrorLines().size());
+        assertEquals(entries.getErrorLines().get(0).getTranslationException().getMessage(), columns.getErrorLines().get(0).getTranslationException().getMessage());
+        for (VesselCSVTranslator.MessageKey messageKey : entries.getMessageKeys()) {
+            List<Object> entryVessels = entries.getMessagePayload(messageKey).getAnies();
+            List<Object> columnVessels = columns.getMessagePayload(messageKey).getAnies();
+            assertEquals(entryVessels.size(), columnVessels.size());
+            for (int i = 0; i < entryVessels.size(); i++) {
+                Vessel entryVessel = (Vessel) entryVessels.get(i);
+                Vessel columnVessel = (Vessel) columnVessels.get(i);
+                assertEquals(entryVessel.getIMONumber(), columnVessel.getIMONumber());
+                assertEquals(entryVessel.getMMSI(), columnVessel.getMMSI());
+                assertEquals(entryVessel.getLocationRels().size(), columnVessel.getLocationRels().size());
+                if (!entryVessel.getLocationRels().isEmpty()) {
+                    Objet.LocationRel entryLocation = entryVessel.getLocationRels().get(0);
+                    Objet.LocationRel columnLocation = columnVessel.getLocationRels().get(0);
+                    assertEquals(entryLocation.getLocation().getGeometries().get(0).getLatitude(), columnLocation.getLocation().getGeometries().get(0).getLatitude());
+                    assertEquals(entryLocation.getLocation().getGeometries().get(0).getLongitude(), columnLocation.getLocation().getGeometries().get(0).getLongitude());
+                    assertEquals(entryLocation.getPeriodOfTime().getStartDate(), columnLocation.getPeriodOfTime().getStartDate());
+                }
+            }
+        }
+
+        RegisteredMessage registeredMessage = mock(RegisteredMessage.class);
+        when(registeredMessage.getMessageId()).thenReturn("message-1");
+        Acknowledgement acknowledgement = mock(Acknowledgement.class);
+        when(acknowledgement.getAckCode()).thenReturn(AcknowledgementType.SUCCESS);
+        for (VesselCSVTranslator.MessageKey messageKey : entries.getMessageKeys()) {
+            entries.updateEntriesWithMessageResult(messageKey, new ImmutablePair<>(registeredMessage, acknowledgement));
+            columns.updateEntriesWithMessageResult(messageKey, new ImmutablePair<>(registeredMessage, acknowledgement));
+        }
+        File entriesSentDetails = outputDirectory.resolve("entriesSentDetails.csv").toFile();
+        File columnsSentDetails = outputDirectory.resolve("columnsSentDetails.csv").toFile();
+        entries.writeOutputFileWithGeneratedMessageDetails(entriesSentDetails);
+        columns.writeOutputFileWithGeneratedMessageDetails(columnsSentDetails);
+        assertEquals(Files.readAllLines(entriesSentDetails.toPath()), Files.readAllLines(columnsSentDetails.toPath()));
+    }
+
+    @Test
+    void it_writes_the_coordinates_as_in_the_file_in_columnar_mode(@TempDir Path outputDirectory) throws IOException {
+        File csvFile = outputDirectory.resolve("coordinates.csv").toFile();
+        Files.writeString(csvFile.toPath(), VesselCSVTranslator.csvHeaderRow + "\n"
+                + "7710525,232000000,22,43.400000,2023-09-27 05:42:44,push.consumer.id,context-1,ref-1\n"
+                + "7710526,232000001,-0.50,1.25,2023-09-27 05:42:44,push.consumer.id,context-1,ref-1\n"
+                + "7710527,232000002,22.253667,34.438333,2023-09-27 05:42:44,push.consumer.id,context-1,ref-1\n");
+        VesselCSVTranslator entries = VesselCSVTranslator.vesselCSVToCISE(csvFile);
+        VesselCSVTranslator columns = VesselCSVTranslator.vesselCSVToCISEColumnar(csvFile);
+
+        VesselCSVTranslator.MessageKey messageKey = entries.getMessageKeys().get(0);
+        List<Object> entryVessels = entries.getMessagePayload(messageKey).getAnies();
+        List<Object> columnVessels = columns.getMessagePayload(messageKey).getAnies();
+        List<String> coordinates = new ArrayList<>();
+        assertEquals(3, columnVessels.size());
+        for (int i = 0; i < entryVessels.size(); i++) {
+            Geometry entryGeometry = ((Vessel) entryVessels.get(i)).getLocationRels().get(0).getLocation().getGeometries().get(0);
+            Geometry columnGeometry = ((Vessel) columnVessels.get(i)).getLocationRels().get(0).getLocation().getGeometries().get(0);
+            assertEquals(entryGeometry.getLatitude(), columnGeometry.getLatitude());
+            assertEquals(entryGeometry.getLongitude(), columnGeometry.getLongitude());
+            coordinates.add(columnGeometry.getLongitude() + "," + columnGeometry.getLatitude());
+        }
+        assertEquals(List.of("22,43.400000", "-0.50,1.25", "22.253667,34.438333"), coordinates);
+    }
+
+    @Test
+    void it_gives_the_same_lines_when_translating_the_chunks_of_a_large_file_in_parallel(@TempDir Path outputDirectory) throws IOException, URISyntaxException {
+        List<String> exampleLines = Files.readAllLines(TestHelper.resourceToFile("vesselscsv/vessels_csv_example_wrong.csv").toPath());
+        File csvFile = outputDirectory.resolve("large.csv").toFile();
+        StringBuilder csvContent = new StringBuilder(exampleLines.get(0)).append('\n');
+        while (csvContent.length() < 3 * 1024 * 1024) { // larger than the minimum size of a chunk
+            exampleLines.subList(1, exampleLines.size()).forEach(line -> csvContent.append(line).append('\n'));
+        }
+        Files.writeString(csvFile.toPath(), csvContent);
+
+        VesselCSVTranslator sequential = VesselCSVTranslator.vesselCSVToCISE(csvFile);
+        ForkJoinPool translationPool = new ForkJoinPool(2);
+        VesselCSVTranslator parallel;
+        try {
+            parallel = VesselCSVTranslator.vesselCSVToCISE(csvFile, translationPool, 0);
+        } finally {
+            translationPool.shutdownNow();
+        }
+
+        assertEquals(sequential.getMessageKeys(), parallel.getMessageKeys());
+        for (VesselCSVTranslator.MessageKey messageKey : sequential.getMessageKeys()) {
+            assertEquals(sequential.getMessagePayload(messageKey).getAnies().size(), parallel.getMessagePayload(messageKey).getAnies().size());
+        }
+        assertEquals(sequential.getErrorLines().size(), parallel.getErrorLines().size());
+        for (int i = 0; i < sequential.getErrorLines().size(); i++) {
+            assertEquals(sequential.getErrorLines().get(i).getLineNumber(), parallel.getErrorLines().get(i).getLineNumber());
+        }
+        File sequentialSentDetails = outputDirectory.resolve("sequentialSentDetails.csv").toFile();
+        File parallelSentDetails = outputDirectory.resolve("parallelSentDetails.csv").toFile();
+        sequential.writeOutputFileWithGeneratedMessageDetails(sequentialSentDetails);
+        parallel.writeOutputFileWithGeneratedMessageDetails(parallelSentDetails);
+        assertEquals(Files.readAllLines(sequentialSentDetails.toPath()), Files.readAllLines(parallelSentDetails.toPath()));
+    }
+
+    @Test
+    void it_merges_the_reports_of_the_chunks_of_a_split_file_in_the_order_of_the_lines(@TempDir Path outputDirectory) throws IOException, URISyntaxException {
+        File csvFile = TestHelper.resourceToFile("vesselscsv/vessels_csv_example_wrong.csv");
+        VesselCSVTranslator whole = VesselCSVTranslator.vesselCSVToCISE(csvFile);
+        File wholeSentDetails = outputDirectory.resolve("wholeSentDetails.csv").toFile();
+        File wholeErrors = outputDirectory.resolve("wholeErrors.csv").toFile();
+        whole.writeOutputFileWithGeneratedMessageDetails(wholeSentDetails);
+        whole.writeErrorLinesToFile(wholeErrors);
+
+        VesselCSVColumnMapping columnMapping = VesselCSVColumnMapping.readHeader(csvFile);
+        List<Long> chunkBoundaries = VesselCSVTranslator.findLineAlignedChunks(csvFile, 100);
+        List<Integer> linesBeforeChunks = VesselCSVTranslator.countLinesBeforeChunks(csvFile, chunkBoundaries);
+        assertTrue(chunkBoundaries.size() > 3);
+        List<File> sentDetailsChunks = new ArrayList<>();
+        List<File> errorChunks = new ArrayList<>();
+        for (int i = 0; i + 1 < chunkBoundaries.size(); i++) {
+            VesselCSVTranslator chunk = VesselCSVTranslator.vesselCSVChunkToCISE(csvFile, chunkBoundaries.get(i), chunkBoundaries.get(i + 1),
+                    linesBeforeChunks.get(i), columnMapping);
+            File sentDetailsChunk = outputDirectory.resolve("sentDetails.csv.chunk" + i).toFile();
+            chunk.writeOutputFileWithGeneratedMessageDetails(sentDetailsChunk);
+            sentDetailsChunks.add(sentDetailsChunk);
+            File errorChunk = outputDirectory.resolve("errors.csv.chunk" + i).toFile();
+            if (chunk.hasErrors()) {
+                chunk.writeErrorLinesToFile(errorChunk);
+            }
+            errorChunks.add(errorChunk);
+        }
+
+        File sentDetails = outputDirectory.resolve("sentDetails.csv").toFile();
+        File errors = outputDirectory.resolve("errors.csv").toFile();
+        assertTrue(VesselCSVTranslator.mergeReports(sentDetailsChunks, sentDetails));
+        assertTrue(VesselCSVTranslator.mergeReports(errorChunks, errors));
+        assertEquals(Files.readAllLines(wholeSentDetails.toPath()), Files.readAllLines(sentDetails.toPath()));
+        assertEquals(Files.readAllLines(wholeErrors.toPath()), Files.readAllLines(errors.toPath()));
+        assertTrue(sentDetailsChunks.stream().noneMatch(File::exists));
+        assertFalse(VesselCSVTranslator.mergeReports(sentDetailsChunks, outputDirectory.resolve("none.csv").toFile()));
+    }
+
+    @Test
+    void it_numbers_the_lines_of_the_chunks_from_the_beginning_of_the_file(@TempDir Path outputDirectory) throws IOException, URISyntaxException {
+        File csvFile = TestHelper.resourceToFile("vesselscsv/vessels_csv_example_wrong.csv");
+        VesselCSVTranslator whole = VesselCSVTranslator.vesselCSVToCISE(csvFile);
+        VesselCSVColumnMapping columnMapping = VesselCSVColumnMapping.readHeader(csvFile);
+        List<Long> chunkBoundaries = VesselCSVTranslator.findLineAlignedChunks(csvFile, csvFile.length() / 2);
+        assertEquals(3, chunkBoundaries.size());
+        List<Integer> linesBeforeChunks = VesselCSVTranslator.countLinesBeforeChunks(csvFile, chunkBoundaries);
+        assertEquals(0, linesBeforeChunks.get(0));
+        assertTrue(linesBeforeChunks.get(1) > 1);
+
+        List<VesselCSVTranslatorEntry> chunkErrorLines = new ArrayList<>();
+        List<File> errorChunks = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            VesselCSVTranslator chunk = VesselCSVTranslator.vesselCSVChunkToCISE(csvFile, chunkBoundaries.get(i), chunkBoundaries.get(i + 1),
+                    linesBeforeChunks.get(i), columnMapping);
+            chunkErrorLines.addAll(chunk.getErrorLines());
+            File errorChunk = outputDirectory.resolve("errors.csv.chunk" + i).toFile();
+            chunk.writeErrorLinesToFile(errorChunk);
+            errorChunks.add(errorChunk);
+        }
+
+        assertTrue(whole.getErrorLines().size() > 1);
+        assertTrue(chunkErrorLines.stream().anyMatch(entry -> entry.getLineNumber() > linesBeforeChunks.get(1))); // errors in both chunks
+        assertEquals(whole.getErrorLines().size(), chunkErrorLines.size());
+        for (int i = 0; i < whole.getErrorLines().size(); i++) {
+            assertEquals(whole.getErrorLines().get(i).getLineNumber(), chunkErrorLines.get(i).getLineNumber());
+            assertEquals(whole.getErrorLines().get(i).getCsvEntry(), chunkErrorLines.get(i).getCsvEntry());
+        }
+        File wholeErrors = outputDirectory.resolve("wholeErrors.csv").toFile();
+        File errors = outputDirectory.resolve("errors.csv").toFile();
+        whole.writeErrorLinesToFile(wholeErrors);
+        assertTrue(VesselCSVTranslator.mergeReports(errorChunks, errors));
+        assertEquals(Files.readAllLines(wholeErrors.toPath(), StandardCharsets.UTF_8), Files.readAllLines(errors.toPath(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void it_translates_a_gzip_compressed_file_and_writes_compressed_sent_details(@TempDir Path outputDirectory) throws IOException, URISyntaxException {
+        File csvFile = TestHelper.resourceToFile("vesselscsv/vessels_csv_example_wrong.csv");
+        File compressedFile = outputDirectory.resolve("vessels.csv.gz").toFile();
+        try (OutputStream outputStream = new GZIPOutputStream(Files.newOutputStream(compressedFile.toPath()))) {
+            Files.copy(csvFile.toPath(), outputStream);
+        }
+
+        VesselCSVTranslator plain = VesselCSVTranslator.vesselCSVToCISE(csvFile);
+        ForkJoinPool translationPool = new ForkJoinPool(2);
+        VesselCSVTranslator compressed;
+        try {
+            compressed = VesselCSVTranslator.vesselCSVToCISE(compressedFile, translationPool, 0); // translated sequentially
+        } finally {
+            translationPool.shutdownNow();
+        }
+
+        assertEquals(plain.getMessageKeys(), compressed.getMessageKeys());
+        assertEquals(plain.getErrorLines().size(), compressed.getErrorLines().size());
+        File plainSentDetails = outputDirectory.resolve("plainSentDetails.csv").toFile();
+        File compressedSentDetails = outputDirectory.resolve("compressedSentDetails.csv.gz").toFile();
+        plain.writeOutputFileWithGeneratedMessageDetails(plainSentDetails);
+        compressed.writeOutputFileWithGeneratedMessageDetails(compressedSentDetails);
+        compressed.appendErrorLinesToFile(outputDirectory.resolve("errors.csv.gz").toFile());
+        compressed.appendErrorLinesToFile(outputDirectory.resolve("errors.csv.gz").toFile()); // appended as a second gzip member
+        assertEquals(Files.readString(plainSentDetails.toPath(), StandardCharsets.UTF_8), readCompressed(compressedSentDetails));
+        String errors = readCompressed(outputDirectory.resolve("errors.csv.gz").toFile());
+        assertEquals(1 + 2 * compressed.getErrorLines().size(), errors.split(System.lineSeparator()).length);
+    }
+
+    private static String readCompressed(File compressedFile) throws IOException {
+        try (InputStream inputStream = new GZIPInputStream(Files.newInputStream(compressedFile.toPath()))) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+}
@@ -5,56 +5,118 @@ import eu.cise.adaptor.core.common.exceptions.CiseAdaptorRuntimeException;
 import eu.cise.adaptor.core.common.logging.AdaptorLogger;
 import eu.cise.adaptor.core.common.logging.LogConfig;
 import eu.cise.adaptor.core.common.logging.LoggerMessage;
-import eu.cise.adaptor.core.servicehandler.domain.RegisteredMessage;
 import eu.cise.adaptor.core.servicehandler.port.in.ReceiveFromLegacySystemPort;
-import eu.cise.adaptor.plugin.cisecontext.SubscribeProviderDeliver;
+import eu.cise.adaptor.plugin.cisecontext.impl.AdaptiveRateLimiter;
+import eu.cise.adaptor.plugin.cisecontext.impl.ReferenceMessageCache;
 import eu.cise.adaptor.plugin.cisecontext.impl.VesselInformationDeliver;
 import eu.cise.adaptor.plugin.config.SubscribeProviderPluginConfig;
+import eu.cise.adaptor.plugin.translator.VesselCSVCheckpointJournal;
+import eu.cise.adaptor.plugin.translator.VesselCSVColumnMapping;
+import eu.cise.adaptor.plugin.translator.VesselCSVCompression;
+import eu.cise.adaptor.plugin.translator.VesselCSVConflationQueue;
+import eu.cise.adaptor.plugin.translator.VesselCSVFollowedFile;
+import eu.cise.adaptor.plugin.translator.VesselCSVMessageSplitter;
+import eu.cise.adaptor.plugin.translator.VesselCSVStreamingTranslator;
 import eu.cise.adaptor.plugin.translator.VesselCSVTranslator;
-import eu.cise.servicemodel.v1.message.Acknowledgement;
 import eu.cise.servicemodel.v1.message.XmlEntityPayload;
+import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
+import static eu.cise.adaptor.plugin.translator.VesselCSVTranslator.vesselCSVChunkToCISE;
 import static eu.cise.adaptor.plugin.translator.VesselCSVTranslator.vesselCSVToCISE;
+import static eu.cise.adaptor.plugin.translator.VesselCSVTranslator.vesselCSVToCISEColumnar;
 
 /**
  * This class is used to monitor an input directory for incoming CSV files that can be translated in to CISE Messages.
  * When a new file is found, it is translated using the {@see VesselCSVTranslator} class
+ * <p>
+ * The files that are ready are detected by a {@link VesselCSVInputMonitor} and each of them is processed once, by a pool of file workers
+ * or by a {@link VesselCSVPipeline}. The groups of a translated file are sent by a {@link VesselCSVGroupDelivery}, then the file is moved
+ * to the output directory with its sent details, or to the error directory with its lines with errors. The processing modes enabled by
+ * the configuration are resolved by {@link VesselCSVProcessingModes}.
  */
 public class VesselCSVFileHandler {
 
     private static final AdaptorLogger logger = LogConfig.configureLogging(VesselCSVFileHandler.class);
-    private final SubscribeProviderDeliver vesselDeliver;
+    static final String CSV_EXTENSION = ".csv";
+    static final String COMPRESSED_CSV_EXTENSION = CSV_EXTENSION + VesselCSVCompression.GZIP_EXTENSION;
+    private final ReferenceMessageCache referenceMessageCache;
+    private final AdaptiveRateLimiter rateLimiter;
     private final File inputDirectory;
     private final File outputDirectory;
     private final File errorDirectory;
-    private final ScheduledExecutorService executorService;
-    Map<String, Long> unprocessedFiles;
+    private final VesselCSVInputMonitor inputMonitor;
+    private final ExecutorService fileWorkersExecutorService;
+    private final VesselCSVPipeline<InfoFile> pipeline;
+    private final VesselCSVStreamingTranslator streamingTranslator;
+    private final boolean checkpointEnabled;
+    private final boolean columnarEnabled;
+    private final ForkJoinPool translationPool; // null when the files are translated sequentially
+    private final long parallelTranslationThresholdBytes;
+    private final int followMaxLines;
+    private final String reportExtension; // extension of the sent details and error files
+    private final VesselCSVConflationQueue conflationQueue; // null when the positions are not conflated
+    private final long splitThresholdBytes; // 0 when the files are never split
+    private final long splitChunkBytes;
+    private final ExecutorService chunkWorkersExecutorService; // null when the files are never split
+    private final VesselCSVMessageSplitter messageSplitter;
+    private final VesselCSVGroupDelivery groupDelivery;
 
 
     public VesselCSVFileHandler(SubscribeProviderPluginConfig config, ReceiveFromLegacySystemPort receiveFromLegacySystemPort) {
 
-        this.vesselDeliver = new VesselInformationDeliver(receiveFromLegacySystemPort);
-        this.executorService = Executors.newScheduledThreadPool(1);
-        this.unprocessedFiles = new HashMap<>();
+        this.referenceMessageCache = new ReferenceMessageCache(config.getReferenceMessageCacheMaxEntries(), config.getReferenceMessageCacheTtlSeconds(),
+                config.getReferenceMessageCacheNotFoundTtlSeconds());
+        this.rateLimiter = new AdaptiveRateLimiter(config.getDeliveryRateLimitMaxPerSecond(), 0,
+                config.getDeliveryRateLimitMinPerSecond(), config.getDeliveryRateLimitTargetLatencyMillis(),
+                config.getDeliveryRateLimitIncreasePerSecond(), config.getDeliveryRateLimitDecreaseFactor());
+        this.fileWorkersExecutorService = Executors.newFixedThreadPool(Math.max(1, config.getCSVWorkerThreads()));
+        this.messageSplitter = new VesselCSVMessageSplitter(config.getCSVMessageMaxVessels(), config.getCSVMessageMaxBytes());
+        VesselCSVProcessingModes processingModes = new VesselCSVProcessingModes(config);
+        this.streamingTranslator = processingModes.isStreamingEnabled()
+                ? new VesselCSVStreamingTranslator(config.getCSVStreamingMaxBufferedLines(), config.getCSVStreamingMaxGroupLines(), messageSplitter)
+                : null;
+        this.checkpointEnabled = config.isCSVCheckpointEnabled();
+        this.columnarEnabled = processingModes.isColumnarEnabled();
+        this.translationPool = processingModes.getParallelTranslationThreads() > 0
+                ? new ForkJoinPool(processingModes.getParallelTranslationThreads())
+                : null;
+        this.parallelTranslationThresholdBytes = config.getCSVParallelTranslationThresholdBytes();
+        this.pipeline = processingModes.isPipelineEnabled()
+                ? new VesselCSVPipeline<>(new PipelineSteps(), config.getCSVPipelineParseThreads(), config.getCSVPipelineBuildThreads(),
+                config.getCSVPipelineDeliverThreads(), config.getCSVPipelineFileQueueCapacity(), config.getCSVPipelineGroupQueueCapacity())
+                : null;
+        this.followMaxLines = Math.max(1, config.getCSVFollowMaxLines());
+        this.reportExtension = config.isCSVOutputGzipEnabled() ? COMPRESSED_CSV_EXTENSION : CSV_EXTENSION;
+        this.conflationQueue = processingModes.isConflationEnabled() ? new VesselCSVConflationQueue() : null;
+        this.splitThresholdBytes = processingModes.getSplitThresholdBytes();
+        this.splitChunkBytes = Math.max(1L, config.getCSVSplitChunkBytes());
+        this.chunkWorkersExecutorService = splitThresholdBytes > 0
+                ? Executors.newFixedThreadPool(Math.max(1, config.getCSVSplitThreads()))
+                : null;
+        this.groupDelivery = new VesselCSVGroupDelivery(new VesselInformationDeliver(receiveFromLegacySystemPort, referenceMessageCache, rateLimiter),
+                conflationQueue, processingModes);
 
         // create and verify the required directories objects
         // input
@@ -66,6 +128,7 @@ public class VesselCSVFileHandler {
         // error
         this.errorDirectory = new File(config.getCSVErrorDirectory());
         validateDirectory(errorDirectory);
+        this.inputMonitor = new VesselCSVInputMonitor(config, inputDirectory, new InputFiles());
     }
 
     private void validateDirectory(File inputDir) {
@@ -78,70 +141,371 @@ public class VesselCSVFileHandler {
      * Start monitoring
      */
     public void start() {
-        executorService.scheduleAtFixedRate(this::monitorInputDirectory, 0, 5, TimeUnit.SECONDS);
+        if (pipeline != null) {
+            pipeline.start();
+        }
+        inputMonitor.start();
     }
 
-    private boolean isFileToBeProcessed(File foundFile) {
-        boolean toBeProcessed = false;
-
-        if (unprocessedFiles.containsKey(foundFile.getAbsolutePath())) {
-            // check if the size has changed
-            long storedSize = unprocessedFiles.get(foundFile.getAbsolutePath());
-            // calculate current size
-            long currentSize = getCurrentFileSize(foundFile.getAbsolutePath());
-            toBeProcessed = currentSize == storedSize && currentSize > 0L;
+    /**
+     * @return the name of the file without its extension, without both extensions for a compressed CSV file
+     */
+    private static String getBaseName(String fileName) {
+        if (fileName.endsWith(COMPRESSED_CSV_EXTENSION)) {
+            return fileName.substring(0, fileName.length() - COMPRESSED_CSV_EXTENSION.length());
         }
-        return toBeProcessed;
+        return fileName.contains(".") ? fileName.substring(0, fileName.lastIndexOf(".")) : fileName;
     }
 
-    private void monitorInputDirectory() {
-        logger.debug(LoggerMessage.of("Monitoring incoming CSV dir: {}", inputDirectory.getAbsolutePath()));
-        for (File foundFile : Objects.requireNonNull(inputDirectory.listFiles((dir, name) -> name.endsWith(".csv")))) {
+    /**
+     * Hands a followed file to the file workers, unless a worker is already delivering its appended lines
+     */
+    private void dispatchFollowedFile(File followedFile) {
+        if (followedFile.isFile() && inputMonitor.claim(followedFile)) {
+            fileWorkersExecutorService.execute(() -> {
+                try {
+                    followFile(followedFile);
+                } finally {
+                    inputMonitor.release(followedFile);
+                }
+            });
+        }
+    }
 
-            if (isFileToBeProcessed(foundFile)) {
-                InfoFile infoFile = new InfoFile(foundFile);
+    /**
+     * Delivers the complete lines appended to a followed file since the last committed offset, in batches of at most the configured
+     * number of lines, until the end of the file. The file cannot be held back, so the valid lines are always delivered. The sent details
+     * and the lines with errors are appended to files named after the followed file, in the output and error directories.
+     */
+    private void followFile(File followedFile) {
+        String baseName = getBaseName(followedFile.getName());
+        File sentDetailsFile = new File(outputDirectory, baseName + "_sentDetails" + reportExtension);
+        File errorFile = new File(errorDirectory, baseName + reportExtension);
+        VesselCSVFollowedFile followed = null;
+        try {
+            followed = VesselCSVFollowedFile.open(followedFile, new File(inputDirectory, followedFile.getName() + VesselCSVInputMonitor.OFFSET_EXTENSION));
+            VesselCSVTranslator appendedLines;
+            while ((appendedLines = followed.readAppendedLines(followMaxLines)) != null) {
+                appendedLines.splitMessages(messageSplitter);
+                List<VesselCSVTranslator.MessageKey> messageKeys = appendedLines.getMessageKeys();
+                for (VesselCSVTranslator.MessageKey messageKey : messageKeys) {
+                    appendedLines.updateEntriesWithMessageResult(messageKey, groupDelivery.sendMessage(messageKey, appendedLines.getMessagePayload(messageKey)));
+                }
+                appendedLines.appendGeneratedMessageDetailsToFile(sentDetailsFile);
+                if (appendedLines.hasErrors()) {
+                    appendedLines.appendErrorLinesToFile(errorFile);
+                    logger.warn(LoggerMessage.of("Appended {} error lines of followed file {} to {}", appendedLines.getErrorLines().size(), followedFile.getAbsolutePath(), errorFile.getAbsolutePath()));
+                }
+                followed.commit();
+                logger.info(LoggerMessage.of("Delivered {} messages from followed file {} up to offset {}", messageKeys.size(), followedFile.getAbsolutePath(), followed.getOffset()));
+            }
+        } catch (Exception ex) {
+            logger.error(LoggerMessage.of("Exception occurred while following {}, the lines after offset {} will be delivered at the next check. {} , stackTrace: {}",
+                    followedFile.getAbsolutePath(), followed != null ? followed.getOffset() : 0L, ex.getMessage(), getStackTraceAsString(ex)));
+        }
+    }
 
-                // translate the file
+    /**
+     * Hands a stable file to the file workers. A file is claimed by exactly one worker and released once it has been moved
+     * out of the input directory.
+     */
+    private void dispatchFile(File foundFile) {
+        if (inputMonitor.claim(foundFile)) {
+            if (pipeline != null && !isToBeSplit(foundFile)) {
+                if (!pipeline.submit(new InfoFile(foundFile))) {
+                    inputMonitor.release(foundFile); // the pipeline is full, the file will be dispatched again by a later check
+                }
+                return;
+            }
+            fileWorkersExecutorService.execute(() -> {
                 try {
-                    VesselCSVTranslator vesselCSVTranslatorToCiseResult = vesselCSVToCISE(foundFile);
-                    if (!vesselCSVTranslatorToCiseResult.hasErrors()) {
-
-                        // send the generated messages
-                        for (Pair<VesselCSVTranslator.MessageKey, XmlEntityPayload> messageEntry : vesselCSVTranslatorToCiseResult.getResultingMessagesPayloads()) {
-
-                            VesselCSVTranslator.MessageKey messageKey = messageEntry.getKey();
-                            List<Pair<RegisteredMessage, Acknowledgement>> sendResult = vesselDeliver.deliver(
-                                    messageKey.getReferenceMessageId(),
-                                    messageKey.getContextId(),
-                                    messageEntry.getRight());
-
-                            // there should be only 1 entry in the list and that entry we can use to update the results
-                            vesselCSVTranslatorToCiseResult.updateEntriesWithMessageResult(messageKey, sendResult.get(0));
-                        }
-
-                        // after all the entries have been sent write outputFile with details
-                        vesselCSVTranslatorToCiseResult.writeOutputFileWithGeneratedMessageDetails(infoFile.outputFileWithSentInformation);
-
-                    } else if (!vesselCSVTranslatorToCiseResult.getErrorLines().isEmpty()) {
-                        // if there were errors, write the error file with the problematic lines
-                        vesselCSVTranslatorToCiseResult.writeErrorLinesToFile(infoFile.errorFile);
-                        logger.warn(LoggerMessage.of("Created error file {} with {} error lines", infoFile.errorFile.getAbsolutePath(), vesselCSVTranslatorToCiseResult.getErrorLines().size()));
-                    }
-
-                    // since the file has been processed, move the original file to the output directory
-                    moveFileToLocation(infoFile.inputFile, infoFile.outputFile);
-                    unprocessedFiles.remove(foundFile.getAbsolutePath());
-
-                } catch (Exception ex) {
-                    logger.error(LoggerMessage.of("Exception occurred During translation. {} , stackTrace: {}", ex.getMessage(), getStackTraceAsString(ex)));
-                    logger.error(LoggerMessage.of("Moving file to Error directory {} ", infoFile.errorFile.getAbsolutePath()));
-                    moveFileToLocation(infoFile.inputFile, infoFile.errorFile);
-                    unprocessedFiles.remove(foundFile.getAbsolutePath());
+                    processFile(foundFile);
+                } finally {
+                    inputMonitor.release(foundFile);
+                }
+            });
+        }
+    }
+
+    /**
+     * Translates and delivers a file on the calling thread, then moves it out of the input directory
+     */
+    void processFile(File foundFile) {
+        InfoFile infoFile = new InfoFile(foundFile);
+        Exception failure = null;
+
+        // translate the file
+        try {
+            if (isToBeSplit(infoFile.inputFile)) {
+                translateAndDeliverChunks(infoFile);
+            } else {
+                openCheckpointJournal(infoFile);
+                if (streamingTranslator != null) {
+                    translateAndDeliverStreaming(infoFile);
+                } else {
+                    translateAndDeliver(infoFile);
+                }
+            }
+        } catch (Exception ex) {
+            failure = ex;
+        }
+        completeFile(infoFile, failure);
+    }
+
+    private void openCheckpointJournal(InfoFile infoFile) throws IOException {
+        if (checkpointEnabled) {
+            infoFile.checkpointJournal = VesselCSVCheckpointJournal.open(infoFile.checkpointFile, infoFile.inputFile);
+        }
+    }
+
+    /**
+     * Moves the processed file to the output directory, or to the error directory when its processing failed, and releases the
+     * resources of the file
+     */
+    private void completeFile(InfoFile infoFile, Exception failure) {
+        try {
+            if (failure == null) {
+                // since the file has been processed, move the original file to the output directory
+                moveFileToLocation(infoFile.inputFile, infoFile.outputFile);
+            } else {
+                logger.error(LoggerMessage.of("Exception occurred During translation. {} , stackTrace: {}", failure.getMessage(), getStackTraceAsString(failure)));
+                logger.error(LoggerMessage.of("Moving file to Error directory {} ", infoFile.failedFile.getAbsolutePath()));
+                moveFileToLocation(infoFile.inputFile, infoFile.failedFile);
+            }
+        } finally {
+            if (infoFile.checkpointJournal != null) {
+                closeCheckpointJournal(infoFile.checkpointJournal, infoFile.inputFile);
+            }
+            for (VesselCSVCheckpointJournal chunkCheckpointJournal : infoFile.chunkCheckpointJournals) {
+                closeCheckpointJournal(chunkCheckpointJournal, infoFile.inputFile);
+            }
+            inputMonitor.forget(infoFile.inputFile);
+        }
+    }
+
+    private static void closeCheckpointJournal(VesselCSVCheckpointJournal checkpointJournal, File inputFile) {
+        try {
+            checkpointJournal.close();
+        } catch (IOException ex) {
+            logger.error(LoggerMessage.of("Unable to close checkpoint journal of {}. Exception message: {}", inputFile.getAbsolutePath(), ex.getMessage()));
+        }
+        if (!inputFile.exists()) {
+            // the file has been moved to the output or error directory, it will not be resumed
+            checkpointJournal.delete();
+        }
+    }
+
+    private void translateAndDeliver(InfoFile infoFile) throws Exception {
+        VesselCSVTranslator vesselCSVTranslatorToCiseResult = translateFile(infoFile.inputFile);
+        groupDelivery.deliverGroups(vesselCSVTranslatorToCiseResult, infoFile.checkpointJournal);
+        writeReports(infoFile, vesselCSVTranslatorToCiseResult);
+    }
+
+    /**
+     * @return true if the file is to be processed in chunks, it is not compressed and reaches the split threshold
+     */
+    private boolean isToBeSplit(File inputFile) {
+        return splitThresholdBytes > 0 && !VesselCSVCompression.isGzipCompressed(inputFile) && inputFile.length() >= splitThresholdBytes;
+    }
+
+    /**
+     * Processes a file larger than the split threshold in line-aligned chunks, handed to the chunk workers. Each chunk is translated,
+     * delivered and reported on its own, then the reports of the chunks are merged in the order of the chunks. The reports of the
+     * chunks that succeeded are merged even if another chunk failed, the file is moved to the error directory anyway.
+     */
+    private void translateAndDeliverChunks(InfoFile infoFile) throws Exception {
+        File inputFile = infoFile.inputFile;
+        VesselCSVColumnMapping columnMapping = VesselCSVColumnMapping.readHeader(inputFile);
+        List<Long> chunkBoundaries = VesselCSVTranslator.findLineAlignedChunks(inputFile, splitChunkBytes);
+        List<Integer> linesBeforeChunks = VesselCSVTranslator.countLinesBeforeChunks(inputFile, chunkBoundaries);
+        logger.info(LoggerMessage.of("Splitting inputFile found in {} chunks: {}", chunkBoundaries.size() - 1, inputFile.getAbsolutePath()));
+
+        List<File> sentDetailsChunkFiles = new ArrayList<>();
+        List<File> errorChunkFiles = new ArrayList<>();
+        List<Future<Pair<Integer, Integer>>> chunkTasks = new ArrayList<>();
+        for (int chunkIndex = 0; chunkIndex + 1 < chunkBoundaries.size(); chunkIndex++) {
+            long chunkStart = chunkBoundaries.get(chunkIndex);
+            long chunkEnd = chunkBoundaries.get(chunkIndex + 1);
+            int previousLines = linesBeforeChunks.get(chunkIndex);
+            // the journal of a chunk is found again after a restart as long as the chunk size is not changed
+            File checkpointFile = new File(inputDirectory, infoFile.checkpointFile.getName() + "." + chunkIndex);
+            File sentDetailsChunkFile = new File(outputDirectory, infoFile.outputFileWithSentInformation.getName() + ".chunk" + chunkIndex);
+            File errorChunkFile = new File(errorDirectory, infoFile.errorFile.getName() + ".chunk" + chunkIndex);
+            sentDetailsChunkFiles.add(sentDetailsChunkFile);
+            errorChunkFiles.add(errorChunkFile);
+            chunkTasks.add(chunkWorkersExecutorService.submit(() ->
+                    translateAndDeliverChunk(infoFile, chunkStart, chunkEnd, previousLines, columnMapping, checkpointFile, sentDetailsChunkFile, errorChunkFile)));
+        }
+
+        Exception failure = null;
+        int errorLines = 0;
+        int conflatedLines = 0;
+        for (Future<Pair<Integer, Integer>> chunkTask : chunkTasks) {
+            try {
+                Pair<Integer, Integer> chunkLines = chunkTask.get();
+                errorLines += chunkLines.getLeft();
+                conflatedLines += chunkLines.getRight();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                chunkTasks.forEach(task -> task.cancel(true));
+                throw new InterruptedIOException("Interrupted while processing the chunks of " + inputFile.getAbsolutePath());
+            } catch (ExecutionException ex) {
+                if (failure == null) {
+                    failure = ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex;
+                }
+            }
+        }
+
+        VesselCSVTranslator.mergeReports(sentDetailsChunkFiles, infoFile.outputFileWithSentInformation);
+        if (conflatedLines > 0) {
+            logger.info(LoggerMessage.of("Conflated {} positions of {} replaced by newer positions of the same vessels", conflatedLines, inputFile.getAbsolutePath()));
+        }
+        if (VesselCSVTranslator.mergeReports(errorChunkFiles, infoFile.errorFile)) {
+            logger.warn(LoggerMessage.of("Created error file {} with {} error lines", infoFile.errorFile.getAbsolutePath(), errorLines));
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * @return the number of lines with errors and the number of conflated lines of the chunk
+     */
+    private Pair<Integer, Integer> translateAndDeliverChunk(InfoFile infoFile, long chunkStart, long chunkEnd, int previousLines,
+                                                            VesselCSVColumnMapping columnMapping, File checkpointFile, File sentDetailsChunkFile, File errorChunkFile) throws Exception {
+        VesselCSVTranslator vesselCSVTranslatorToCiseResult = vesselCSVChunkToCISE(infoFile.inputFile, chunkStart, chunkEnd, previousLines, columnMapping);
+        vesselCSVTranslatorToCiseResult.splitMessages(messageSplitter);
+        VesselCSVCheckpointJournal checkpointJournal = null;
+        if (checkpointEnabled) {
+            checkpointJournal = VesselCSVCheckpointJournal.open(checkpointFile, infoFile.inputFile);
+            infoFile.chunkCheckpointJournals.add(checkpointJournal); // closed once the file has been moved
+        }
+        groupDelivery.deliverGroups(vesselCSVTranslatorToCiseResult, checkpointJournal);
+        writeReportFiles(vesselCSVTranslatorToCiseResult, sentDetailsChunkFile, errorChunkFile);
+        return new ImmutablePair<>(vesselCSVTranslatorToCiseResult.getErrorLines().size(), vesselCSVTranslatorToCiseResult.getConflatedLines());
+    }
+
+    private VesselCSVTranslator translateFile(File inputFile) throws IOException {
+        VesselCSVTranslator vesselCSVTranslatorToCiseResult = columnarEnabled
+                ? vesselCSVToCISEColumnar(inputFile)
+                : vesselCSVToCISE(inputFile, translationPool, parallelTranslationThresholdBytes);
+        vesselCSVTranslatorToCiseResult.splitMessages(messageSplitter);
+        return vesselCSVTranslatorToCiseResult;
+    }
+
+    private void writeReports(InfoFile infoFile, VesselCSVTranslator vesselCSVTranslatorToCiseResult) throws IOException {
+        writeReportFiles(vesselCSVTranslatorToCiseResult, infoFile.outputFileWithSentInformation, infoFile.errorFile);
+        if (conflationQueue != null && vesselCSVTranslatorToCiseResult.getConflatedLines() > 0) {
+            logger.info(LoggerMessage.of("Conflated {} positions of {} replaced by newer positions of the same vessels", vesselCSVTranslatorToCiseResult.getConflatedLines(),
+                    infoFile.inputFile.getAbsolutePath()));
+        }
+        if (vesselCSVTranslatorToCiseResult.hasErrors()) {
+            logger.warn(LoggerMessage.of("Created error file {} with {} error lines", infoFile.errorFile.getAbsolutePath(), vesselCSVTranslatorToCiseResult.getErrorLines().size()));
+        }
+    }
+
+    private void writeReportFiles(VesselCSVTranslator vesselCSVTranslatorToCiseResult, File outputFileWithSentInformation, File errorFile) throws IOException {
+        if (groupDelivery.isToBeDelivered(vesselCSVTranslatorToCiseResult)) {
+            // after all the entries have been sent write outputFile with details
+            vesselCSVTranslatorToCiseResult.writeOutputFileWithGeneratedMessageDetails(outputFileWithSentInformation);
+        }
+
+        if (vesselCSVTranslatorToCiseResult.hasErrors()) {
+            // if there were errors, write the error file with the problematic lines
+            vesselCSVTranslatorToCiseResult.writeErrorLinesToFile(errorFile);
+        }
+    }
+
+    private void translateAndDeliverStreaming(InfoFile infoFile) throws Exception {
+        VesselCSVStreamingTranslator.StreamingResult streamingResult = streamingTranslator.translate(infoFile.inputFile,
+                infoFile.outputFileWithSentInformation, infoFile.errorFile, groupDelivery::sendMessage, infoFile.checkpointJournal);
+
+        logger.info(LoggerMessage.of("Streamed {} lines in {} messages ({} recovered from checkpoint) from {}", streamingResult.getSentLines(),
+                streamingResult.getSentMessages(), streamingResult.getRecoveredMessages(), infoFile.inputFile.getAbsolutePath()));
+        if (streamingResult.getErrorLines() > 0) {
+            logger.warn(LoggerMessage.of("Created error file {} with {} error lines", infoFile.errorFile.getAbsolutePath(), streamingResult.getErrorLines()));
+        }
+    }
+
+    /**
+     * Processing steps of the files handed to the {@link VesselCSVPipeline}
+     */
+    private class PipelineSteps implements VesselCSVPipeline.FileSteps<InfoFile> {
+
+        @Override
+        public VesselCSVTranslator parse(InfoFile infoFile) throws Exception {
+            openCheckpointJournal(infoFile);
+            VesselCSVTranslator translated = translateFile(infoFile.inputFile);
+            if (groupDelivery.isToBeDelivered(translated)) {
+                groupDelivery.offerToConflation(translated); // before its groups wait in the deliver queue
+            }
+            return translated;
+        }
+
+        @Override
+        public boolean isToBeDelivered(VesselCSVTranslator translated) {
+            return groupDelivery.isToBeDelivered(translated);
+        }
+
+        @Override
+        public boolean restore(InfoFile infoFile, VesselCSVTranslator translated, int groupIndex, VesselCSVTranslator.MessageKey messageKey) {
+            return groupDelivery.restoreGroup(infoFile.checkpointJournal, translated, groupIndex, messageKey);
+        }
+
+        @Override
+        public void deliver(InfoFile infoFile, VesselCSVTranslator translated, int groupIndex, VesselCSVTranslator.MessageKey messageKey, XmlEntityPayload payload) throws Exception {
+            groupDelivery.deliverGroup(infoFile.checkpointJournal, translated, groupIndex, messageKey, payload);
+        }
+
+        @Override
+        public void complete(InfoFile infoFile, VesselCSVTranslator translated, Exception failure) {
+            if (translated != null) {
+                groupDelivery.releaseFromConflation(translated);
+            }
+            try {
+                if (failure == null) {
+                    writeReports(infoFile, translated);
                 }
+            } catch (IOException ex) {
+                failure = ex;
+            }
+            try {
+                completeFile(infoFile, failure);
+            } finally {
+                inputMonitor.release(infoFile.inputFile);
+            }
+        }
+    }
 
-            } else if (!unprocessedFiles.containsKey(foundFile.getAbsolutePath())) {
-                unprocessedFiles.put(foundFile.getAbsolutePath(), getCurrentFileSize(foundFile.getAbsolutePath()));
+    /**
+     * Processing of the files found by the {@link VesselCSVInputMonitor}
+     */
+    private class InputFiles implements VesselCSVInputMonitor.FileDispatcher {
+
+        @Override
+        public void onScan() {
+            if (pipeline != null) {
+                logger.debug(LoggerMessage.of("CSV pipeline queue depths: {}", pipeline.getQueueDepths()));
+            }
+            logger.debug(LoggerMessage.of("Reference message cache: {} messages, {} hits, {} misses", referenceMessageCache.size(),
+                    referenceMessageCache.getHits(), referenceMessageCache.getMisses()));
+            if (!rateLimiter.isUnlimited()) {
+                logger.debug(LoggerMessage.of("Delivery rate limit: {} messages/s", rateLimiter.getRate()));
             }
+            if (conflationQueue != null) {
+                logger.debug(LoggerMessage.of("CSV conflation: {} vessels waiting for delivery, {} positions conflated", conflationQueue.size(),
+                        conflationQueue.getConflatedPositions()));
+            }
+        }
+
+        @Override
+        public void dispatchFile(File readyFile) {
+            VesselCSVFileHandler.this.dispatchFile(readyFile);
+        }
+
+        @Override
+        public void dispatchFollowedFile(File followedFile) {
+            VesselCSVFileHandler.this.dispatchFollowedFile(followedFile);
         }
     }
 
@@ -154,15 +518,40 @@ public class VesselCSVFileHandler {
         }
     }
 
+    /**
+     * Number of jobs waiting in the queue of each stage of the pipeline (parse, build, deliver, report), to find the slowest stage
+     *
+     * @return the queue depths by stage name, empty if the pipeline is not enabled
+     */
+    public Map<String, Integer> getPipelineQueueDepths() {
+        return pipeline != null ? pipeline.getQueueDepths() : Collections.emptyMap();
+    }
 
-    private long getCurrentFileSize(String absolutePath) {
-        long result = 0L;
-        try {
-            result = Files.size(Path.of(absolutePath));
-        } catch (Exception ex) {
-            logger.error(LoggerMessage.of("Unable to calculate size of {} . Exception message: {}", absolutePath, ex.getMessage()));
-        }
-        return result;
+    /**
+     * Number of positions left out of the delivered payloads because a newer position of the same vessel was waiting for delivery
+     *
+     * @return the number of conflated positions since the start, 0 if the conflation is not enabled
+     */
+    public long getConflatedPositions() {
+        return conflationQueue != null ? conflationQueue.getConflatedPositions() : 0L;
+    }
+
+    /**
+     * Cache of the reference messages looked up when the contextId of a line is not a UUID, with its hit and miss counters
+     *
+     * @return the reference message cache of the deliveries
+     */
+    public ReferenceMessageCache getReferenceMessageCache() {
+        return referenceMessageCache;
+    }
+
+    /**
+     * Limiter of the rate of the messages handed to the Generic Adaptor, adapted to the latency and the codes of their acknowledgements
+     *
+     * @return the delivery rate limiter, with the current rate
+     */
+    public AdaptiveRateLimiter getDeliveryRateLimiter() {
+        return rateLimiter;
     }
 
     /**
@@ -171,7 +560,18 @@ public class VesselCSVFileHandler {
      * @throws InterruptedException Interrupt exception
      */
     public void stopServer() throws InterruptedException {
-        executorService.shutdownNow();
+        inputMonitor.stop();
+        fileWorkersExecutorService.shutdownNow();
+        if (translationPool != null) {
+            translationPool.shutdownNow();
+        }
+        if (chunkWorkersExecutorService != null) {
+            chunkWorkersExecutorService.shutdownNow();
+        }
+        groupDelivery.stop();
+        if (pipeline != null) {
+            pipeline.stop();
+        }
     }
 
     private static String getStackTraceAsString(Throwable throwable) {
@@ -185,7 +585,11 @@ public class VesselCSVFileHandler {
         public final File inputFile;
         public final File outputFile;
         public final File errorFile;
+        public final File failedFile;
         public final File outputFileWithSentInformation;
+        public final File checkpointFile;
+        public VesselCSVCheckpointJournal checkpointJournal; // opened when the processing starts, null if the checkpoint is disabled
+        public final List<VesselCSVCheckpointJournal> chunkCheckpointJournals = new CopyOnWriteArrayList<>(); // journals of the chunks of a split file
 
         public InfoFile(File foundFile) {
 
@@ -193,13 +597,17 @@ public class VesselCSVFileHandler {
             inputFile = new File(foundFile.getAbsolutePath());
             SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMddHHmmss");
             String processedTimestamp = sdf.format(Date.from(Calendar.getInstance().toInstant()));
-            String constructedFilename = inputFile.getName().substring(0, inputFile.getName().lastIndexOf(".")) + "_" + processedTimestamp + ".csv";
-            outputFile = new File(outputDirectory, constructedFilename); // the output file
-            errorFile = new File(errorDirectory, constructedFilename); // the error file (if errors exist)
+            String baseName = getBaseName(inputFile.getName());
+            String inputExtension = inputFile.getName().substring(baseName.length()); // the input file keeps its compression when moved
+            String constructedFilename = baseName + "_" + processedTimestamp;
+            outputFile = new File(outputDirectory, constructedFilename + inputExtension); // the output file
+            errorFile = new File(errorDirectory, constructedFilename + reportExtension); // the error file (if errors exist)
+            failedFile = new File(errorDirectory, constructedFilename + "_failed" + inputExtension); // the input file, if its processing failed
 
             // calculate output with sent details file name
-            String outputFileWithDetails = inputFile.getName().substring(0, inputFile.getName().lastIndexOf(".")) + "_" + processedTimestamp + "_sentDetails.csv";
+            String outputFileWithDetails = constructedFilename + "_sentDetails" + reportExtension;
             outputFileWithSentInformation = new File(outputDirectory, outputFileWithDetails); // the output file with sent details
+            checkpointFile = new File(inputDirectory, inputFile.getName() + ".checkpoint"); // the journal of the delivered groups
         }
 
     }
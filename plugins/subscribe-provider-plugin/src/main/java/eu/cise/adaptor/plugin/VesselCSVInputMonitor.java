@@ -0,0 +1,439 @@
+package eu.cise.adaptor.plugin;
+
+import eu.cise.adaptor.core.common.logging.AdaptorLogger;
+import eu.cise.adaptor.core.common.logging.LogConfig;
+import eu.cise.adaptor.core.common.logging.LoggerMessage;
+import eu.cise.adaptor.plugin.config.CSVInputCommitProtocol;
+import eu.cise.adaptor.plugin.config.SubscribeProviderPluginConfig;
+import eu.cise.adaptor.plugin.translator.VesselCSVCompression;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Detection of the CSV files of the input directory that are ready to be processed, handed to a {@link FileDispatcher}.
+ * <p>
+ * The input directory is polled periodically. When enabled, the directory is also registered to a {@link WatchService} so that
+ * created, modified or moved in files are checked as soon as the file system reports them, while the polling keeps working as a
+ * fallback for file systems that do not deliver events. The polling and the checks of the reported files run on the same thread.
+ * <p>
+ * By default a file is ready when its size did not change between two checks. When the writers follow a {@link CSVInputCommitProtocol}
+ * (rename of a *.csv.part file to *.csv, or creation of a *.csv.done marker) a committed file is ready as soon as it is seen.
+ * <p>
+ * Each scan streams the input directory and keeps only the oldest files that are ready, up to the configured number of files per scan (the
+ * files being processed count against it while they are in the directory), so the time and memory of a scan stay bounded when the directory
+ * holds a very large number of files. The tracked sizes of the files removed from the directory by someone else are evicted at every scan.
+ * <p>
+ * A file is claimed while it is processed, so that it is handed once to the dispatcher. The files matching the follow pattern are
+ * append-only logs: they are handed to the dispatcher at every scan, and after the settle time when the watch service reports an append.
+ */
+class VesselCSVInputMonitor {
+
+    static final String MARKER_EXTENSION = ".done";
+    static final String OFFSET_EXTENSION = ".offset";
+    private static final AdaptorLogger logger = LogConfig.configureLogging(VesselCSVInputMonitor.class);
+    private final File inputDirectory;
+    private final FileDispatcher dispatcher;
+    private final ScheduledExecutorService executorService;
+    private final ExecutorService watchExecutorService;
+    private final boolean watchEnabled;
+    private final long watchSettleMillis;
+    private final long pollingIntervalSeconds;
+    private final int scanMaxFiles;
+    private final CSVInputCommitProtocol commitProtocol;
+    private final Set<String> pendingWatchedFiles;
+    private final Set<String> claimedFiles;
+    private final String followFilePattern;
+    private final PathMatcher followedFileMatcher; // null when no file is followed
+    private final Map<String, Long> unprocessedFiles;
+
+    /**
+     * Processing of the files found in the input directory, provided by the {@link VesselCSVFileHandler}
+     */
+    interface FileDispatcher {
+
+        /**
+         * Called at the start of every scan of the input directory
+         */
+        void onScan();
+
+        /**
+         * Hands a file that is ready to be processed, the file is to be claimed while it is processed
+         */
+        void dispatchFile(File readyFile);
+
+        /**
+         * Hands a followed file, to deliver the lines appended since the previous check
+         */
+        void dispatchFollowedFile(File followedFile);
+    }
+
+    /**
+     * @param config         configuration of the plugin
+     * @param inputDirectory directory of the incoming CSV files
+     * @param dispatcher     processing of the files found
+     */
+    VesselCSVInputMonitor(SubscribeProviderPluginConfig config, File inputDirectory, FileDispatcher dispatcher) {
+        this.inputDirectory = inputDirectory;
+        this.dispatcher = dispatcher;
+        this.executorService = Executors.newScheduledThreadPool(1);
+        this.watchExecutorService = Executors.newSingleThreadExecutor();
+        this.watchEnabled = config.isCSVInputWatchEnabled();
+        this.watchSettleMillis = config.getCSVInputWatchSettleMillis();
+        this.pollingIntervalSeconds = config.getCSVInputPollingIntervalSeconds();
+        this.scanMaxFiles = Math.max(1, config.getCSVInputScanMaxFiles());
+        this.commitProtocol = CSVInputCommitProtocol.fromValue(config.getCSVInputCommitProtocol());
+        this.pendingWatchedFiles = ConcurrentHashMap.newKeySet();
+        this.claimedFiles = ConcurrentHashMap.newKeySet();
+        this.followFilePattern = config.getCSVFollowFilePattern();
+        this.followedFileMatcher = followFilePattern == null || followFilePattern.isEmpty()
+                ? null
+                : FileSystems.getDefault().getPathMatcher("glob:" + followFilePattern);
+        this.unprocessedFiles = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Starts the polling of the input directory and, when enabled, the watch service. The input directory is registered to the watch
+     * service before returning, so the files created from then on are reported.
+     */
+    void start() {
+        executorService.scheduleAtFixedRate(this::monitorInputDirectory, 0, pollingIntervalSeconds, TimeUnit.SECONDS);
+        if (watchEnabled) {
+            WatchService watchService = registerInputDirectory();
+            if (watchService != null) {
+                watchExecutorService.execute(() -> watchInputDirectory(watchService));
+            }
+        }
+    }
+
+    void stop() {
+        watchExecutorService.shutdownNow();
+        executorService.shutdownNow();
+    }
+
+    /**
+     * @return false if the file is already claimed
+     */
+    boolean claim(File foundFile) {
+        return claimedFiles.add(foundFile.getAbsolutePath());
+    }
+
+    void release(File foundFile) {
+        claimedFiles.remove(foundFile.getAbsolutePath());
+    }
+
+    /**
+     * Forgets a processed file: its tracked size and, once the file has left the input directory, its marker
+     */
+    void forget(File processedFile) {
+        unprocessedFiles.remove(processedFile.getAbsolutePath());
+        if (commitProtocol == CSVInputCommitProtocol.MARKER && !processedFile.exists()) {
+            deleteMarkerFile(processedFile);
+        }
+    }
+
+    private boolean isFileToBeProcessed(File foundFile) {
+        if (commitProtocol == CSVInputCommitProtocol.RENAME) {
+            return true; // the file appeared under its final name once complete
+        }
+        if (commitProtocol == CSVInputCommitProtocol.MARKER) {
+            return getMarkerFile(foundFile).isFile();
+        }
+        boolean toBeProcessed = false;
+
+        if (unprocessedFiles.containsKey(foundFile.getAbsolutePath())) {
+            // check if the size has changed
+            long storedSize = unprocessedFiles.get(foundFile.getAbsolutePath());
+            // calculate current size
+            long currentSize = getCurrentFileSize(foundFile.getAbsolutePath());
+            toBeProcessed = currentSize == storedSize && currentSize > 0L;
+            if (!toBeProcessed) {
+                // the file is still being written, compare against the latest size on the next check
+                unprocessedFiles.put(foundFile.getAbsolutePath(), currentSize);
+            }
+        }
+        return toBeProcessed;
+    }
+
+    /**
+     * Scans the input directory once and hands the ready files and the followed files to the dispatcher, on the calling thread. Runs on
+     * the monitoring executor at every polling.
+     */
+    void monitorInputDirectory() {
+        logger.debug(LoggerMessage.of("Monitoring incoming CSV dir: {}", inputDirectory.getAbsolutePath()));
+        dispatcher.onScan();
+        evictVanishedFiles();
+        for (File readyFile : selectOldestReadyInputFiles(scanMaxFiles - countClaimedInputFiles())) {
+            dispatcher.dispatchFile(readyFile);
+        }
+        if (followedFileMatcher != null) {
+            monitorFollowedFiles();
+        }
+    }
+
+    /**
+     * Hands the followed files of the input directory to the file workers, to deliver the lines appended since the previous check
+     */
+    private void monitorFollowedFiles() {
+        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(inputDirectory.toPath(), followFilePattern)) {
+            for (Path path : directoryStream) {
+                if (isFollowedFile(path.toFile())) {
+                    dispatcher.dispatchFollowedFile(path.toFile());
+                }
+            }
+        } catch (IOException | DirectoryIteratorException ex) {
+            logger.error(LoggerMessage.of("Unable to scan input directory {} for followed files. Exception message: {}", inputDirectory.getAbsolutePath(), ex.getMessage()));
+        }
+    }
+
+    private boolean isFollowedFile(File foundFile) {
+        String fileName = foundFile.getName();
+        return followedFileMatcher != null && followedFileMatcher.matches(foundFile.toPath().getFileName())
+                && !VesselCSVCompression.isGzipCompressed(foundFile) && !fileName.endsWith(OFFSET_EXTENSION) && !fileName.endsWith(OFFSET_EXTENSION + ".tmp");
+    }
+
+    /**
+     * @return true for the names of the CSV files to process, plain or gzip compressed
+     */
+    private static boolean isCSVFileName(String fileName) {
+        return fileName.endsWith(VesselCSVFileHandler.CSV_EXTENSION) || fileName.endsWith(VesselCSVFileHandler.COMPRESSED_CSV_EXTENSION);
+    }
+
+    /**
+     * Streams the entries of the input directory and keeps the oldest CSV files that are ready to be processed and not claimed by a file
+     * worker, up to the limit. The files that are not ready (still being written, or waiting for their marker) do not take a place of the
+     * selection, so they cannot hold back the ready files behind them. With the SIZE commit protocol, the size of the oldest new files, up
+     * to the limit, is recorded for the stability check of the next scans. Only the selected files are held in memory, whatever the number
+     * of files of the directory.
+     *
+     * @param limit maximum number of files to select
+     * @return the selected files, the oldest first
+     */
+    private List<File> selectOldestReadyInputFiles(int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        Comparator<Pair<Long, File>> oldestFirst = Comparator.comparing(Pair::getLeft);
+        PriorityQueue<Pair<Long, File>> selectedFiles = new PriorityQueue<>(limit, oldestFirst.reversed()); // the newest selected file on top
+        PriorityQueue<Pair<Long, File>> newFiles = new PriorityQueue<>(limit, oldestFirst.reversed());
+
+        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(inputDirectory.toPath(), "*{" + VesselCSVFileHandler.CSV_EXTENSION + "," + VesselCSVFileHandler.COMPRESSED_CSV_EXTENSION + "}")) {
+            for (Path path : directoryStream) {
+                File foundFile = path.toFile();
+                if (claimedFiles.contains(foundFile.getAbsolutePath()) || isFollowedFile(foundFile)) {
+                    continue; // already being processed by a file worker, or followed instead of processed as a whole
+                }
+                long lastModified = foundFile.lastModified();
+                if (lastModified == 0L) {
+                    continue; // removed since the directory was read
+                }
+                if (isFileToBeProcessed(foundFile)) {
+                    keepOldest(selectedFiles, limit, new ImmutablePair<>(lastModified, foundFile));
+                } else if (commitProtocol == CSVInputCommitProtocol.SIZE && !unprocessedFiles.containsKey(foundFile.getAbsolutePath())) {
+                    keepOldest(newFiles, limit, new ImmutablePair<>(lastModified, foundFile));
+                }
+            }
+        } catch (IOException | DirectoryIteratorException ex) {
+            logger.error(LoggerMessage.of("Unable to scan input directory {}. Exception message: {}", inputDirectory.getAbsolutePath(), ex.getMessage()));
+        }
+        newFiles.forEach(newFile -> unprocessedFiles.put(newFile.getRight().getAbsolutePath(), getCurrentFileSize(newFile.getRight().getAbsolutePath())));
+
+        List<Pair<Long, File>> result = new ArrayList<>(selectedFiles);
+        result.sort(oldestFirst);
+        List<File> oldestFiles = new ArrayList<>(result.size());
+        result.forEach(selectedFile -> oldestFiles.add(selectedFile.getRight()));
+        return oldestFiles;
+    }
+
+    /**
+     * Adds the file to the selection if the selection is not full or the file is older than the newest selected file, which is then dropped
+     */
+    private static void keepOldest(PriorityQueue<Pair<Long, File>> selectedFiles, int limit, Pair<Long, File> foundFile) {
+        if (selectedFiles.size() < limit) {
+            selectedFiles.add(foundFile);
+        } else if (foundFile.getLeft() < selectedFiles.peek().getLeft()) {
+            selectedFiles.poll();
+            selectedFiles.add(foundFile);
+        }
+    }
+
+    /**
+     * @return the number of claimed files still in the input directory, a file removed while it is processed no longer takes a place of the scan
+     */
+    private int countClaimedInputFiles() {
+        return (int) claimedFiles.stream().filter(filePath -> new File(filePath).exists()).count();
+    }
+
+    /**
+     * Forgets the tracked sizes of the files that are no longer in the input directory and are not being processed
+     */
+    private void evictVanishedFiles() {
+        unprocessedFiles.keySet().removeIf(filePath -> !claimedFiles.contains(filePath) && !new File(filePath).exists());
+    }
+
+    /**
+     * @return a watch service the input directory is registered to, null if the watch service cannot be used and only the polling remains
+     * active
+     */
+    private WatchService registerInputDirectory() {
+        WatchService watchService = null;
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            inputDirectory.toPath().register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+            logger.info(LoggerMessage.of("Watching incoming CSV dir: {}", inputDirectory.getAbsolutePath()));
+            return watchService;
+        } catch (Exception ex) {
+            logger.warn(LoggerMessage.of("Unable to watch input directory {}. Falling back to polling only. Exception message: {}", inputDirectory.getAbsolutePath(), ex.getMessage()));
+            closeWatchService(watchService);
+            return null;
+        }
+    }
+
+    private void closeWatchService(WatchService watchService) {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException ex) {
+                logger.error(LoggerMessage.of("Unable to close the watch service of {}. Exception message: {}", inputDirectory.getAbsolutePath(), ex.getMessage()));
+            }
+        }
+    }
+
+    /**
+     * Waits for the file system events of the input directory and schedules a stability check of every CSV file reported
+     * as created (a file moved in is reported as created) or modified. With a commit protocol, the files renamed to *.csv or
+     * signalled by a marker are checked immediately instead.
+     */
+    private void watchInputDirectory(WatchService watchService) {
+        try (watchService) {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey watchKey = watchService.take();
+                for (WatchEvent<?> event : watchKey.pollEvents()) {
+                    if (event.kind() == OVERFLOW) {
+                        // some events were lost, scan the whole directory
+                        executorService.execute(this::monitorInputDirectory);
+                    } else {
+                        handleWatchedEntry(event.kind(), event.context().toString());
+                    }
+                }
+                if (!watchKey.reset()) {
+                    logger.warn(LoggerMessage.of("Input directory {} can no longer be watched. Falling back to polling only", inputDirectory.getAbsolutePath()));
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ex) {
+            Thread.currentThread().interrupt();
+        } catch (Exception ex) {
+            logger.warn(LoggerMessage.of("Unable to watch input directory {}. Falling back to polling only. Exception message: {}", inputDirectory.getAbsolutePath(), ex.getMessage()));
+        }
+    }
+
+    private void handleWatchedEntry(WatchEvent.Kind<?> kind, String fileName) {
+        if (isFollowedFile(new File(inputDirectory, fileName))) {
+            scheduleFollowedFileCheck(new File(inputDirectory, fileName));
+        } else if (commitProtocol == CSVInputCommitProtocol.SIZE && isCSVFileName(fileName)) {
+            scheduleWatchedFileCheck(new File(inputDirectory, fileName));
+        } else if (commitProtocol == CSVInputCommitProtocol.RENAME && isCSVFileName(fileName) && kind == ENTRY_CREATE) {
+            executorService.execute(() -> checkCommittedFile(new File(inputDirectory, fileName)));
+        } else if (commitProtocol == CSVInputCommitProtocol.MARKER && fileName.endsWith(MARKER_EXTENSION)) {
+            String csvFileName = fileName.substring(0, fileName.length() - MARKER_EXTENSION.length());
+            executorService.execute(() -> checkCommittedFile(new File(inputDirectory, csvFileName)));
+        }
+    }
+
+    /**
+     * Check of a file committed through the commit protocol, runs on the monitoring executor like the polling
+     */
+    private void checkCommittedFile(File foundFile) {
+        if (foundFile.isFile() && !claimedFiles.contains(foundFile.getAbsolutePath()) && isFileToBeProcessed(foundFile)) {
+            dispatcher.dispatchFile(foundFile);
+        }
+    }
+
+    /**
+     * Stability check of a file reported by the watch service. The file is processed when its size did not change since the previous check,
+     * otherwise a new check is scheduled after the settle time. Runs on the monitoring executor, like the polling, so the two never overlap.
+     */
+    private void checkWatchedFile(File foundFile) {
+        pendingWatchedFiles.remove(foundFile.getAbsolutePath());
+        if (!foundFile.isFile() || claimedFiles.contains(foundFile.getAbsolutePath())) {
+            return; // already processed, being processed or removed
+        }
+        if (isFileToBeProcessed(foundFile)) {
+            dispatcher.dispatchFile(foundFile);
+        } else {
+            long currentSize = getCurrentFileSize(foundFile.getAbsolutePath());
+            unprocessedFiles.put(foundFile.getAbsolutePath(), currentSize);
+            if (currentSize > 0L) {
+                scheduleWatchedFileCheck(foundFile);
+            }
+        }
+    }
+
+    private void scheduleWatchedFileCheck(File foundFile) {
+        // a file being written produces many events, keep only one pending check per file
+        if (pendingWatchedFiles.add(foundFile.getAbsolutePath())) {
+            executorService.schedule(() -> checkWatchedFile(foundFile), watchSettleMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void scheduleFollowedFileCheck(File followedFile) {
+        // the appends produce many events, keep only one pending check per file
+        if (pendingWatchedFiles.add(followedFile.getAbsolutePath())) {
+            executorService.schedule(() -> {
+                pendingWatchedFiles.remove(followedFile.getAbsolutePath());
+                dispatcher.dispatchFollowedFile(followedFile);
+            }, watchSettleMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    static File getMarkerFile(File csvFile) {
+        return new File(csvFile.getParentFile(), csvFile.getName() + MARKER_EXTENSION);
+    }
+
+    private static void deleteMarkerFile(File csvFile) {
+        try {
+            Files.deleteIfExists(getMarkerFile(csvFile).toPath());
+        } catch (IOException ex) {
+            logger.error(LoggerMessage.of("Unable to delete marker file of {}. Exception message: {}", csvFile.getAbsolutePath(), ex.getMessage()));
+        }
+    }
+
+    private long getCurrentFileSize(String absolutePath) {
+        long result = 0L;
+        try {
+            result = Files.size(Path.of(absolutePath));
+        } catch (Exception ex) {
+            logger.error(LoggerMessage.of("Unable to calculate size of {} . Exception message: {}", absolutePath, ex.getMessage()));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,252 @@
+package eu.cise.adaptor.plugin;
+
+import eu.cise.adaptor.core.common.logging.AdaptorLogger;
+import eu.cise.adaptor.core.common.logging.LogConfig;
+import eu.cise.adaptor.core.common.logging.LoggerMessage;
+import eu.cise.adaptor.plugin.translator.VesselCSVTranslator;
+import eu.cise.adaptor.plugin.translator.VesselCSVTranslator.MessageKey;
+import eu.cise.servicemodel.v1.message.XmlEntityPayload;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Staged processing of the CSV files, each stage running on its own threads and handing its work to the next one through a bounded queue:
+ * <ul>
+ * <li>parse: reads and translates a file</li>
+ * <li>build: builds the CISE payload of each {@link MessageKey} group of a translated file</li>
+ * <li>deliver: delivers the payloads</li>
+ * <li>report: once all the groups of a file have been delivered, writes the reports and moves the file</li>
+ * </ul>
+ * The parsing of the next files overlaps the delivery of the current one. When the delivery is slow, the queues fill up and the
+ * stages before it wait, so the payloads waiting for delivery and the translated files waiting for the build stay bounded.
+ * The files are accepted only if the parse queue has room, otherwise they stay in the input directory for a later scan.
+ * <p>
+ * With more than one deliver thread, the groups of a file may be delivered in a different order than they appear in the file.
+ *
+ * @param <F> file being processed, with the information needed by the {@link FileSteps}
+ */
+class VesselCSVPipeline<F> {
+
+    private static final AdaptorLogger logger = LogConfig.configureLogging(VesselCSVPipeline.class);
+    private final FileSteps<F> fileSteps;
+    private final BlockingQueue<FileJob> parseQueue;
+    private final BlockingQueue<FileJob> buildQueue;
+    private final BlockingQueue<GroupJob> deliverQueue;
+    private final BlockingQueue<FileJob> reportQueue;
+    private final ExecutorService stagesExecutorService;
+    private final int parseThreads;
+    private final int buildThreads;
+    private final int deliverThreads;
+
+    /**
+     * Processing steps of one file, provided by the {@link VesselCSVFileHandler}
+     *
+     * @param <F> file being processed
+     */
+    interface FileSteps<F> {
+
+        /**
+         * Parse stage: reads and translates the file
+         */
+        VesselCSVTranslator parse(F file) throws Exception;
+
+        /**
+         * @return false if the groups of the translated file must not be delivered
+         */
+        boolean isToBeDelivered(VesselCSVTranslator translated);
+
+        /**
+         * Build stage: fills the entries of a group delivered before a restart
+         *
+         * @return true if the group must not be delivered again
+         */
+        boolean restore(F file, VesselCSVTranslator translated, int groupIndex, MessageKey messageKey);
+
+        /**
+         * Deliver stage: delivers the payload of a group and updates its entries with the result
+         */
+        void deliver(F file, VesselCSVTranslator translated, int groupIndex, MessageKey messageKey, XmlEntityPayload payload) throws Exception;
+
+        /**
+         * Report stage: writes the reports and moves the file, or moves it to the error directory when the processing failed
+         *
+         * @param translated translated file, null if the parsing failed
+         * @param failure    first exception of the processing, null if it succeeded
+         */
+        void complete(F file, VesselCSVTranslator translated, Exception failure);
+    }
+
+    /**
+     * @param fileSteps           processing steps of one file
+     * @param parseThreads        number of threads of the parse stage
+     * @param buildThreads        number of threads of the build stage
+     * @param deliverThreads      number of threads of the deliver stage
+     * @param fileQueueCapacity   capacity of the queues of files waiting to be parsed, built and reported
+     * @param groupQueueCapacity  capacity of the queue of payloads waiting to be delivered
+     */
+    VesselCSVPipeline(FileSteps<F> fileSteps, int parseThreads, int buildThreads, int deliverThreads, int fileQueueCapacity, int groupQueueCapacity) {
+        this.fileSteps = fileSteps;
+        this.parseThreads = Math.max(1, parseThreads);
+        this.buildThreads = Math.max(1, buildThreads);
+        this.deliverThreads = Math.max(1, deliverThreads);
+        this.parseQueue = new ArrayBlockingQueue<>(Math.max(1, fileQueueCapacity));
+        this.buildQueue = new ArrayBlockingQueue<>(Math.max(1, fileQueueCapacity));
+        this.deliverQueue = new ArrayBlockingQueue<>(Math.max(1, groupQueueCapacity));
+        this.reportQueue = new ArrayBlockingQueue<>(Math.max(1, fileQueueCapacity));
+        this.stagesExecutorService = Executors.newFixedThreadPool(this.parseThreads + this.buildThreads + this.deliverThreads + 1);
+    }
+
+    /**
+     * Starts the threads of the stages
+     */
+    void start() {
+        for (int i = 0; i < parseThreads; i++) {
+            stagesExecutorService.execute(() -> runStage(parseQueue, this::parse));
+        }
+        for (int i = 0; i < buildThreads; i++) {
+            stagesExecutorService.execute(() -> runStage(buildQueue, this::build));
+        }
+        for (int i = 0; i < deliverThreads; i++) {
+            stagesExecutorService.execute(() -> runStage(deliverQueue, this::deliver));
+        }
+        stagesExecutorService.execute(() -> runStage(reportQueue, this::report));
+    }
+
+    /**
+     * Hands a file to the parse stage without waiting
+     *
+     * @return false if the parse queue is full or the pipeline is stopped, the file has not been accepted
+     */
+    boolean submit(F file) {
+        return !stagesExecutorService.isShutdown() && parseQueue.offer(new FileJob(file));
+    }
+
+    /**
+     * @return the number of jobs waiting in the queue of each stage
+     */
+    Map<String, Integer> getQueueDepths() {
+        Map<String, Integer> queueDepths = new LinkedHashMap<>();
+        queueDepths.put("parse", parseQueue.size());
+        queueDepths.put("build", buildQueue.size());
+        queueDepths.put("deliver", deliverQueue.size());
+        queueDepths.put("report", reportQueue.size());
+        return queueDepths;
+    }
+
+    /**
+     * Stops the threads of the stages, the files not completed stay in the input directory
+     */
+    void stop() {
+        stagesExecutorService.shutdownNow();
+    }
+
+    private void parse(FileJob fileJob) throws InterruptedException {
+        try {
+            fileJob.translated = fileSteps.parse(fileJob.file);
+        } catch (Exception ex) {
+            fileJob.failure = ex;
+            reportQueue.put(fileJob);
+            return;
+        }
+        if (fileSteps.isToBeDelivered(fileJob.translated)) {
+            buildQueue.put(fileJob);
+        } else {
+            reportQueue.put(fileJob);
+        }
+    }
+
+    private void build(FileJob fileJob) throws InterruptedException {
+        List<MessageKey> messageKeys = fileJob.translated.getMessageKeys();
+        try {
+            for (int groupIndex = 0; groupIndex < messageKeys.size() && fileJob.failure == null; groupIndex++) {
+                MessageKey messageKey = messageKeys.get(groupIndex);
+                if (!fileSteps.restore(fileJob.file, fileJob.translated, groupIndex, messageKey)) {
+                    XmlEntityPayload payload = fileJob.translated.getMessagePayload(messageKey);
+                    fileJob.pendingGroups.incrementAndGet();
+                    deliverQueue.put(new GroupJob(fileJob, groupIndex, messageKey, payload));
+                }
+            }
+        } catch (RuntimeException ex) {
+            fileJob.failure = ex;
+        }
+        groupDone(fileJob); // all the groups have been queued
+    }
+
+    private void deliver(GroupJob groupJob) throws InterruptedException {
+        FileJob fileJob = groupJob.fileJob;
+        if (fileJob.failure == null) { // once a group has failed, the remaining groups of the file are not delivered
+            try {
+                fileSteps.deliver(fileJob.file, fileJob.translated, groupJob.groupIndex, groupJob.messageKey, groupJob.payload);
+            } catch (InterruptedException ex) {
+                fileJob.failure = ex;
+                Thread.currentThread().interrupt(); // stopped, the stage ends after this group
+            } catch (Exception ex) {
+                fileJob.failure = ex;
+            }
+        }
+        groupDone(fileJob);
+    }
+
+    private void groupDone(FileJob fileJob) throws InterruptedException {
+        if (fileJob.pendingGroups.decrementAndGet() == 0) {
+            reportQueue.put(fileJob);
+        }
+    }
+
+    private void report(FileJob fileJob) {
+        fileSteps.complete(fileJob.file, fileJob.translated, fileJob.failure);
+    }
+
+    private <T> void runStage(BlockingQueue<T> queue, StageAction<T> stageAction) {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                T job = queue.take();
+                if (stagesExecutorService.isShutdown()) {
+                    return; // taken while the pipeline was being stopped, the file stays in the input directory
+                }
+                stageAction.run(job);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException ex) {
+                logger.error(LoggerMessage.of("Unexpected exception in the CSV processing pipeline: {}", ex.getMessage()));
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface StageAction<T> {
+        void run(T job) throws InterruptedException;
+    }
+
+    private class FileJob {
+        private final F file;
+        private final AtomicInteger pendingGroups = new AtomicInteger(1); // held by the build stage until all the groups are queued
+        private volatile VesselCSVTranslator translated;
+        private volatile Exception failure;
+
+        FileJob(F file) {
+            this.file = file;
+        }
+    }
+
+    private class GroupJob {
+        private final FileJob fileJob;
+        private final int groupIndex;
+        private final MessageKey messageKey;
+        private final XmlEntityPayload payload;
+
+        GroupJob(FileJob fileJob, int groupIndex, MessageKey messageKey, XmlEntityPayload payload) {
+            this.fileJob = fileJob;
+            this.groupIndex = groupIndex;
+            this.messageKey = messageKey;
+            this.payload = payload;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package eu.cise.adaptor.plugin.cisecontext;
+
+import eu.cise.datamodel.v1.entity.vessel.Vessel;
+
+import javax.xml.datatype.XMLGregorianCalendar;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of the validation of the vessel data of one csv line. It holds the values given, the values parsed by the validation rules,
+ * every violation of the rules instead of only the first one and, when there is no violation, the Vessel built from the values.
+ * <p>
+ * The violations are collected without any exception being thrown, so that a line with errors costs no more than a valid one.
+ */
+public class VesselValidationResult {
+
+    private static final String VIOLATIONS_SEPARATOR = "; ";
+
+    // values given
+    private final String imoNumberStr;
+    private final String mmsiStr;
+    private final String latitude;
+    private final String longitude;
+    private final String positionTimestampStr;
+
+    // values parsed by the rules
+    private Long imoNumber;
+    private Long mmsi;
+    private XMLGregorianCalendar positionTime;
+
+    private List<String> violations; // created with the first violation
+    private Vessel vessel;
+
+    public VesselValidationResult(String imoNumberStr, String mmsiStr, String latitude, String longitude, String positionTimestampStr) {
+        this.imoNumberStr = imoNumberStr;
+        this.mmsiStr = mmsiStr;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.positionTimestampStr = positionTimestampStr;
+    }
+
+    public void addViolation(String violation) {
+        if (violations == null) {
+            violations = new ArrayList<>(2);
+        }
+        violations.add(violation);
+    }
+
+    public boolean isValid() {
+        return violations == null;
+    }
+
+    public List<String> getViolations() {
+        return violations == null ? Collections.emptyList() : Collections.unmodifiableList(violations);
+    }
+
+    /**
+     * @return the violations separated by "; ", in the order of the rules, null if the values are valid
+     */
+    public String getViolationsMessage() {
+        return violations == null ? null : String.join(VIOLATIONS_SEPARATOR, violations);
+    }
+
+    public String getIMONumberStr() {
+        return imoNumberStr;
+    }
+
+    public String getMMSIStr() {
+        return mmsiStr;
+    }
+
+    public String getLatitude() {
+        return latitude;
+    }
+
+    public String getLongitude() {
+        return longitude;
+    }
+
+    public String getPositionTimestampStr() {
+        return positionTimestampStr;
+    }
+
+    public Long getIMONumber() {
+        return imoNumber;
+    }
+
+    public void setIMONumber(Long imoNumber) {
+        this.imoNumber = imoNumber;
+    }
+
+    public Long getMMSI() {
+        return mmsi;
+    }
+
+    public void setMMSI(Long mmsi) {
+        this.mmsi = mmsi;
+    }
+
+    public XMLGregorianCalendar getPositionTime() {
+        return positionTime;
+    }
+
+    public void setPositionTime(XMLGregorianCalendar positionTime) {
+        this.positionTime = positionTime;
+    }
+
+    public Vessel getVessel() {
+        return vessel;
+    }
+
+    public void setVessel(Vessel vessel) {
+        this.vessel = vessel;
+    }
+}
@@ -0,0 +1,147 @@
+package eu.cise.adaptor.plugin.cisecontext.impl;
+
+import eu.cise.adaptor.plugin.cisecontext.VesselValidationResult;
+import eu.cise.adaptor.plugin.translator.TimeUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.xml.datatype.XMLGregorianCalendar;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Validates the vessel data of a csv line with a list of rules. Every rule is checked, each one adding its violation to the
+ * {@link VesselValidationResult}, so that all the fields in error are reported. The numbers and the timestamp are checked before being
+ * parsed, no exception is used to find a value that cannot be parsed.
+ * <p>
+ * The messages of the violations are those of the exceptions thrown when the first rule failed.
+ */
+public class VesselDataValidator {
+
+    // syntax accepted by Double.valueOf, from its documentation, for the values that are not plain decimal numbers
+    private static final String DIGITS = "(\\p{Digit}+)";
+    private static final String HEX_DIGITS = "(\\p{XDigit}+)";
+    private static final String EXPONENT = "[eE][+-]?" + DIGITS;
+    private static final Pattern DOUBLE_PATTERN = Pattern.compile("[\\x00-\\x20]*[+-]?(NaN|Infinity|((("
+            + DIGITS + "(\\.)?(" + DIGITS + "?)(" + EXPONENT + ")?)|(\\.(" + DIGITS + ")(" + EXPONENT + ")?)|(((0[xX]" + HEX_DIGITS + "(\\.)?)|(0[xX]"
+            + HEX_DIGITS + "?(\\.)" + HEX_DIGITS + "))[pP][+-]?" + DIGITS + "))[fFdD]?))[\\x00-\\x20]*");
+
+    /**
+     * Rule checking one aspect of the vessel data
+     */
+    @FunctionalInterface
+    interface VesselValidationRule {
+        void check(VesselValidationResult result);
+    }
+
+    private final List<VesselValidationRule> rules = List.of(
+            result -> result.setIMONumber(checkNumberOfDigits(result, result.getIMONumberStr(), 7, "IMO_number")),
+            result -> result.setMMSI(checkNumberOfDigits(result, result.getMMSIStr(), 9, "MMSI")),
+            // Latitude must be a number between -90 and 90
+            result -> checkNumericWithinBounds(result, result.getLatitude(), -90, 90, "Latitude"),
+            //Longitude must a number between -180 and 180
+            result -> checkNumericWithinBounds(result, result.getLongitude(), -180, 180, "Longitude"),
+            this::checkLatitudeAndLongitude,
+            this::checkPositionTimestampPresenceWhenCoordinatesProvided,
+            this::checkPositionTimestamp
+    );
+
+    /**
+     * @return the result with the violations of all the rules, and the values they parsed
+     */
+    public VesselValidationResult validate(String imoNumberStr, String mmsiStr, String latitude, String longitude, String positionTimestampStr) {
+        VesselValidationResult result = new VesselValidationResult(imoNumberStr, mmsiStr, latitude, longitude, positionTimestampStr);
+        for (VesselValidationRule rule : rules) {
+            rule.check(result);
+        }
+        return result;
+    }
+
+    private Long checkNumberOfDigits(VesselValidationResult result, String numberString, int noOfDigits, String fieldDescription) {
+        if (StringUtils.isEmpty(numberString)) {
+            return null;
+        }
+        if (numberString.length() != noOfDigits) {
+            result.addViolation(fieldDescription + " does not have correct number of characters. Found: " + numberString.length() + " but expected: " + noOfDigits);
+            return null;
+        }
+        // the signs accepted by Long.valueOf are accepted
+        char first = numberString.charAt(0);
+        boolean signed = first == '-' || first == '+';
+        long value = 0;
+        for (int i = signed ? 1 : 0; i < numberString.length(); i++) {
+            int digit = Character.digit(numberString.charAt(i), 10);
+            if (digit < 0) {
+                result.addViolation("Unable to construct numeric value for field: " + fieldDescription + " with value: " + numberString);
+                return null;
+            }
+            value = value * 10 + digit;
+        }
+        return first == '-' ? -value : value;
+    }
+
+    private void checkNumericWithinBounds(VesselValidationResult result, String valueToCheck, double lowerBound, double upperBound, String description) {
+        if (StringUtils.isEmpty(valueToCheck)) {
+            return;
+        }
+        if (!isPlainDecimal(valueToCheck) && !DOUBLE_PATTERN.matcher(valueToCheck).matches()) {
+            result.addViolation(description + "  value of " + valueToCheck + " could not be parsed as numeric.");
+            return;
+        }
+        double doubleValue = Double.parseDouble(valueToCheck);
+        if (doubleValue < lowerBound || doubleValue > upperBound) {
+            result.addViolation(description + "  value of " + valueToCheck + " is not correct. Appropriate bounds: [" + lowerBound + "," + upperBound + "]");
+        }
+    }
+
+    /**
+     * @return true for the usual decimal numbers, an optional sign and digits with an optional decimal point
+     */
+    private static boolean isPlainDecimal(String value) {
+        int start = value.charAt(0) == '-' || value.charAt(0) == '+' ? 1 : 0;
+        boolean digits = false;
+        boolean point = false;
+        for (int i = start; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits = true;
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                return false;
+            }
+        }
+        return digits;
+    }
+
+    private void checkLatitudeAndLongitude(VesselValidationResult result) {
+        boolean isLatitudeEmpty = StringUtils.isEmpty(result.getLatitude());
+        boolean isLongitudeEmpty = StringUtils.isEmpty(result.getLongitude());
+
+        if (isLatitudeEmpty != isLongitudeEmpty) {
+            result.addViolation("Both Latitude and Longitude must be provided or both must be omitted.");
+        }
+    }
+
+    private void checkPositionTimestampPresenceWhenCoordinatesProvided(VesselValidationResult result) {
+        boolean isLatitudeProvided = !StringUtils.isEmpty(result.getLatitude());
+        boolean isLongitudeProvided = !StringUtils.isEmpty(result.getLongitude());
+        boolean isPositionTimestampMissing = StringUtils.isEmpty(result.getPositionTimestampStr());
+
+        if (isLatitudeProvided && isLongitudeProvided && isPositionTimestampMissing) {
+            result.addViolation("Position timestamp is missing while Latitude and Longitude are provided.");
+        }
+    }
+
+    private void checkPositionTimestamp(VesselValidationResult result) {
+        String positionTimestampStr = result.getPositionTimestampStr();
+        if (StringUtils.isEmpty(positionTimestampStr)) {
+            return;
+        }
+        XMLGregorianCalendar positionTime = TimeUtils.parseXMLGregorianCalendarWithPattern(positionTimestampStr, VesselPayloadBuilder.POSITION_TIMESTAMP_PATTERN);
+        if (positionTime == null) {
+            result.addViolation("Unable to calculate time object from given string: " + positionTimestampStr);
+            return;
+        }
+        result.setPositionTime(positionTime);
+    }
+}
@@ -1,5 +1,6 @@
 package eu.cise.adaptor.plugin.cisecontext.impl;
 
+import eu.cise.adaptor.core.common.exceptions.CiseAdaptorRuntimeException;
 import eu.cise.adaptor.core.common.exceptions.CiseAdaptorValidationException;
 import eu.cise.adaptor.core.common.logging.AdaptorLogger;
 import eu.cise.adaptor.core.common.logging.LogConfig;
@@ -9,7 +10,7 @@ import eu.cise.adaptor.core.servicehandler.domain.context.MessageDataContext;
 import eu.cise.adaptor.core.servicehandler.port.in.ReceiveFromLegacySystemPort;
 import eu.cise.adaptor.plugin.cisecontext.SubscribeProviderDeliver;
 import eu.cise.servicemodel.v1.message.Acknowledgement;
-import eu.cise.servicemodel.v1.message.Message;
+import eu.cise.servicemodel.v1.message.AcknowledgementType;
 import eu.cise.servicemodel.v1.message.XmlEntityPayload;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
@@ -28,6 +29,8 @@ import java.util.regex.Pattern;
  * <li>If the contextId is invalid, trying to get it from the message identified by referenceMessageId, and if it isn't found, it will be generated</li>
  * <li>If the contextId is not found, it will be generated</li>
  * </ul>
+ * The messages identified by referenceMessageId are looked up through a {@link ReferenceMessageCache}, and the messages are handed to the
+ * Service Handler at the rate of an {@link AdaptiveRateLimiter}, adapted to their acknowledgements.
  *
  * @see ReceiveFromLegacySystemPort
  */
@@ -39,9 +42,31 @@ public class VesselInformationDeliver implements SubscribeProviderDeliver {
     private static final AdaptorLogger logger = LogConfig.configureLogging(VesselInformationDeliver.class);
 
     private final ReceiveFromLegacySystemPort receiveFromLegacySystemPort;
+    private final ReferenceMessageCache referenceMessageCache;
+    private final AdaptiveRateLimiter rateLimiter;
 
     public VesselInformationDeliver(ReceiveFromLegacySystemPort receiveFromLegacySystemPort) {
+        this(receiveFromLegacySystemPort, new ReferenceMessageCache(0, 0L, 0L));
+    }
+
+    /**
+     * @param receiveFromLegacySystemPort port of the Service Handler of the Generic Adaptor
+     * @param referenceMessageCache       cache of the reference messages found, or not found, in the database
+     */
+    public VesselInformationDeliver(ReceiveFromLegacySystemPort receiveFromLegacySystemPort, ReferenceMessageCache referenceMessageCache) {
+        this(receiveFromLegacySystemPort, referenceMessageCache, AdaptiveRateLimiter.UNLIMITED);
+    }
+
+    /**
+     * @param receiveFromLegacySystemPort port of the Service Handler of the Generic Adaptor
+     * @param referenceMessageCache       cache of the reference messages found, or not found, in the database
+     * @param rateLimiter                 limit of the rate of the messages handed to the Service Handler
+     */
+    public VesselInformationDeliver(ReceiveFromLegacySystemPort receiveFromLegacySystemPort, ReferenceMessageCache referenceMessageCache,
+                                    AdaptiveRateLimiter rateLimiter) {
         this.receiveFromLegacySystemPort = receiveFromLegacySystemPort;
+        this.referenceMessageCache = referenceMessageCache;
+        this.rateLimiter = rateLimiter;
     }
 
     @Override
@@ -50,9 +75,9 @@ public class VesselInformationDeliver implements SubscribeProviderDeliver {
         // validate that contextId is valid UUID. Try to get it from the referenceMessageId
         if (!UUID_REGEX.matcher(contextId).matches()) {
             logger.info(LoggerMessage.of("Provided Context ID {}  was invalid, trying to get it from referenceMessageId {}", contextId, referenceMessageId));
-            Optional<Message> foundReferenceMessage = receiveFromLegacySystemPort.getMessageById(referenceMessageId);
+            Optional<Pair<String, String>> foundReferenceMessage = referenceMessageCache.lookup(referenceMessageId, receiveFromLegacySystemPort::getMessageById);
             if (foundReferenceMessage.isPresent()) {
-                contextId = foundReferenceMessage.get().getContextID();
+                contextId = foundReferenceMessage.get().getLeft();
                 logger.info(LoggerMessage.of("Reference message with ID {}  was found in the database. Used contextId: {} from reference message", referenceMessageId, contextId));
 
             } else {
@@ -74,7 +99,35 @@ public class VesselInformationDeliver implements SubscribeProviderDeliver {
                 .contextId(contextId) // the contextId from the CSV File
                 .requiresAck(false);
 
-        return receiveFromLegacySystemPort.handleIncomingLegacyData(messageDataContextManager);
+        return handleAtLimitedRate(messageDataContextManager, null);
+    }
+
+    /**
+     * Hands the message to the Service Handler once the rate limiter allows it, then adapts the rate to the latency and the codes of
+     * its acknowledgements
+     */
+    private List<Pair<RegisteredMessage, Acknowledgement>> handleAtLimitedRate(MessageDataContext.MessageDataContextManager messageDataContextManager,
+                                                                               String recipientServiceId) throws CiseAdaptorValidationException {
+        try {
+            rateLimiter.acquire(recipientServiceId);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CiseAdaptorRuntimeException("Interrupted while waiting for the delivery rate limit", ex);
+        }
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<Pair<RegisteredMessage, Acknowledgement>> acknowledgements = receiveFromLegacySystemPort.handleIncomingLegacyData(messageDataContextManager);
+            success = isSuccess(acknowledgements);
+            return acknowledgements;
+        } finally {
+            rateLimiter.onDelivered(recipientServiceId, System.nanoTime() - start, success);
+        }
+    }
+
+    private static boolean isSuccess(List<Pair<RegisteredMessage, Acknowledgement>> acknowledgements) {
+        return acknowledgements == null || acknowledgements.stream()
+                .allMatch(acknowledgement -> acknowledgement.getRight() == null || acknowledgement.getRight().getAckCode() == AcknowledgementType.SUCCESS);
     }
 
 
@@ -22,6 +22,356 @@ public interface SubscribeProviderPluginConfig extends PluginConfig {
     @Key("csv-error-directory")
     String getCSVErrorDirectory();
 
+    /**
+     * Interval between two scans of the CSV input directory
+     *
+     * @return the polling interval in seconds
+     */
+    @Key("csv-input-polling-interval-seconds")
+    @DefaultValue("5")
+    long getCSVInputPollingIntervalSeconds();
+
+    /**
+     * Enables the event driven pickup of the CSV files through a WatchService on the input directory.
+     * The polling of the directory stays active as a fallback for file systems that do not deliver events.
+     *
+     * @return true if the input directory is watched
+     */
+    @Key("csv-input-watch-enabled")
+    @DefaultValue("false")
+    boolean isCSVInputWatchEnabled();
+
+    /**
+     * Time to wait after a watch event before checking that the size of the CSV file is stable
+     *
+     * @return the settle time in milliseconds
+     */
+    @Key("csv-input-watch-settle-millis")
+    @DefaultValue("500")
+    long getCSVInputWatchSettleMillis();
+
+    /**
+     * Number of file workers processing the CSV files found in the input directory in parallel
+     *
+     * @return the number of file worker threads
+     */
+    @Key("csv-worker-threads")
+    @DefaultValue("1")
+    int getCSVWorkerThreads();
+
+    /**
+     * Enables the streaming translation of the CSV files, which delivers the groups of lines while the file is read
+     * instead of reading the whole file in memory first
+     *
+     * @return true if the CSV files are streamed
+     */
+    @Key("csv-streaming-enabled")
+    @DefaultValue("false")
+    boolean isCSVStreamingEnabled();
+
+    /**
+     * Memory budget of the streaming translation: maximum number of translated lines kept in memory for one file
+     *
+     * @return the maximum number of buffered lines
+     */
+    @Key("csv-streaming-max-buffered-lines")
+    @DefaultValue("10000")
+    int getCSVStreamingMaxBufferedLines();
+
+    /**
+     * Maximum number of lines of a group in the streaming translation. A group reaching this size is delivered immediately
+     *
+     * @return the maximum number of lines of one message
+     */
+    @Key("csv-streaming-max-group-lines")
+    @DefaultValue("1000")
+    int getCSVStreamingMaxGroupLines();
+
+    /**
+     * Record the delivered groups of each CSV file in a checkpoint journal, so that a file interrupted by a restart is resumed
+     * without sending its delivered groups again. Disabled by default: the journal is written next to the file in the input directory
+     * and forced to the disk after each delivered group
+     *
+     * @return true if the checkpoint journal is enabled
+     */
+    @Key("csv-checkpoint-enabled")
+    @DefaultValue("false")
+    boolean isCSVCheckpointEnabled();
+
+    /**
+     * Deliver the groups of valid lines of a CSV file even if some of its lines have errors. The lines with errors are written
+     * to the error file and marked as skipped in the sent details file
+     *
+     * @return true if the partial delivery is enabled
+     */
+    @Key("csv-partial-delivery-enabled")
+    @DefaultValue("false")
+    boolean isCSVPartialDeliveryEnabled();
+
+    /**
+     * Protocol followed by the writers to signal that a CSV file is complete: size (the size is stable between two checks),
+     * rename (files written as *.csv.part and renamed to *.csv) or marker (a *.csv.done file is created next to the file).
+     * With rename and marker the files are processed as soon as they are committed.
+     *
+     * @return the value of {@link CSVInputCommitProtocol}
+     */
+    @Key("csv-input-commit-protocol")
+    @DefaultValue("size")
+    String getCSVInputCommitProtocol();
+
+    /**
+     * Maximum number of ready CSV files selected by one scan of the input directory, the oldest files first. The files being processed
+     * by the file workers count against this limit
+     *
+     * @return the maximum number of files of one scan
+     */
+    @Key("csv-input-scan-max-files")
+    @DefaultValue("1000")
+    int getCSVInputScanMaxFiles();
+
+    /**
+     * Process the CSV files through a staged pipeline (parse, build, deliver, report) with bounded queues between the stages,
+     * instead of the file workers. Not used in streaming mode
+     *
+     * @return true if the pipeline is enabled
+     */
+    @Key("csv-pipeline-enabled")
+    @DefaultValue("false")
+    boolean isCSVPipelineEnabled();
+
+    /**
+     * @return number of threads parsing the CSV files in the pipeline
+     */
+    @Key("csv-pipeline-parse-threads")
+    @DefaultValue("1")
+    int getCSVPipelineParseThreads();
+
+    /**
+     * @return number of threads building the payloads of the groups in the pipeline
+     */
+    @Key("csv-pipeline-build-threads")
+    @DefaultValue("1")
+    int getCSVPipelineBuildThreads();
+
+    /**
+     * @return number of threads delivering the payloads in the pipeline
+     */
+    @Key("csv-pipeline-deliver-threads")
+    @DefaultValue("1")
+    int getCSVPipelineDeliverThreads();
+
+    /**
+     * @return maximum number of files waiting in each of the parse, build and report queues of the pipeline
+     */
+    @Key("csv-pipeline-file-queue-capacity")
+    @DefaultValue("2")
+    int getCSVPipelineFileQueueCapacity();
+
+    /**
+     * @return maximum number of payloads waiting to be delivered in the pipeline
+     */
+    @Key("csv-pipeline-group-queue-capacity")
+    @DefaultValue("100")
+    int getCSVPipelineGroupQueueCapacity();
+
+    /**
+     * Glob of the file names of the input directory that are followed as append-only logs instead of being processed once complete,
+     * for example positions*.csv. Empty to follow no file
+     *
+     * @return the pattern of the followed files
+     */
+    @Key("csv-follow-file-pattern")
+    @DefaultValue("")
+    String getCSVFollowFilePattern();
+
+    /**
+     * @return maximum number of appended lines of a followed file delivered in one batch
+     */
+    @Key("csv-follow-max-lines")
+    @DefaultValue("1000")
+    int getCSVFollowMaxLines();
+
+    /**
+     * Keep the lines of the files in primitive columns instead of one entry with its Strings and Vessel per line, to reduce the memory
+     * used by large files. Not used in streaming mode
+     *
+     * @return true if the columnar mode is enabled
+     */
+    @Key("csv-columnar-enabled")
+    @DefaultValue("false")
+    boolean isCSVColumnarEnabled();
+
+    /**
+     * Number of threads translating the chunks of a large file in parallel, 0 to translate the files sequentially.
+     * Not used in streaming and columnar modes
+     *
+     * @return the number of translation threads
+     */
+    @Key("csv-parallel-translation-threads")
+    @DefaultValue("0")
+    int getCSVParallelTranslationThreads();
+
+    /**
+     * Minimum size of a file, in bytes, to translate it in parallel
+     *
+     * @return the size threshold of the parallel translation
+     */
+    @Key("csv-parallel-translation-threshold-bytes")
+    @DefaultValue("16777216")
+    long getCSVParallelTranslationThresholdBytes();
+
+    /**
+     * Write the sent details and the error files gzip compressed, with the .gz extension. The input files named *.csv.gz are read
+     * compressed whatever this setting
+     *
+     * @return true if the output files are compressed
+     */
+    @Key("csv-output-gzip-enabled")
+    @DefaultValue("false")
+    boolean isCSVOutputGzipEnabled();
+
+    /**
+     * Leave out the positions of a vessel (by IMO number, or MMSI) replaced by a newer one of another file waiting for delivery,
+     * the older positions are marked as conflated in the sent details file. Not used in streaming and columnar modes
+     *
+     * @return true if the conflation is enabled
+     */
+    @Key("csv-conflation-enabled")
+    @DefaultValue("false")
+    boolean isCSVConflationEnabled();
+
+    /**
+     * Minimum size of a file, in bytes, to split it in line-aligned chunks that are translated, delivered and reported independently,
+     * 0 to never split the files. Not used in streaming and columnar modes, the compressed files are never split
+     *
+     * @return the size threshold of the splitting
+     */
+    @Key("csv-split-threshold-bytes")
+    @DefaultValue("0")
+    long getCSVSplitThresholdBytes();
+
+    /**
+     * Size of the chunks of a split file, in bytes, each chunk ending at the end of a line
+     *
+     * @return the size of the chunks
+     */
+    @Key("csv-split-chunk-bytes")
+    @DefaultValue("67108864")
+    long getCSVSplitChunkBytes();
+
+    /**
+     * Number of threads processing the chunks of the split files in parallel
+     *
+     * @return the number of chunk worker threads
+     */
+    @Key("csv-split-threads")
+    @DefaultValue("2")
+    int getCSVSplitThreads();
+
+    /**
+     * Maximum number of vessels in one message, the larger groups of lines are split in several messages with the same contextId,
+     * 0 for no limit
+     *
+     * @return the maximum number of vessels per message
+     */
+    @Key("csv-message-max-vessels")
+    @DefaultValue("0")
+    int getCSVMessageMaxVessels();
+
+    /**
+     * Maximum estimated size of the vessels of one message, in bytes, the larger groups of lines are split in several messages with the
+     * same contextId, 0 for no limit
+     *
+     * @return the byte budget of a message
+     */
+    @Key("csv-message-max-bytes")
+    @DefaultValue("0")
+    long getCSVMessageMaxBytes();
+
+    /**
+     * Maximum number of messages sent by the file workers that wait for their acknowledgement at the same time, over all the files,
+     * 1 to deliver the groups of a file one at a time. Not used by the pipeline and the streaming mode
+     *
+     * @return the maximum number of messages in flight
+     */
+    @Key("csv-delivery-max-in-flight")
+    @DefaultValue("1")
+    int getCSVDeliveryMaxInFlight();
+
+    /**
+     * Maximum number of reference messages (looked up when the contextId of a line is not a UUID) kept in the cache, the least recently
+     * used is evicted first, 0 to query the database for each message
+     *
+     * @return the maximum number of cached reference messages
+     */
+    @Key("reference-message-cache-max-entries")
+    @DefaultValue("10000")
+    int getReferenceMessageCacheMaxEntries();
+
+    /**
+     * Time a reference message found in the database is kept in the cache, in seconds
+     *
+     * @return the time to live of a cached reference message
+     */
+    @Key("reference-message-cache-ttl-seconds")
+    @DefaultValue("300")
+    long getReferenceMessageCacheTtlSeconds();
+
+    /**
+     * Time a reference message not found in the database is remembered, in seconds, 0 to query it again for each message
+     *
+     * @return the time to live of a reference message not found
+     */
+    @Key("reference-message-cache-not-found-ttl-seconds")
+    @DefaultValue("10")
+    long getReferenceMessageCacheNotFoundTtlSeconds();
+
+    /**
+     * Maximum number of messages per second handed to the Generic Adaptor over all the deliveries, the starting rate of the adaptive
+     * rate limiter, 0 for no limit
+     *
+     * @return the maximum delivery rate
+     */
+    @Key("delivery-rate-limit-max-per-second")
+    @DefaultValue("0")
+    int getDeliveryRateLimitMaxPerSecond();
+
+    /**
+     * Minimum number of messages per second the delivery rate is decreased to
+     *
+     * @return the minimum delivery rate
+     */
+    @Key("delivery-rate-limit-min-per-second")
+    @DefaultValue("1")
+    int getDeliveryRateLimitMinPerSecond();
+
+    /**
+     * Acknowledgement latency above which the delivery rate is decreased, as for an acknowledgement other than SUCCESS
+     *
+     * @return the target acknowledgement latency in milliseconds
+     */
+    @Key("delivery-rate-limit-target-latency-millis")
+    @DefaultValue("2000")
+    long getDeliveryRateLimitTargetLatencyMillis();
+
+    /**
+     * Messages per second added to the delivery rate for each second of deliveries acknowledged with SUCCESS within the target latency
+     *
+     * @return the additive increase of the delivery rate
+     */
+    @Key("delivery-rate-limit-increase-per-second")
+    @DefaultValue("1")
+    double getDeliveryRateLimitIncreasePerSecond();
+
+    /**
+     * Factor applied to the delivery rate on a slow acknowledgement, an acknowledgement other than SUCCESS or a failed delivery
+     *
+     * @return the multiplicative decrease of the delivery rate
+     */
+    @Key("delivery-rate-limit-decrease-factor")
+    @DefaultValue("0.5")
+    double getDeliveryRateLimitDecreaseFactor();
+
     @Config.Key("adaptor-http.port")
     int getHttpPort();
 
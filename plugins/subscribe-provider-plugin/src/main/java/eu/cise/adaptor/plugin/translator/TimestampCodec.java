@@ -0,0 +1,144 @@
+package eu.cise.adaptor.plugin.translator;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeConstants;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Converts the position timestamps of the csv lines, written with the fixed format {@code yyyy-MM-dd HH:mm:ss} and taken as UTC,
+ * without going through a SimpleDateFormat, a Date and a GregorianCalendar: the digits are read at their position and the
+ * XMLGregorianCalendar is created from its fields by a DatatypeFactory shared by all the threads.
+ * <p>
+ * The lines of a file usually share a few seconds, so the last converted timestamps are kept in a small cache indexed by the hash of
+ * the text. The cached entries are immutable and the cache slots are overwritten without locking; a thread missing the entry written by
+ * another one only converts the timestamp again.
+ * <p>
+ * A text that does not have the fixed format, or whose fields are out of range, is not converted here and the caller falls back to the
+ * lenient parsing of SimpleDateFormat.
+ */
+final class TimestampCodec {
+
+    static final String FIXED_PATTERN = "yyyy-MM-dd HH:mm:ss";
+    private static final int FIXED_LENGTH = FIXED_PATTERN.length();
+    private static final int CACHE_SIZE = 256; // power of 2
+
+    private static final DatatypeFactory datatypeFactory = createDatatypeFactory();
+    private static final CachedTimestamp[] cache = new CachedTimestamp[CACHE_SIZE];
+
+    private TimestampCodec() {
+    }
+
+    /**
+     * @param text timestamp with the fixed format
+     * @return the converted timestamp, null if the text does not have the fixed format or one of its fields is out of range
+     */
+    static CachedTimestamp parse(String text) {
+        int slot = text.hashCode() & (CACHE_SIZE - 1);
+        CachedTimestamp cached = cache[slot];
+        if (cached != null && cached.text.equals(text)) {
+            return cached;
+        }
+
+        if (text.length() != FIXED_LENGTH
+                || text.charAt(4) != '-' || text.charAt(7) != '-' || text.charAt(10) != ' ' || text.charAt(13) != ':' || text.charAt(16) != ':') {
+            return null;
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 2);
+        int day = digits(text, 8, 2);
+        int hour = digits(text, 11, 2);
+        int minute = digits(text, 14, 2);
+        int second = digits(text, 17, 2);
+        // before the Gregorian cutover SimpleDateFormat uses the Julian calendar, it is left to the lenient parsing as are the invalid fields
+        if (year < 1583 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return null;
+        }
+
+        long epochSeconds = LocalDateTime.of(year, month, day, hour, minute, second).toEpochSecond(ZoneOffset.UTC);
+        CachedTimestamp converted = new CachedTimestamp(text, epochSeconds, newXMLGregorianCalendar(year, month, day, hour, minute, second));
+        cache[slot] = converted;
+        return converted;
+    }
+
+    /**
+     * @param epochSeconds time in seconds since the epoch
+     * @return the time as a UTC XMLGregorianCalendar without milliseconds
+     */
+    static XMLGregorianCalendar toXMLGregorianCalendar(long epochSeconds) {
+        LocalDateTime dateTime = LocalDateTime.ofEpochSecond(epochSeconds, 0, ZoneOffset.UTC);
+        return newXMLGregorianCalendar(dateTime.getYear(), dateTime.getMonthValue(), dateTime.getDayOfMonth(),
+                dateTime.getHour(), dateTime.getMinute(), dateTime.getSecond());
+    }
+
+    static DatatypeFactory getDatatypeFactory() {
+        return datatypeFactory;
+    }
+
+    private static XMLGregorianCalendar newXMLGregorianCalendar(int year, int month, int day, int hour, int minute, int second) {
+        return datatypeFactory.newXMLGregorianCalendar(year, month, day, hour, minute, second, DatatypeConstants.FIELD_UNDEFINED, 0);
+    }
+
+    /**
+     * @return the value of the decimal digits, negative if one of the characters is not a digit
+     */
+    private static int digits(String text, int start, int length) {
+        int value = 0;
+        for (int i = start; i < start + length; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static DatatypeFactory createDatatypeFactory() {
+        try {
+            return DatatypeFactory.newInstance(); // the JDK implementation keeps no state and can be shared by the threads
+        } catch (DatatypeConfigurationException ex) {
+            throw new IllegalStateException("Unable to create the DatatypeFactory", ex);
+        }
+    }
+
+    /**
+     * Timestamp converted from its text. The XMLGregorianCalendar is mutable, so a copy is given to each caller
+     */
+    static final class CachedTimestamp {
+        private final String text;
+        private final long epochSeconds;
+        private final XMLGregorianCalendar calendar;
+
+        private CachedTimestamp(String text, long epochSeconds, XMLGregorianCalendar calendar) {
+            this.text = text;
+            this.epochSeconds = epochSeconds;
+            this.calendar = calendar;
+        }
+
+        long getEpochSeconds() {
+            return epochSeconds;
+        }
+
+        XMLGregorianCalendar newCalendar() {
+            return (XMLGregorianCalendar) calendar.clone();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package eu.cise.adaptor.plugin.translator;
+
+import eu.cise.adaptor.core.common.logging.AdaptorLogger;
+import eu.cise.adaptor.core.common.logging.LogConfig;
+import eu.cise.adaptor.core.common.logging.LoggerMessage;
+import eu.cise.adaptor.plugin.translator.VesselCSVTranslator.MessageKey;
+import eu.cise.adaptor.plugin.translator.exceptions.VesselCSVTranslationException;
+import eu.cise.datamodel.v1.entity.vessel.Vessel;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Mapping of the columns of a csv file to the vessel fields, compiled once per file from its header row. The header gives the position
+ * of each known column, in any order; the unknown columns are ignored, their field is never extracted from the lines. The index of the
+ * field of each column is kept in an array, so the fields of a line are taken without any lookup by name.
+ * <p>
+ * Besides the columns of {@link VesselCSVTranslator#csvHeaderRow}, the header may map optional vessel attributes (name, callSign and
+ * flag) that are set on the Vessel. A file without a recognised header is read with the columns of {@link VesselCSVTranslator#csvHeaderRow}
+ * in their original order.
+ */
+public class VesselCSVColumnMapping {
+
+    private static final AdaptorLogger logger = LogConfig.configureLogging(VesselCSVColumnMapping.class);
+
+    /**
+     * Known columns, with their name in the header row
+     */
+    public enum Column {
+        IMO_NUMBER("IMO_Number"),
+        MMSI("MMSI"),
+        LONGITUDE("longitude"),
+        LATITUDE("latitude"),
+        POSITION_TIMESTAMP("position_timestamp"),
+        CONTEXT_ID("contextId"),
+        REFERENCE_MESSAGE_ID("referenceMessageId"),
+        // optional vessel attributes
+        NAME("name"),
+        CALL_SIGN("callSign"),
+        FLAG("flag");
+
+        private final String headerName;
+
+        Column(String headerName) {
+            this.headerName = headerName;
+        }
+
+        public String getHeaderName() {
+            return headerName;
+        }
+    }
+
+    private static final Set<Column> VESSEL_ATTRIBUTES = EnumSet.of(Column.NAME, Column.CALL_SIGN, Column.FLAG);
+    private static final Column[] COLUMNS = Column.values();
+
+    /**
+     * Mapping of the files without header, the columns of {@link VesselCSVTranslator#csvHeaderRow} in their order
+     */
+    public static final VesselCSVColumnMapping DEFAULT = new VesselCSVColumnMapping(VesselCSVTranslator.csvHeaderRow.split(","), 0);
+
+    private final int[] fieldIndexes; // index of the field of each column, by ordinal, -1 if the column is not in the file
+    private final int fieldCount;
+    private final String headerRow;
+    private final int headerLineNumber; // 0 if the file has no header
+    private final boolean vesselAttributesMapped;
+
+    private VesselCSVColumnMapping(String[] headerNames, int headerLineNumber) {
+        this.fieldIndexes = new int[COLUMNS.length];
+        Arrays.fill(fieldIndexes, -1);
+        for (int i = 0; i < headerNames.length; i++) {
+            for (Column column : COLUMNS) {
+                if (fieldIndexes[column.ordinal()] < 0 && column.getHeaderName().equalsIgnoreCase(headerNames[i].trim())) {
+                    fieldIndexes[column.ordinal()] = i;
+                }
+            }
+        }
+        this.fieldCount = headerNames.length;
+        this.headerRow = String.join(",", headerNames);
+        this.headerLineNumber = headerLineNumber;
+        this.vesselAttributesMapped = VESSEL_ATTRIBUTES.stream().anyMatch(column -> fieldIndexes[column.ordinal()] >= 0);
+    }
+
+    /**
+     * Reads the header row of the file, its first line that is not blank
+     *
+     * @param csvFile Csv file (UTF-8 encoded)
+     * @return the mapping of the header row, {@link #DEFAULT} if the first line is not a header
+     * @throws IOException The file was not found or could not be read
+     */
+    public static VesselCSVColumnMapping readHeader(File csvFile) throws IOException {
+        try (VesselCSVLineReader lineReader = new VesselCSVLineReader(csvFile)) {
+            while (lineReader.nextLine()) {
+                if (!lineReader.isBlank()) {
+                    return fromHeaderRow(lineReader.getLine(), lineReader.getLineNumber());
+                }
+            }
+        }
+        return DEFAULT;
+    }
+
+    /**
+     * @param line       first line of the file
+     * @param lineNumber number of the line in the file
+     * @return the mapping of the line if one of its fields is the name of a known column, {@link #DEFAULT} otherwise
+     */
+    static VesselCSVColumnMapping fromHeaderRow(String line, int lineNumber) {
+        VesselCSVFieldTokenizer tokenizer = new VesselCSVFieldTokenizer();
+        String[] headerNames;
+        try {
+            headerNames = new String[tokenizer.tokenize(line)];
+        } catch (VesselCSVTranslationException ex) {
+            return DEFAULT; // not a header
+        }
+        for (int i = 0; i < headerNames.length; i++) {
+            headerNames[i] = tokenizer.getField(i);
+        }
+        VesselCSVColumnMapping mapping = new VesselCSVColumnMapping(headerNames, lineNumber);
+        if (Arrays.stream(mapping.fieldIndexes).allMatch(index -> index < 0)) {
+            return DEFAULT;
+        }
+        for (Column column : COLUMNS) {
+            if (!VESSEL_ATTRIBUTES.contains(column) && mapping.fieldIndexes[column.ordinal()] < 0) {
+                logger.warn(LoggerMessage.of("The header row has no {} column, its value is empty in all the lines: {}", column.getHeaderName(), line));
+            }
+        }
+        return mapping;
+    }
+
+    /**
+     * @return true for the header row of the file, and the lines starting with the name of the first default column
+     */
+    public boolean isHeader(VesselCSVLineReader lineReader) {
+        return isHeader(lineReader, 0);
+    }
+
+    /**
+     * @param lineReader    reader of one chunk of the file
+     * @param previousLines number of lines of the file before the chunk
+     * @return true for the header row of the file, and the lines starting with the name of the first default column
+     */
+    public boolean isHeader(VesselCSVLineReader lineReader, int previousLines) {
+        return previousLines + lineReader.getLineNumber() == headerLineNumber || lineReader.startsWith(VesselCSVTranslator.csvHeaderPrefix);
+    }
+
+    /**
+     * @param tokenizer tokenizer holding the fields of a line
+     * @param column    column of the field
+     * @return the field of the column, empty if the column is not in the file
+     */
+    public String getField(VesselCSVFieldTokenizer tokenizer, Column column) {
+        int fieldIndex = fieldIndexes[column.ordinal()];
+        return fieldIndex < 0 ? "" : tokenizer.getField(fieldIndex);
+    }
+
+    /**
+     * @param tokenizer tokenizer holding the fields of a line
+     * @return the key of the group of the line
+     */
+    public MessageKey getMessageKey(VesselCSVFieldTokenizer tokenizer) {
+        return new MessageKey(getField(tokenizer, Column.CONTEXT_ID), getField(tokenizer, Column.REFERENCE_MESSAGE_ID));
+    }
+
+    /**
+     * @return the number of fields of the lines, the number of columns of the header row
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * @return the header row of the file, the header of {@link VesselCSVTranslator#csvHeaderRow} for the files without header
+     */
+    public String getHeaderRow() {
+        return headerRow;
+    }
+
+    public boolean hasVesselAttributes() {
+        return vesselAttributesMapped;
+    }
+
+    /**
+     * @param tokenizer tokenizer holding the fields of a line
+     * @return the name, callSign and flag of the line, null if the file has none of these columns
+     */
+    public String[] getVesselAttributes(VesselCSVFieldTokenizer tokenizer) {
+        return vesselAttributesMapped
+                ? new String[]{getField(tokenizer, Column.NAME), getField(tokenizer, Column.CALL_SIGN), getField(tokenizer, Column.FLAG)}
+                : null;
+    }
+
+    /**
+     * Sets on the Vessel the optional attributes of the line that are not empty
+     *
+     * @param tokenizer tokenizer holding the fields of a line
+     * @param vessel    Vessel of the line
+     */
+    public void setVesselAttributes(VesselCSVFieldTokenizer tokenizer, Vessel vessel) {
+        if (vesselAttributesMapped) {
+            setVesselAttributes(vessel, getField(tokenizer, Column.NAME), getField(tokenizer, Column.CALL_SIGN), getField(tokenizer, Column.FLAG));
+        }
+    }
+
+    static void setVesselAttributes(Vessel vessel, String name, String callSign, String flag) {
+        if (!StringUtils.isEmpty(name)) {
+            vessel.getNames().add(name);
+        }
+        if (!StringUtils.isEmpty(callSign)) {
+            vessel.setCallSign(callSign);
+        }
+        if (!StringUtils.isEmpty(flag)) {
+            vessel.setFlag(flag);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package eu.cise.adaptor.plugin.translator;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip compression of the csv files, chosen from the name of the file: the files named *.gz are read and written compressed, the other
+ * files as plain text. The compressed files are decompressed as a stream while they are read, no uncompressed copy is written.
+ * <p>
+ * Appending to a compressed file adds a new gzip member at its end, the members are decompressed one after the other as a single text.
+ */
+public final class VesselCSVCompression {
+
+    public static final String GZIP_EXTENSION = ".gz";
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    private VesselCSVCompression() {
+    }
+
+    /**
+     * @return true if the file is gzip compressed, its name ends with .gz
+     */
+    public static boolean isGzipCompressed(File file) {
+        return file.getName().endsWith(GZIP_EXTENSION);
+    }
+
+    /**
+     * @param file gzip compressed file
+     * @return the stream of the decompressed bytes of the file
+     * @throws IOException The file was not found or is not gzip compressed
+     */
+    static InputStream openDecompressedStream(File file) throws IOException {
+        FileInputStream fileStream = new FileInputStream(file);
+        try {
+            return new GZIPInputStream(fileStream, STREAM_BUFFER_SIZE);
+        } catch (IOException ex) {
+            fileStream.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * @param file   file to write, compressed if its name ends with .gz
+     * @param append true to write at the end of the file
+     * @return a buffered writer of the file, in UTF-8 like the csv files are read
+     * @throws IOException The file could not be opened
+     */
+    static Writer newWriter(File file, boolean append) throws IOException {
+        if (!isGzipCompressed(file)) {
+            return new BufferedWriter(new FileWriter(file, StandardCharsets.UTF_8, append));
+        }
+        FileOutputStream fileStream = new FileOutputStream(file, append);
+        try {
+            return new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(fileStream, STREAM_BUFFER_SIZE), StandardCharsets.UTF_8));
+        } catch (IOException ex) {
+            fileStream.close();
+            throw ex;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package eu.cise.adaptor.plugin.translator;
+
+import eu.cise.adaptor.core.common.logging.AdaptorLogger;
+import eu.cise.adaptor.core.common.logging.LogConfig;
+import eu.cise.adaptor.core.common.logging.LoggerMessage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Append-only CSV file followed by the adaptor, like a log: the file is never moved, the lines appended since the previous reading are
+ * translated and delivered in small batches.
+ * <p>
+ * The byte offset and the line number of the end of the last delivered batch are kept in an offset file, replaced atomically when a batch
+ * is committed, so the following is resumed from the same position after a restart. Only the lines terminated by '\n' are read, the last
+ * line may still be being written. When the file becomes shorter than the offset, it has been truncated or replaced and is read again from
+ * the beginning.
+ * <p>
+ * The lines of a batch delivered but not committed when the adaptor stopped are delivered again.
+ */
+public class VesselCSVFollowedFile {
+
+    private static final AdaptorLogger logger = LogConfig.configureLogging(VesselCSVFollowedFile.class);
+
+    private final File csvFile;
+    private final File offsetFile;
+    private long offset;
+    private int lineNumber;
+    private long pendingOffset;
+    private int pendingLineNumber;
+
+    private VesselCSVFollowedFile(File csvFile, File offsetFile, long offset, int lineNumber) {
+        this.csvFile = csvFile;
+        this.offsetFile = offsetFile;
+        this.offset = offset;
+        this.lineNumber = lineNumber;
+        this.pendingOffset = offset;
+        this.pendingLineNumber = lineNumber;
+    }
+
+    /**
+     * Opens a followed file at the position saved in its offset file, or at the beginning of the file
+     *
+     * @param csvFile    followed csv file
+     * @param offsetFile file keeping the position of the last committed batch
+     * @return the followed file
+     * @throws IOException In case of IO Problem during the reading of the offset file
+     */
+    public static VesselCSVFollowedFile open(File csvFile, File offsetFile) throws IOException {
+        long offset = 0L;
+        int lineNumber = 0;
+        if (offsetFile.exists()) {
+            String[] fields = new String(Files.readAllBytes(offsetFile.toPath()), StandardCharsets.UTF_8).trim().split("\t");
+            try {
+                offset = Long.parseLong(fields[0]);
+                lineNumber = Integer.parseInt(fields[1]);
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException ex) {
+                logger.warn(LoggerMessage.of("Ignoring invalid offset file {}, {} is followed from the beginning", offsetFile.getAbsolutePath(), csvFile.getAbsolutePath()));
+                offset = 0L;
+                lineNumber = 0;
+            }
+        }
+        return new VesselCSVFollowedFile(csvFile, offsetFile, offset, lineNumber);
+    }
+
+    /**
+     * Translates the complete lines appended since the last committed batch. Until {@link #commit()} is called, the same lines are read again.
+     *
+     * @param maxLines maximum number of lines, header and blank lines excluded, in the batch
+     * @return the translated lines, null if no complete line has been appended
+     * @throws IOException In case of IO Problem during the reading of the file
+     */
+    public VesselCSVTranslator readAppendedLines(int maxLines) throws IOException {
+        if (csvFile.length() < offset) {
+            logger.warn(LoggerMessage.of("Followed file {} is shorter than the offset {}, it is followed again from the beginning", csvFile.getAbsolutePath(), offset));
+            offset = 0L;
+            lineNumber = 0;
+        }
+        VesselCSVTranslator result = new VesselCSVTranslator();
+        result.setColumnMapping(VesselCSVColumnMapping.readHeader(csvFile));
+        pendingOffset = offset;
+        pendingLineNumber = lineNumber;
+        int batchLines = 0;
+
+        try (VesselCSVLineReader lineReader = new VesselCSVLineReader(csvFile, offset, lineNumber)) {
+            while (batchLines < maxLines && lineReader.nextLine() && lineReader.isLineTerminated()) {
+                if (!result.getColumnMapping().isHeader(lineReader) && !lineReader.isBlank()) { // skip the file header line
+                    result.addCSVEntry(lineReader.getLine(), lineReader.getLineNumber());
+                    batchLines++;
+                }
+                pendingOffset = lineReader.getNextLineOffset();
+                pendingLineNumber = lineReader.getLineNumber();
+            }
+        }
+        return pendingOffset > offset ? result : null;
+    }
+
+    /**
+     * Saves the end of the last read batch as the position of the file, once the batch has been delivered
+     *
+     * @throws IOException In case of IO Problem during the writing of the offset file
+     */
+    public void commit() throws IOException {
+        File temporaryFile = new File(offsetFile.getParentFile(), offsetFile.getName() + ".tmp");
+        Files.write(temporaryFile.toPath(), (pendingOffset + "\t" + pendingLineNumber + "\n").getBytes(StandardCharsets.UTF_8));
+        Files.move(temporaryFile.toPath(), offsetFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        offset = pendingOffset;
+        lineNumber = pendingLineNumber;
+    }
+
+    /**
+     * @return offset of the byte following the last committed batch
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    public File getCsvFile() {
+        return csvFile;
+    }
+}
@@ -0,0 +1,131 @@
+package eu.cise.adaptor.plugin.translator;
+
+import eu.cise.adaptor.plugin.translator.VesselCSVTranslator.MessageKey;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Limits of the size of the messages: a {@link MessageKey} group with more vessels than the maximum, or whose payload is estimated
+ * larger than the byte budget, is split in consecutive parts of the lines of the group. The parts are delivered as separate messages with
+ * the same contextId and referenceMessageId, each part having its own {@link MessageKey} (see {@link MessageKey#getPart()})
+ * so that every line of the sent details gets the messageId of the message that carried it.
+ * <p>
+ * The serialized size of a Vessel is estimated from the fields it holds, without marshalling it: a fixed size for each element written
+ * (identifiers, location, period of the position) plus the length of the optional name, callSign and flag. A part always holds at least
+ * one vessel, even when that vessel alone is estimated larger than the budget.
+ */
+public class VesselCSVMessageSplitter {
+
+    /**
+     * No limit, the groups are delivered whole
+     */
+    public static final VesselCSVMessageSplitter UNLIMITED = new VesselCSVMessageSplitter(0, 0L);
+
+    // approximate size of the XML elements of a Vessel, with their tags and indentation
+    static final long VESSEL_BYTES = 40;
+    static final long IDENTIFIER_BYTES = 40; // IMONumber or MMSI
+    static final long LOCATION_BYTES = 240; // LocationRel, Location and Geometry with the latitude and longitude
+    static final long PERIOD_BYTES = 140; // PeriodOfTime with the start date and time of the position
+    static final long ATTRIBUTE_BYTES = 30; // Name, CallSign or Flag, without the value
+
+    private final int maxVessels; // 0 for no limit
+    private final long maxBytes; // 0 for no limit
+
+    /**
+     * @param maxVessels maximum number of vessels in one message, 0 for no limit
+     * @param maxBytes   maximum estimated size of the vessels of one message, in bytes, 0 for no limit
+     */
+    public VesselCSVMessageSplitter(int maxVessels, long maxBytes) {
+        this.maxVessels = Math.max(0, maxVessels);
+        this.maxBytes = Math.max(0L, maxBytes);
+    }
+
+    /**
+     * @return true if the groups are never split
+     */
+    public boolean isUnlimited() {
+        return maxVessels == 0 && maxBytes == 0L;
+    }
+
+    /**
+     * @param partVessels number of vessels already in the part
+     * @param partBytes   estimated size of the vessels already in the part
+     * @param vesselBytes estimated size of the next vessel
+     * @return true if the next vessel must start a new part
+     */
+    boolean isFull(int partVessels, long partBytes, long vesselBytes) {
+        return partVessels > 0
+                && ((maxVessels > 0 && partVessels >= maxVessels) || (maxBytes > 0L && partBytes + vesselBytes > maxBytes));
+    }
+
+    /**
+     * Splits the entries of a group in consecutive parts within the limits
+     *
+     * @param groupEntries entries of a group, in the order of the file
+     * @return the parts of the group, a single part with the given list if the groups are never split
+     */
+    List<List<VesselCSVTranslatorEntry>> split(List<VesselCSVTranslatorEntry> groupEntries) {
+        List<List<VesselCSVTranslatorEntry>> parts = new ArrayList<>();
+        if (isUnlimited()) {
+            parts.add(groupEntries);
+            return parts;
+        }
+        List<VesselCSVTranslatorEntry> part = new ArrayList<>();
+        long partBytes = 0L;
+        for (VesselCSVTranslatorEntry entry : groupEntries) {
+            long vesselBytes = estimateVesselBytes(entry);
+            if (isFull(part.size(), partBytes, vesselBytes)) {
+                parts.add(part);
+                part = new ArrayList<>();
+                partBytes = 0L;
+            }
+            part.add(entry);
+            partBytes += vesselBytes;
+        }
+        parts.add(part);
+        return parts;
+    }
+
+    /**
+     * @return the estimated size of the Vessel of a valid line once serialized, in bytes
+     */
+    static long estimateVesselBytes(VesselCSVTranslatorEntry entry) {
+        boolean position = !StringUtils.isEmpty(entry.getLatitude()) && !StringUtils.isEmpty(entry.getLongitude());
+        return estimateVesselBytes(entry.getIMONumber() != null, entry.getMMSI() != null, position,
+                position && entry.getPositionEpochSeconds() != Long.MIN_VALUE, entry.getVesselAttributes());
+    }
+
+    /**
+     * @param imoNumber        true if the vessel has an IMO number
+     * @param mmsi             true if the vessel has a MMSI
+     * @param position         true if the vessel has a position
+     * @param positionTime     true if the position has a timestamp
+     * @param vesselAttributes name, callSign and flag of the vessel, null if the file has none of these columns
+     * @return the estimated size of the Vessel once serialized, in bytes
+     */
+    static long estimateVesselBytes(boolean imoNumber, boolean mmsi, boolean position, boolean positionTime, String[] vesselAttributes) {
+        long vesselBytes = VESSEL_BYTES;
+        if (imoNumber) {
+            vesselBytes += IDENTIFIER_BYTES;
+        }
+        if (mmsi) {
+            vesselBytes += IDENTIFIER_BYTES;
+        }
+        if (position) {
+            vesselBytes += LOCATION_BYTES;
+            if (positionTime) {
+                vesselBytes += PERIOD_BYTES;
+            }
+        }
+        if (vesselAttributes != null) {
+            for (String vesselAttribute : vesselAttributes) {
+                if (!StringUtils.isEmpty(vesselAttribute)) {
+                    vesselBytes += ATTRIBUTE_BYTES + vesselAttribute.length();
+                }
+            }
+        }
+        return vesselBytes;
+    }
+}
@@ -0,0 +1,265 @@
+package eu.cise.adaptor.plugin.translator;
+
+import eu.cise.adaptor.core.common.logging.AdaptorLogger;
+import eu.cise.adaptor.core.common.logging.LogConfig;
+import eu.cise.adaptor.core.common.logging.LoggerMessage;
+import eu.cise.adaptor.core.servicehandler.domain.RegisteredMessage;
+import eu.cise.adaptor.plugin.cisecontext.CISEPayloadBuilder;
+import eu.cise.adaptor.plugin.cisecontext.VesselValidatingBuilder;
+import eu.cise.adaptor.plugin.cisecontext.impl.VesselPayloadBuilder;
+import eu.cise.adaptor.plugin.translator.VesselCSVTranslator.MessageKey;
+import eu.cise.servicemodel.v1.message.Acknowledgement;
+import eu.cise.servicemodel.v1.message.XmlEntityPayload;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming alternative to {@link VesselCSVTranslator} for very large CSV files. The lines are read and translated one by one and only
+ * a bounded number of translated lines is kept in memory:
+ * <ul>
+ * <li>a {@link MessageKey} group is handed for delivery as soon as it reaches the maximum number of lines per group, or when its next
+ * line would exceed the limits of the {@link VesselCSVMessageSplitter}</li>
+ * <li>when the lines buffered over all the open groups exceed the budget, the oldest open group is handed for delivery</li>
+ * <li>the remaining groups are handed for delivery at the end of the file</li>
+ * </ul>
+ * Lines with errors are written to the error file as they are found and the valid lines are always delivered. The sent details file
+ * is written group by group, so its lines follow the delivery order instead of the original order of the file. The lines with errors are
+ * also written to the sent details file, marked as skipped, when they are found.
+ * A group that was delivered early can be followed by another message with the same {@link MessageKey} when more lines of that group
+ * appear later in the file.
+ */
+public class VesselCSVStreamingTranslator {
+
+    private static final AdaptorLogger logger = LogConfig.configureLogging(VesselCSVStreamingTranslator.class);
+    private final int maxBufferedLines;
+    private final int maxGroupLines;
+    private final VesselCSVMessageSplitter messageSplitter;
+    private final VesselValidatingBuilder vesselPayloadBuilder;
+    private final CISEPayloadBuilder cisePayloadBuilder;
+
+    /**
+     * Delivers the payload of one group of lines and returns the sent message with its acknowledgement
+     */
+    @FunctionalInterface
+    public interface MessageGroupSender {
+        Pair<RegisteredMessage, Acknowledgement> send(MessageKey messageKey, XmlEntityPayload payload) throws Exception;
+    }
+
+    /**
+     * @param maxBufferedLines maximum number of translated lines kept in memory over all the open groups
+     * @param maxGroupLines    maximum number of lines in one group, a full group is delivered immediately
+     */
+    public VesselCSVStreamingTranslator(int maxBufferedLines, int maxGroupLines) {
+        this(maxBufferedLines, maxGroupLines, VesselCSVMessageSplitter.UNLIMITED);
+    }
+
+    /**
+     * @param maxBufferedLines maximum number of translated lines kept in memory over all the open groups
+     * @param maxGroupLines    maximum number of lines in one group, a full group is delivered immediately
+     * @param messageSplitter  limits of the messages, a group is delivered before its next line exceeds them
+     */
+    public VesselCSVStreamingTranslator(int maxBufferedLines, int maxGroupLines, VesselCSVMessageSplitter messageSplitter) {
+        this.maxBufferedLines = Math.max(1, maxBufferedLines);
+        this.maxGroupLines = Math.max(1, Math.min(maxGroupLines, this.maxBufferedLines));
+        this.messageSplitter = messageSplitter;
+        this.vesselPayloadBuilder = new VesselPayloadBuilder()::validateVesselData; // the Vessels are created when the payloads are built
+        this.cisePayloadBuilder = new VesselPayloadBuilder();
+    }
+
+    /**
+     * Translates and delivers the csv file group by group
+     *
+     * @param vesselCSVFile     Csv file
+     * @param sentDetailsFile   Destination csv file of the sent details, created with the first delivered group
+     * @param errorFile         Destination csv file of the lines with errors, created with the first error line
+     * @param messageGroupSender Delivery of the groups of lines
+     * @return the counters of the translation
+     * @throws Exception if the file cannot be read or written, or if a delivery fails
+     */
+    public StreamingResult translate(File vesselCSVFile, File sentDetailsFile, File errorFile, MessageGroupSender messageGroupSender) throws Exception {
+        return translate(vesselCSVFile, sentDetailsFile, errorFile, messageGroupSender, null);
+    }
+
+    /**
+     * Translates and delivers the csv file group by group, skipping the groups already delivered according to the checkpoint journal
+     *
+     * @param vesselCSVFile      Csv file
+     * @param sentDetailsFile    Destination csv file of the sent details, created with the first delivered group
+     * @param errorFile          Destination csv file of the lines with errors, created with the first error line
+     * @param messageGroupSender Delivery of the groups of lines
+     * @param checkpointJournal  Journal of the groups already delivered, null to deliver all the groups
+     * @return the counters of the translation
+     * @throws Exception if the file cannot be read or written, or if a delivery fails
+     */
+    public StreamingResult translate(File vesselCSVFile, File sentDetailsFile, File errorFile, MessageGroupSender messageGroupSender,
+                                     VesselCSVCheckpointJournal checkpointJournal) throws Exception {
+        logger.info(LoggerMessage.of("Streaming translation of inputFile found: {}", vesselCSVFile.getAbsolutePath()));
+        VesselCSVColumnMapping columnMapping = VesselCSVColumnMapping.readHeader(vesselCSVFile);
+        try (StreamingContext context = new StreamingContext(sentDetailsFile, errorFile, messageGroupSender, checkpointJournal, columnMapping.getHeaderRow());
+             VesselCSVLineReader lineReader = new VesselCSVLineReader(vesselCSVFile)) {
+            VesselCSVFieldTokenizer fieldTokenizer = new VesselCSVFieldTokenizer(); // the translator may be used by several file workers
+            while (lineReader.nextLine()) {
+                if (!columnMapping.isHeader(lineReader) && !lineReader.isBlank()) { // skip the file header line
+                    context.addCSVEntry(new VesselCSVTranslatorEntry(lineReader.getLine(), lineReader.getLineNumber(), vesselPayloadBuilder::validateAndTranslateToVessel,
+                            fieldTokenizer, columnMapping));
+                }
+            }
+            context.flushAll();
+            return context.result;
+        }
+    }
+
+    /**
+     * Counters of a streaming translation
+     */
+    public static class StreamingResult {
+        private int sentLines;
+        private int errorLines;
+        private int sentMessages;
+        private int recoveredMessages;
+
+        public int getSentLines() {
+            return sentLines;
+        }
+
+        public int getErrorLines() {
+            return errorLines;
+        }
+
+        public int getSentMessages() {
+            return sentMessages;
+        }
+
+        /**
+         * @return number of groups found in the checkpoint journal, which were not sent again
+         */
+        public int getRecoveredMessages() {
+            return recoveredMessages;
+        }
+    }
+
+    private class StreamingContext implements AutoCloseable {
+        private final Map<MessageKey, List<VesselCSVTranslatorEntry>> openGroups = new LinkedHashMap<>();
+        private final Map<MessageKey, Long> openGroupBytes = new HashMap<>(); // estimated size of the vessels of each open group
+        private final StreamingResult result = new StreamingResult();
+        private final File sentDetailsFile;
+        private final File errorFile;
+        private final MessageGroupSender messageGroupSender;
+        private final VesselCSVCheckpointJournal checkpointJournal;
+        private final String headerRow; // header row of the translated file
+        private final StringBuilder lineBuilder = new StringBuilder();
+        private Writer sentDetailsWriter;
+        private Writer errorWriter;
+        private int bufferedLines;
+        private int flushedGroups;
+
+        StreamingContext(File sentDetailsFile, File errorFile, MessageGroupSender messageGroupSender, VesselCSVCheckpointJournal checkpointJournal,
+                         String headerRow) {
+            this.sentDetailsFile = sentDetailsFile;
+            this.errorFile = errorFile;
+            this.messageGroupSender = messageGroupSender;
+            this.checkpointJournal = checkpointJournal;
+            this.headerRow = headerRow;
+        }
+
+        void addCSVEntry(VesselCSVTranslatorEntry entry) throws Exception {
+            if (entry.hasTranslationError()) {
+                writeErrorLine(entry);
+                return;
+            }
+            MessageKey messageKey = new MessageKey(entry.getContextId(), entry.getReferenceMessageId());
+            long vesselBytes = VesselCSVMessageSplitter.estimateVesselBytes(entry);
+            List<VesselCSVTranslatorEntry> groupEntries = openGroups.get(messageKey);
+            if (groupEntries != null && messageSplitter.isFull(groupEntries.size(), openGroupBytes.get(messageKey), vesselBytes)) {
+                flush(messageKey); // the line starts the next message of the group
+                groupEntries = null;
+            }
+            if (groupEntries == null) {
+                groupEntries = new ArrayList<>();
+                openGroups.put(messageKey, groupEntries);
+            }
+            groupEntries.add(entry);
+            openGroupBytes.merge(messageKey, vesselBytes, Long::sum);
+            bufferedLines++;
+
+            if (groupEntries.size() >= maxGroupLines) {
+                flush(messageKey);
+            } else if (bufferedLines > maxBufferedLines) {
+                // over budget, deliver the group that has been open for the longest time
+                flush(openGroups.keySet().iterator().next());
+            }
+        }
+
+        void flushAll() throws Exception {
+            for (MessageKey messageKey : new ArrayList<>(openGroups.keySet())) {
+                flush(messageKey);
+            }
+        }
+
+        private void flush(MessageKey messageKey) throws Exception {
+            List<VesselCSVTranslatorEntry> groupEntries = openGroups.remove(messageKey);
+            openGroupBytes.remove(messageKey);
+            bufferedLines -= groupEntries.size();
+            int groupIndex = flushedGroups++;
+
+            if (checkpointJournal != null && checkpointJournal.restore(groupIndex, messageKey, groupEntries)) {
+                result.recoveredMessages++;
+            } else {
+                Pair<RegisteredMessage, Acknowledgement> messageResult = messageGroupSender.send(messageKey, cisePayloadBuilder.build(groupEntries));
+                VesselCSVTranslator.updateEntriesWithMessageResult(groupEntries, messageResult);
+                result.sentMessages++;
+                if (checkpointJournal != null) {
+                    checkpointJournal.record(groupIndex, messageKey, groupEntries);
+                }
+            }
+            result.sentLines += groupEntries.size();
+
+            for (VesselCSVTranslatorEntry entry : groupEntries) {
+                writeSentDetailsLine(entry);
+            }
+        }
+
+        private void writeErrorLine(VesselCSVTranslatorEntry entry) throws IOException {
+            if (errorWriter == null) {
+                errorWriter = VesselCSVCompression.newWriter(errorFile, false);
+                errorWriter.write(headerRow + VesselCSVTranslator.errorFileHeaderSuffix);
+            }
+            lineBuilder.setLength(0);
+            VesselCSVTranslator.appendErrorLine(lineBuilder.append(System.lineSeparator()), entry);
+            errorWriter.append(lineBuilder);
+            result.errorLines++;
+            writeSentDetailsLine(entry);
+        }
+
+        private void writeSentDetailsLine(VesselCSVTranslatorEntry entry) throws IOException {
+            if (sentDetailsWriter == null) {
+                sentDetailsWriter = VesselCSVCompression.newWriter(sentDetailsFile, false);
+                sentDetailsWriter.write(headerRow + VesselCSVTranslator.sentDetailsFileHeaderSuffix);
+            }
+            lineBuilder.setLength(0);
+            VesselCSVTranslator.appendSentDetailsLine(lineBuilder.append(System.lineSeparator()), entry);
+            sentDetailsWriter.append(lineBuilder);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (sentDetailsWriter != null) {
+                    sentDetailsWriter.close();
+                }
+            } finally {
+                if (errorWriter != null) {
+                    errorWriter.close();
+                }
+            }
+        }
+    }
+}
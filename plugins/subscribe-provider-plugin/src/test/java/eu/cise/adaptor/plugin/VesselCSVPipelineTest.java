@@ -0,0 +1,180 @@
+package eu.cise.adaptor.plugin;
+
+import eu.cise.adaptor.plugin.translator.VesselCSVTranslator;
+import eu.cise.adaptor.plugin.translator.VesselCSVTranslator.MessageKey;
+import eu.cise.servicemodel.v1.message.XmlEntityPayload;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VesselCSVPipelineTest {
+
+    private static final String RECIPIENT = ""; // no recipientServiceId column
+
+    @TempDir
+    Path directory;
+
+    private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger restoredGroups = new AtomicInteger();
+    private final AtomicInteger parsedFiles = new AtomicInteger();
+    private final CountDownLatch deliveryAllowed = new CountDownLatch(1);
+    private final CountDownLatch completed = new CountDownLatch(3);
+    private final AtomicBoolean deliveryInterrupted = new AtomicBoolean();
+    private final List<String> failingGroups = Collections.synchronizedList(new ArrayList<>());
+    private VesselCSVPipeline<String> pipeline;
+
+    @AfterEach
+    void stop() {
+        pipeline.stop();
+    }
+
+    @Test
+    void it_holds_back_the_build_stage_while_the_deliver_queue_is_full() throws Exception {
+        pipeline = new VesselCSVPipeline<>(new RecordingSteps(), 1, 1, 1, 1, 1);
+        pipeline.start();
+
+        assertTrue(pipeline.submit("four_groups"));
+
+        waitUntil(() -> restoredGroups.get() == 3 && pipeline.getQueueDepths().get("deliver") == 1);
+        Thread.sleep(200L);
+        assertEquals(3, restoredGroups.get()); // the third group waits for room in the deliver queue, the fourth is not built
+        assertTrue(events.isEmpty());
+
+        deliveryAllowed.countDown();
+        waitUntil(() -> events.contains("complete:four_groups:null"));
+        assertEquals(List.of("deliver:four_groups:context-0", "deliver:four_groups:context-1", "deliver:four_groups:context-2",
+                "deliver:four_groups:context-3", "complete:four_groups:null"), events);
+    }
+
+    @Test
+    void it_reports_each_file_after_its_groups_in_the_order_of_the_files() throws Exception {
+        deliveryAllowed.countDown();
+        pipeline = new VesselCSVPipeline<>(new RecordingSteps(), 1, 1, 1, 4, 2);
+        pipeline.start();
+
+        assertTrue(pipeline.submit("first"));
+        assertTrue(pipeline.submit("second"));
+        assertTrue(pipeline.submit("third"));
+
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        List<String> completedFiles = new ArrayList<>();
+        synchronized (events) {
+            for (int i = 0; i < events.size(); i++) {
+                String[] event = events.get(i).split(":");
+                if (event[0].equals("complete")) {
+                    completedFiles.add(event[1]);
+                    for (int j = i + 1; j < events.size(); j++) {
+                        assertFalse(events.get(j).startsWith("deliver:" + event[1] + ":")); // all the groups delivered before the report
+                    }
+                }
+            }
+        }
+        assertEquals(List.of("first", "second", "third"), completedFiles);
+    }
+
+    @Test
+    void it_stops_delivering_the_groups_of_a_file_after_a_failure() throws Exception {
+        deliveryAllowed.countDown();
+        failingGroups.add("context-1");
+        pipeline = new VesselCSVPipeline<>(new RecordingSteps(), 1, 1, 1, 1, 1);
+        pipeline.start();
+
+        assertTrue(pipeline.submit("four_groups"));
+
+        waitUntil(() -> events.stream().anyMatch(event -> event.startsWith("complete:")));
+        assertEquals("complete:four_groups:failed context-1", events.get(events.size() - 1));
+        assertFalse(events.contains("deliver:four_groups:context-2"));
+        assertFalse(events.contains("deliver:four_groups:context-3"));
+    }
+
+    @Test
+    void it_interrupts_the_stages_when_stopped() throws Exception {
+        pipeline = new VesselCSVPipeline<>(new RecordingSteps(), 1, 1, 1, 1, 1);
+        pipeline.start();
+        assertTrue(pipeline.submit("four_groups"));
+        waitUntil(() -> restoredGroups.get() == 3);
+
+        pipeline.stop();
+
+        waitUntil(deliveryInterrupted::get);
+        assertFalse(pipeline.submit("after_stop"));
+        Thread.sleep(200L);
+        assertEquals(1, parsedFiles.get());
+    }
+
+    private void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5L);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not reached within 5 seconds");
+            Thread.sleep(10L);
+        }
+    }
+
+    private VesselCSVTranslator translate(String fileName, int groups) throws IOException {
+        File csvFile = directory.resolve(fileName + ".csv").toFile();
+        StringBuilder csvContent = new StringBuilder(VesselCSVTranslator.csvHeaderRow).append('\n');
+        for (int group = 0; group < groups; group++) {
+            csvContent.append("7710525,232000000,22.253667,34.438333,2023-09-27 05:42:44,").append(RECIPIENT)
+                    .append("context-").append(group).append(",reference-1\n");
+        }
+        Files.writeString(csvFile.toPath(), csvContent);
+        return VesselCSVTranslator.vesselCSVToCISE(csvFile);
+    }
+
+    private class RecordingSteps implements VesselCSVPipeline.FileSteps<String> {
+
+        @Override
+        public VesselCSVTranslator parse(String file) throws Exception {
+            parsedFiles.incrementAndGet();
+            return translate(file, file.equals("four_groups") ? 4 : 2);
+        }
+
+        @Override
+        public boolean isToBeDelivered(VesselCSVTranslator translated) {
+            return true;
+        }
+
+        @Override
+        public boolean restore(String file, VesselCSVTranslator translated, int groupIndex, MessageKey messageKey) {
+            restoredGroups.incrementAndGet();
+            return false;
+        }
+
+        @Override
+        public void deliver(String file, VesselCSVTranslator translated, int groupIndex, MessageKey messageKey, XmlEntityPayload payload) throws Exception {
+            try {
+                deliveryAllowed.await();
+            } catch (InterruptedException ex) {
+                deliveryInterrupted.set(true);
+                throw ex;
+            }
+            events.add("deliver:" + file + ":" + messageKey.getContextId());
+            if (failingGroups.contains(messageKey.getContextId())) {
+                throw new IOException("failed " + messageKey.getContextId());
+            }
+        }
+
+        @Override
+        public void complete(String file, VesselCSVTranslator translated, Exception failure) {
+            events.add("complete:" + file + ":" + (failure != null ? failure.getMessage() : null));
+            completed.countDown();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package eu.cise.adaptor.plugin;
+
+import eu.cise.adaptor.plugin.config.SubscribeProviderPluginConfig;
+import org.aeonbits.owner.ConfigFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VesselCSVProcessingModesTest {
+
+    @Test
+    void it_delivers_the_configured_messages_in_flight_with_the_file_workers() {
+        assertEquals(3, processingModes(Map.of("csv-delivery-max-in-flight", "3")).getDeliveryMaxInFlight());
+    }
+
+    @Test
+    void it_delivers_one_message_at_a_time_with_the_pipeline() {
+        assertEquals(1, processingModes(Map.of("csv-delivery-max-in-flight", "3", "csv-pipeline-enabled", "true")).getDeliveryMaxInFlight());
+    }
+
+    @Test
+    void it_delivers_one_message_at_a_time_with_the_streaming() {
+        assertEquals(1, processingModes(Map.of("csv-delivery-max-in-flight", "3", "csv-streaming-enabled", "true")).getDeliveryMaxInFlight());
+    }
+
+    private static VesselCSVProcessingModes processingModes(Map<String, String> properties) {
+        return new VesselCSVProcessingModes(ConfigFactory.create(SubscribeProviderPluginConfig.class, properties));
+    }
+}
@@ -0,0 +1,49 @@
+package eu.cise.adaptor.plugin.cisecontext.impl;
+
+import eu.cise.adaptor.plugin.cisecontext.VesselValidationResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VesselDataValidatorTest {
+
+    private final VesselDataValidator validator = new VesselDataValidator();
+
+    @Test
+    void it_reports_every_failing_field() {
+        VesselValidationResult result = validator.validate("7710525", "9A2000000", "95.5", "west", "2023-06-12 10:15");
+
+        assertFalse(result.isValid());
+        assertEquals(List.of(
+                "Unable to construct numeric value for field: MMSI with value: 9A2000000",
+                "Latitude  value of 95.5 is not correct. Appropriate bounds: [-90.0,90.0]",
+                "Longitude  value of west could not be parsed as numeric.",
+                "Unable to calculate time object from given string: 2023-06-12 10:15"), result.getViolations());
+        assertEquals(7710525L, result.getIMONumber());
+        assertNull(result.getMMSI());
+    }
+
+    @Test
+    void it_parses_the_values_of_a_valid_line() {
+        VesselValidationResult result = validator.validate("7710525", "232000000", "43.41", "-6.25", "2023-06-12 10:15:30");
+
+        assertTrue(result.isValid());
+        assertNull(result.getViolationsMessage());
+        assertEquals(7710525L, result.getIMONumber());
+        assertEquals(232000000L, result.getMMSI());
+        assertEquals("2023-06-12T10:15:30Z", result.getPositionTime().toXMLFormat());
+    }
+
+    @Test
+    void it_accepts_the_coordinates_accepted_by_double_value_of() {
+        assertTrue(validator.validate("", "", "4.5e1", " -6.25 ", "2023-06-12 10:15:30").isValid());
+        assertTrue(validator.validate("", "", "+43.", ".5d", "2023-06-12 10:15:30").isValid());
+        assertFalse(validator.validate("", "", "43..4", "-6.25", "2023-06-12 10:15:30").isValid());
+        assertFalse(validator.validate("", "", "-", "-6.25", "2023-06-12 10:15:30").isValid());
+    }
+}
@@ -4,6 +4,8 @@ package eu.cise.adaptor.plugin.config;
 import org.aeonbits.owner.ConfigFactory;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 class SubscribeProviderPluginConfigTest {
@@ -22,4 +24,30 @@ class SubscribeProviderPluginConfigTest {
         assertNotNull(adaptorConfig.getHttpPort());
     }
 
+    @Test
+    public void it_tests_default_input_watch_configuration() {
+        SubscribeProviderPluginConfig adaptorConfig = ConfigFactory.create(SubscribeProviderPluginConfig.class);
+        assertEquals(5L, adaptorConfig.getCSVInputPollingIntervalSeconds());
+        assertFalse(adaptorConfig.isCSVInputWatchEnabled());
+        assertEquals(500L, adaptorConfig.getCSVInputWatchSettleMillis());
+    }
+
+    @Test
+    public void it_tests_default_worker_threads_configuration() {
+        SubscribeProviderPluginConfig adaptorConfig = ConfigFactory.create(SubscribeProviderPluginConfig.class);
+        assertEquals(1, adaptorConfig.getCSVWorkerThreads());
+    }
+
+    @Test
+    public void it_tests_default_input_commit_protocol_configuration() {
+        SubscribeProviderPluginConfig adaptorConfig = ConfigFactory.create(SubscribeProviderPluginConfig.class);
+        assertEquals(CSVInputCommitProtocol.SIZE, CSVInputCommitProtocol.fromValue(adaptorConfig.getCSVInputCommitProtocol()));
+    }
+
+    @Test
+    public void it_tests_default_delivery_in_flight_configuration() {
+        SubscribeProviderPluginConfig adaptorConfig = ConfigFactory.create(SubscribeProviderPluginConfig.class);
+        assertEquals(1, adaptorConfig.getCSVDeliveryMaxInFlight());
+    }
+
 }
\ No newline at end of file
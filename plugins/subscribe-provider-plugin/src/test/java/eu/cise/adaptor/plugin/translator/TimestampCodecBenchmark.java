@@ -0,0 +1,108 @@
+package eu.cise.adaptor.plugin.translator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.xml.datatype.DatatypeConstants;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+import java.text.SimpleDateFormat;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the timestamps per second converted by the previous SimpleDateFormat and GregorianCalendar conversion and by
+ * {@link TimeUtils#calculateXMLGregorianCalendarWithPattern(String, String)}, on timestamps sharing a few seconds as the lines of a file
+ * usually do, and on distinct timestamps that are never found in the cache.
+ * <p>
+ * Not part of the unit tests, run it with the main method from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TimestampCodecBenchmark {
+
+    static final int TIMESTAMPS = 10_000;
+    private static final String PATTERN = "yyyy-MM-dd HH:mm:ss";
+
+    private String[] sharedSeconds;
+    private String[] distinctSeconds;
+
+    @Setup
+    public void createTimestamps() {
+        sharedSeconds = new String[TIMESTAMPS];
+        distinctSeconds = new String[TIMESTAMPS];
+        for (int i = 0; i < TIMESTAMPS; i++) {
+            sharedSeconds[i] = "2023-06-12 10:15:" + String.format("%02d", i % 5);
+            distinctSeconds[i] = String.format("2023-06-%02d %02d:%02d:%02d", 1 + i / 3600 % 28, i / 3600 % 24, i / 60 % 60, i % 60);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TIMESTAMPS)
+    public void previousConversion(Blackhole blackhole) throws Exception {
+        for (String timestamp : sharedSeconds) {
+            blackhole.consume(previousCalculateXMLGregorianCalendar(timestamp));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TIMESTAMPS)
+    public void codecSharedSeconds(Blackhole blackhole) throws Exception {
+        for (String timestamp : sharedSeconds) {
+            blackhole.consume(TimeUtils.calculateXMLGregorianCalendarWithPattern(timestamp, PATTERN));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TIMESTAMPS)
+    public void codecDistinctSeconds(Blackhole blackhole) throws Exception {
+        for (String timestamp : distinctSeconds) {
+            blackhole.consume(TimeUtils.calculateXMLGregorianCalendarWithPattern(timestamp, PATTERN));
+        }
+    }
+
+    /**
+     * The conversion done by TimeUtils before the codec
+     */
+    private static XMLGregorianCalendar previousCalculateXMLGregorianCalendar(String dayTimeString) throws Exception {
+        Date givenDateAndTime = new SimpleDateFormat(PATTERN).parse(dayTimeString);
+        ZonedDateTime setTime = ZonedDateTime.ofInstant(givenDateAndTime.toInstant(), ZoneId.systemDefault())
+                .withNano(0)
+                .withZoneSameLocal(ZoneId.of("Z"));
+        GregorianCalendar gregCal = new GregorianCalendar();
+        gregCal.setTime(Date.from(setTime.toInstant()));
+        gregCal.setTimeZone(TimeZone.getTimeZone(ZoneId.of("Z")));
+        XMLGregorianCalendar result = DatatypeFactory.newInstance().newXMLGregorianCalendar(gregCal);
+        result.setMillisecond(DatatypeConstants.FIELD_UNDEFINED);
+        return result;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(TimestampCodecBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
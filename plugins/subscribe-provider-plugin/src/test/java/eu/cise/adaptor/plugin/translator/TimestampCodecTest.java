@@ -0,0 +1,45 @@
+package eu.cise.adaptor.plugin.translator;
+
+import eu.cise.adaptor.plugin.translator.exceptions.VesselCSVTranslationException;
+import org.junit.jupiter.api.Test;
+
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TimestampCodecTest {
+
+    private static final String PATTERN = "yyyy-MM-dd HH:mm:ss";
+
+    @Test
+    void it_reads_the_fixed_format_as_utc_without_milliseconds() throws VesselCSVTranslationException {
+        XMLGregorianCalendar calendar = TimeUtils.calculateXMLGregorianCalendarWithPattern("2024-02-29 23:59:07", PATTERN);
+
+        assertEquals("2024-02-29T23:59:07Z", calendar.toXMLFormat());
+        assertEquals(1709251147L, TimeUtils.calculateEpochSecondsWithPattern("2024-02-29 23:59:07", PATTERN));
+        assertEquals(calendar, TimeUtils.epochSecondsToXMLGregorianCalendar(1709251147L));
+    }
+
+    @Test
+    void it_gives_a_copy_of_the_cached_calendar_to_each_caller() throws VesselCSVTranslationException {
+        XMLGregorianCalendar first = TimeUtils.calculateXMLGregorianCalendarWithPattern("2023-06-12 10:15:30", PATTERN);
+        first.setHour(0);
+
+        assertEquals("2023-06-12T10:15:30Z", TimeUtils.calculateXMLGregorianCalendarWithPattern("2023-06-12 10:15:30", PATTERN).toXMLFormat());
+    }
+
+    @Test
+    void it_leaves_the_other_texts_to_the_lenient_parsing() throws VesselCSVTranslationException {
+        assertNull(TimestampCodec.parse("2023-02-30 10:00:00"));
+        assertNull(TimestampCodec.parse("2023-6-12 10:15:30"));
+        assertNull(TimestampCodec.parse("2023-06-12T10:15:30"));
+        assertNotNull(TimestampCodec.parse("2023-06-12 10:15:30"));
+
+        assertEquals("2023-03-02T10:00:00Z", TimeUtils.calculateXMLGregorianCalendarWithPattern("2023-02-30 10:00:00", PATTERN).toXMLFormat());
+        assertThrows(VesselCSVTranslationException.class, () -> TimeUtils.calculateXMLGregorianCalendarWithPattern("not a time", PATTERN));
+        assertThrows(VesselCSVTranslationException.class, () -> TimeUtils.calculateEpochSecondsWithPattern(null, PATTERN));
+    }
+}
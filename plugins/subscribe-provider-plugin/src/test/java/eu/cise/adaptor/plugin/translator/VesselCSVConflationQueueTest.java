@@ -0,0 +1,188 @@
+package eu.cise.adaptor.plugin.translator;
+
+import eu.cise.adaptor.core.servicehandler.domain.RegisteredMessage;
+import eu.cise.servicemodel.v1.message.Acknowledgement;
+import eu.cise.servicemodel.v1.message.AcknowledgementType;
+import eu.cise.servicemodel.v1.message.XmlEntityPayload;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VesselCSVConflationQueueTest {
+
+    private static final String RECIPIENT = ""; // no recipientServiceId column
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void it_delivers_only_the_newest_position_of_each_vessel_among_the_queued_files() throws IOException {
+        VesselCSVTranslator firstFile = translate("first.csv",
+                line("7710525", "2023-09-27 05:42:44", "context-1"),
+                line("7710525", "2023-09-27 05:43:44", "context-2"),
+                line("9074729", "2023-09-27 05:42:44", "context-2"));
+        VesselCSVTranslator secondFile = translate("second.csv",
+                line("7710525", "2023-09-27 05:44:44", "context-3"));
+        VesselCSVConflationQueue conflationQueue = new VesselCSVConflationQueue();
+        conflationQueue.offer(firstFile);
+        conflationQueue.offer(secondFile);
+        assertEquals(2, conflationQueue.size());
+
+        List<VesselCSVTranslator.MessageKey> messageKeys = firstFile.getMessageKeys();
+        XmlEntityPayload firstGroupPayload = firstFile.getMessagePayload(messageKeys.get(0));
+        assertNull(firstFile.getConflatedMessagePayload(messageKeys.get(0), firstGroupPayload, conflationQueue));
+        XmlEntityPayload secondGroupPayload = firstFile.getConflatedMessagePayload(messageKeys.get(1), firstFile.getMessagePayload(messageKeys.get(1)), conflationQueue);
+        assertEquals(1, secondGroupPayload.getAnies().size());
+        XmlEntityPayload newestPayload = secondFile.getMessagePayload(secondFile.getMessageKeys().get(0));
+        assertSame(newestPayload, secondFile.getConflatedMessagePayload(secondFile.getMessageKeys().get(0), newestPayload, conflationQueue));
+
+        assertEquals(2, firstFile.getConflatedLines());
+        assertEquals(2, conflationQueue.getConflatedPositions());
+        File sentDetailsFile = directory.resolve("sentDetails.csv").toFile();
+        firstFile.writeOutputFileWithGeneratedMessageDetails(sentDetailsFile);
+        List<String> sentDetailsLines = Files.readAllLines(sentDetailsFile.toPath());
+        assertTrue(sentDetailsLines.get(1).endsWith(",null,null,CONFLATED,null"));
+        assertTrue(sentDetailsLines.get(2).endsWith(",null,null,CONFLATED,null"));
+        assertFalse(sentDetailsLines.get(3).contains("CONFLATED"));
+
+        conflationQueue.release(firstFile);
+        conflationQueue.release(secondFile);
+        assertEquals(0, conflationQueue.size());
+    }
+
+    @Test
+    void it_does_not_conflate_the_positions_of_the_same_file() throws IOException {
+        VesselCSVTranslator translated = translate("same.csv",
+                line("7710525", "2023-09-27 05:42:44", "context-1"),
+                line("7710525", "2023-09-27 05:43:44", "context-2"));
+        VesselCSVConflationQueue conflationQueue = new VesselCSVConflationQueue();
+        conflationQueue.offer(translated);
+
+        for (VesselCSVTranslator.MessageKey messageKey : translated.getMessageKeys()) {
+            XmlEntityPayload payload = translated.getMessagePayload(messageKey);
+            assertSame(payload, translated.getConflatedMessagePayload(messageKey, payload, conflationQueue));
+        }
+        assertEquals(0, translated.getConflatedLines());
+        assertEquals(0, conflationQueue.getConflatedPositions());
+    }
+
+    @Test
+    void it_does_not_send_again_after_a_restart_a_group_whose_positions_are_all_conflated() throws IOException {
+        VesselCSVTranslator olderFile = translate("older.csv", line("7710525", "2023-09-27 05:42:44", "context-1"));
+        VesselCSVTranslator newerFile = translate("newer.csv", line("7710525", "2023-09-27 05:44:44", "context-2"));
+        VesselCSVConflationQueue conflationQueue = new VesselCSVConflationQueue();
+        conflationQueue.offer(olderFile);
+        conflationQueue.offer(newerFile);
+        VesselCSVTranslator.MessageKey messageKey = olderFile.getMessageKeys().get(0);
+        assertNull(olderFile.getConflatedMessagePayload(messageKey, olderFile.getMessagePayload(messageKey), conflationQueue));
+        File csvFile = directory.resolve("older.csv").toFile();
+        File journalFile = directory.resolve("older.csv.checkpoint").toFile();
+        try (VesselCSVCheckpointJournal checkpointJournal = VesselCSVCheckpointJournal.open(journalFile, csvFile)) {
+            olderFile.checkpointEntries(0, messageKey, checkpointJournal);
+        }
+
+        VesselCSVTranslator restartedFile = VesselCSVTranslator.vesselCSVToCISE(csvFile);
+        try (VesselCSVCheckpointJournal checkpointJournal = VesselCSVCheckpointJournal.open(journalFile, csvFile)) {
+            assertEquals(1, checkpointJournal.getRecoveredGroups());
+            assertTrue(restartedFile.restoreEntriesFromCheckpoint(0, restartedFile.getMessageKeys().get(0), checkpointJournal));
+        }
+        assertEquals(1, restartedFile.getConflatedLines());
+    }
+
+    @Test
+    void it_does_not_conflate_an_older_position_offered_after_a_newer_one() throws IOException {
+        VesselCSVTranslator newerFile = translate("newer.csv", line("7710525", "2023-09-27 05:44:44", "context-1"));
+        VesselCSVTranslator olderFile = translate("older.csv", line("7710525", "2023-09-27 05:42:44", "context-1"));
+        VesselCSVConflationQueue conflationQueue = new VesselCSVConflationQueue();
+        conflationQueue.offer(newerFile);
+        conflationQueue.offer(olderFile);
+
+        VesselCSVTranslator.MessageKey messageKey = newerFile.getMessageKeys().get(0);
+        XmlEntityPayload payload = newerFile.getMessagePayload(messageKey);
+        assertSame(payload, newerFile.getConflatedMessagePayload(messageKey, payload, conflationQueue));
+        assertNull(olderFile.getConflatedMessagePayload(messageKey, olderFile.getMessagePayload(messageKey), conflationQueue));
+    }
+
+    @Test
+    void it_gives_back_the_conflated_position_when_the_newer_position_is_not_delivered() throws IOException {
+        VesselCSVTranslator olderFile = translate("older.csv",
+                line("7710525", "2023-09-27 05:42:44", "context-1"),
+                line("7710525", "2023-09-27 05:43:44", "context-2"));
+        VesselCSVTranslator newerFile = translate("newer.csv", line("7710525", "2023-09-27 05:44:44", "context-3"));
+        VesselCSVConflationQueue conflationQueue = new VesselCSVConflationQueue();
+        conflationQueue.offer(olderFile);
+        conflationQueue.offer(newerFile);
+        for (VesselCSVTranslator.MessageKey messageKey : olderFile.getMessageKeys()) {
+            assertNull(olderFile.getConflatedMessagePayload(messageKey, olderFile.getMessagePayload(messageKey), conflationQueue));
+        }
+        conflationQueue.release(olderFile);
+        assertEquals(2, conflationQueue.getConflatedPositions());
+
+        List<VesselCSVTranslatorEntry> supersededEntries = conflationQueue.release(newerFile); // its delivery failed
+
+        assertEquals(1, supersededEntries.size());
+        assertEquals("context-2", supersededEntries.get(0).getContextId()); // the newest of the conflated positions
+        assertFalse(supersededEntries.get(0).isConflated());
+        assertEquals(1, olderFile.getConflatedLines());
+        assertEquals(1, conflationQueue.getConflatedPositions());
+        assertEquals(0, conflationQueue.size());
+    }
+
+    @Test
+    void it_leaves_out_the_conflated_position_once_the_newer_position_is_delivered() throws IOException {
+        VesselCSVTranslator olderFile = translate("older.csv", line("7710525", "2023-09-27 05:42:44", "context-1"));
+        VesselCSVTranslator newerFile = translate("newer.csv", line("7710525", "2023-09-27 05:44:44", "context-2"));
+        VesselCSVConflationQueue conflationQueue = new VesselCSVConflationQueue();
+        conflationQueue.offer(olderFile);
+        conflationQueue.offer(newerFile);
+        VesselCSVTranslator.MessageKey olderMessageKey = olderFile.getMessageKeys().get(0);
+        assertNull(olderFile.getConflatedMessagePayload(olderMessageKey, olderFile.getMessagePayload(olderMessageKey), conflationQueue));
+
+        RegisteredMessage registeredMessage = mock(RegisteredMessage.class);
+        when(registeredMessage.getMessageId()).thenReturn("message-1");
+        Acknowledgement acknowledgement = mock(Acknowledgement.class);
+        when(acknowledgement.getAckCode()).thenReturn(AcknowledgementType.SUCCESS);
+        newerFile.updateEntriesWithMessageResult(newerFile.getMessageKeys().get(0), new ImmutablePair<>(registeredMessage, acknowledgement));
+
+        assertTrue(conflationQueue.release(newerFile).isEmpty());
+        assertEquals(1, olderFile.getConflatedLines());
+    }
+
+    @Test
+    void it_does_not_conflate_the_lines_without_position() throws IOException {
+        VesselCSVTranslator translated = translate("no_position.csv",
+                "7710525,232000000,,,," + RECIPIENT + "context-1,reference-1",
+                "7710525,232000000,,,," + RECIPIENT + "context-1,reference-1");
+        VesselCSVConflationQueue conflationQueue = new VesselCSVConflationQueue();
+        conflationQueue.offer(translated);
+
+        VesselCSVTranslator.MessageKey messageKey = translated.getMessageKeys().get(0);
+        XmlEntityPayload payload = translated.getMessagePayload(messageKey);
+        assertSame(payload, translated.getConflatedMessagePayload(messageKey, payload, conflationQueue));
+        assertEquals(0, conflationQueue.size());
+    }
+
+    private static String line(String imoNumber, String positionTimestamp, String contextId) {
+        return imoNumber + ",232000000,22.253667,34.438333," + positionTimestamp + "," + RECIPIENT + contextId + ",reference-1";
+    }
+
+    private VesselCSVTranslator translate(String fileName, String... lines) throws IOException {
+        File csvFile = directory.resolve(fileName).toFile();
+        Files.writeString(csvFile.toPath(), VesselCSVTranslator.csvHeaderRow + "\n" + String.join("\n", lines) + "\n");
+        return VesselCSVTranslator.vesselCSVToCISE(csvFile);
+    }
+}
@@ -0,0 +1,47 @@
+package eu.cise.adaptor.plugin.translator;
+
+import eu.cise.adaptor.plugin.translator.exceptions.VesselCSVTranslationException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class VesselCSVFieldTokenizerTest {
+
+    private final VesselCSVFieldTokenizer tokenizer = new VesselCSVFieldTokenizer();
+
+    @Test
+    void it_finds_the_boundaries_of_plain_and_empty_fields() throws VesselCSVTranslationException {
+        assertEquals(4, tokenizer.tokenize("7710525,,abc,"));
+        assertEquals("7710525", tokenizer.getField(0));
+        assertEquals("", tokenizer.getField(1));
+        assertEquals(9, tokenizer.getFieldStart(2));
+        assertEquals(12, tokenizer.getFieldEnd(2));
+        assertEquals("", tokenizer.getField(3));
+
+        assertEquals(1, tokenizer.tokenize(""));
+        assertEquals("", tokenizer.getField(0));
+    }
+
+    @Test
+    void it_reads_quoted_fields_with_commas_and_escaped_quotes() throws VesselCSVTranslationException {
+        assertEquals(3, tokenizer.tokenize("\"consumer,id\",\"say \"\"hello\"\"\",\"\""));
+        assertEquals("consumer,id", tokenizer.getField(0));
+        assertEquals("say \"hello\"", tokenizer.getField(1));
+        assertEquals("", tokenizer.getField(2));
+    }
+
+    @Test
+    void it_reuses_its_buffers_for_lines_with_many_fields() throws VesselCSVTranslationException {
+        assertEquals(40, tokenizer.tokenize(",,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,,last"));
+        assertEquals("last", tokenizer.getField(39));
+        assertEquals(2, tokenizer.tokenize("a,b"));
+        assertThrows(IndexOutOfBoundsException.class, () -> tokenizer.getField(2));
+    }
+
+    @Test
+    void it_rejects_malformed_quoted_fields() {
+        assertThrows(VesselCSVTranslationException.class, () -> tokenizer.tokenize("a,\"not terminated"));
+        assertThrows(VesselCSVTranslationException.class, () -> tokenizer.tokenize("\"quoted\"text,b"));
+    }
+}
@@ -0,0 +1,98 @@
+package eu.cise.adaptor.plugin.translator;
+
+import eu.cise.adaptor.core.servicehandler.domain.RegisteredMessage;
+import eu.cise.adaptor.plugin.TestHelper;
+import eu.cise.servicemodel.v1.message.Acknowledgement;
+import eu.cise.servicemodel.v1.message.AcknowledgementType;
+import eu.cise.servicemodel.v1.message.XmlEntityPayload;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VesselCSVStreamingTranslatorTest {
+
+    @TempDir
+    Path outputDirectory;
+
+    private final List<XmlEntityPayload> sentPayloads = new ArrayList<>();
+
+    private final VesselCSVStreamingTranslator.MessageGroupSender sender = (messageKey, payload) -> {
+        sentPayloads.add(payload);
+        RegisteredMessage registeredMessage = mock(RegisteredMessage.class);
+        when(registeredMessage.getMessageId()).thenReturn("message-" + sentPayloads.size());
+        Acknowledgement acknowledgement = mock(Acknowledgement.class);
+        when(acknowledgement.getAckCode()).thenReturn(AcknowledgementType.SUCCESS);
+        return new ImmutablePair<>(registeredMessage, acknowledgement);
+    };
+
+    @Test
+    void it_streams_one_message_per_group_when_the_budget_is_not_reached() throws Exception {
+        File csvFile = TestHelper.resourceToFile("vesselscsv/vessels_csv_example_four_messages.csv");
+        File sentDetailsFile = outputDirectory.resolve("sentDetails.csv").toFile();
+        File errorFile = outputDirectory.resolve("error.csv").toFile();
+
+        VesselCSVStreamingTranslator.StreamingResult result = new VesselCSVStreamingTranslator(100, 100).translate(csvFile, sentDetailsFile, errorFile, sender);
+
+        assertEquals(4, result.getSentMessages());
+        assertEquals(6, result.getSentLines());
+        assertEquals(0, result.getErrorLines());
+        assertEquals(2, sentPayloads.get(0).getAnies().size());
+        assertFalse(errorFile.exists());
+        List<String> sentDetailsLines = Files.readAllLines(sentDetailsFile.toPath());
+        assertEquals(7, sentDetailsLines.size());
+        assertEquals(VesselCSVTranslator.sentDetailsFileHeaderRow, sentDetailsLines.get(0));
+        assertTrue(sentDetailsLines.get(1).endsWith(",message-1,null,SUCCESS,null"));
+    }
+
+    @Test
+    void it_delivers_a_group_when_it_reaches_the_maximum_group_size() throws Exception {
+        File csvFile = TestHelper.resourceToFile("vesselscsv/vessels_csv_example_four_messages.csv");
+
+        VesselCSVStreamingTranslator.StreamingResult result = new VesselCSVStreamingTranslator(100, 1)
+                .translate(csvFile, outputDirectory.resolve("sentDetails.csv").toFile(), outputDirectory.resolve("error.csv").toFile(), sender);
+
+        assertEquals(6, result.getSentMessages());
+        sentPayloads.forEach(payload -> assertEquals(1, payload.getAnies().size()));
+    }
+
+    @Test
+    void it_delivers_the_oldest_group_when_the_memory_budget_is_exceeded() throws Exception {
+        File csvFile = TestHelper.resourceToFile("vesselscsv/vessels_csv_example_four_messages.csv");
+
+        VesselCSVStreamingTranslator.StreamingResult result = new VesselCSVStreamingTranslator(2, 100)
+                .translate(csvFile, outputDirectory.resolve("sentDetails.csv").toFile(), outputDirectory.resolve("error.csv").toFile(), sender);
+
+        // the first group is delivered with its two lines before the third line is buffered
+        assertEquals(6, result.getSentLines());
+        assertEquals(2, sentPayloads.get(0).getAnies().size());
+        assertTrue(result.getSentMessages() > 4);
+    }
+
+    @Test
+    void it_writes_the_error_lines_and_delivers_the_valid_lines() throws Exception {
+        File csvFile = TestHelper.resourceToFile("vesselscsv/vessels_csv_example_wrong.csv");
+        File errorFile = outputDirectory.resolve("error.csv").toFile();
+
+        VesselCSVStreamingTranslator.StreamingResult result = new VesselCSVStreamingTranslator(100, 100)
+                .translate(csvFile, outputDirectory.resolve("sentDetails.csv").toFile(), errorFile, sender);
+
+        assertEquals(3, result.getErrorLines());
+        assertEquals(3, result.getSentLines());
+        assertEquals(2, result.getSentMessages());
+        List<String> errorLines = Files.readAllLines(errorFile.toPath());
+        assertEquals(4, errorLines.size());
+        assertEquals(VesselCSVTranslator.errorFileHeaderRow, errorLines.get(0));
+    }
+}
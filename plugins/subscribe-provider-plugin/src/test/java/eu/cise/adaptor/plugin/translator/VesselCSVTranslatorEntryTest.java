@@ -6,6 +6,7 @@ import eu.cise.adaptor.plugin.translator.exceptions.VesselCSVTranslationExceptio
 import eu.cise.datamodel.v1.entity.location.Geometry;
 import eu.cise.datamodel.v1.entity.period.Period;
 import eu.cise.datamodel.v1.entity.vessel.Vessel;
+import eu.cise.servicemodel.v1.message.XmlEntityPayload;
 import eu.eucise.xml.DefaultXmlMapper;
 import eu.eucise.xml.XmlMapper;
 import org.junit.jupiter.api.Test;
@@ -14,8 +15,10 @@ import org.junit.platform.commons.util.StringUtils;
 import javax.xml.datatype.DatatypeConfigurationException;
 import javax.xml.datatype.DatatypeFactory;
 import javax.xml.datatype.XMLGregorianCalendar;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -121,13 +124,13 @@ class VesselCSVTranslatorEntryTest {
     @Test
     public void it_creates_exception_when_imo_is_not_numeric() {
         VesselCSVTranslatorEntry entry = compareCSVEntryAndGeneratedVessel(wrong_CSVExample_1);
-        assertEquals("Unable to construct numeric value for field: IMO_number with value: A710525", entry.getTranslationException().getMessage());
+        assertEquals("Unable to construct numeric value for field: IMO_number with value: A710525; MMSI does not have correct number of characters. Found: 8 but expected: 9", entry.getTranslationException().getMessage());
     }
 
     @Test
     public void it_creates_exception_when_imo_has_wrong_num_of_digits() {
         VesselCSVTranslatorEntry entry = compareCSVEntryAndGeneratedVessel(wrong_CSVExample_2);
-        assertEquals("IMO_number does not have correct number of characters. Found: 6 but expected: 7", entry.getTranslationException().getMessage());
+        assertEquals("IMO_number does not have correct number of characters. Found: 6 but expected: 7; Unable to construct numeric value for field: MMSI with value: T32000000", entry.getTranslationException().getMessage());
     }
 
     @Test
@@ -142,6 +145,25 @@ class VesselCSVTranslatorEntryTest {
         assertEquals("MMSI does not have correct number of characters. Found: 10 but expected: 9", entry.getTranslationException().getMessage());
     }
 
+    @Test
+    public void it_keeps_only_the_parsed_values_and_creates_the_vessel_when_the_payload_is_built() {
+        VesselPayloadBuilder vesselPayloadBuilder = new VesselPayloadBuilder();
+        VesselCSVTranslatorEntry entry = new VesselCSVTranslatorEntry(CSVExample_1, 1, vesselPayloadBuilder::validateVesselData, new VesselCSVFieldTokenizer());
+        VesselCSVTranslatorEntry eagerEntry = new VesselCSVTranslatorEntry(CSVExample_1, 1, vesselPayloadBuilder::translateToVessel);
+
+        assertFalse(entry.hasTranslationError());
+        assertNull(entry.getResultVessel());
+        XmlEntityPayload payload = vesselPayloadBuilder.build(List.of(entry));
+        Vessel expectedVessel = eagerEntry.getResultVessel();
+        Vessel builtVessel = (Vessel) payload.getAnies().get(0);
+        assertEquals(expectedVessel.getIMONumber(), builtVessel.getIMONumber());
+        assertEquals(expectedVessel.getMMSI(), builtVessel.getMMSI());
+        Geometry expectedGeometry = expectedVessel.getLocationRels().get(0).getLocation().getGeometries().get(0);
+        Geometry builtGeometry = builtVessel.getLocationRels().get(0).getLocation().getGeometries().get(0);
+        assertEquals(expectedGeometry.getLatitude(), builtGeometry.getLatitude());
+        assertEquals(expectedGeometry.getLongitude(), builtGeometry.getLongitude());
+        assertEquals(expectedVessel.getLocationRels().get(0).getPeriodOfTime().getStartDate(), builtVessel.getLocationRels().get(0).getPeriodOfTime().getStartDate());
+    }
 
     private VesselCSVTranslatorEntry compareCSVEntryAndGeneratedVessel(String csvInput) {
         String[] currentEntrySplit = csvInput.split(",");